@@ -0,0 +1,223 @@
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class AnalysisCache {
+    // This class remembers recent analysis results so repeated checks of the same
+    // password (retries during a password change, GUI re-analysis) skip the work.
+    //
+    // Entries are keyed by SHA-256(random per-process salt + password), truncated to
+    // 128 bits, so the cache never holds a password. It is split into segments, each
+    // an LRU map under its own lock, so concurrent callers rarely wait on each other.
+    // Results depend on the policy and on the common-password list, so all entries are
+    // dropped when either changes (a segmented index gains a delta, for one).
+
+    private static final int SEGMENTS = 16;
+
+    private final PasswordAnalyzer analyzer;
+    private final SecurityPolicy policy;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final byte[] salt = new byte[32];
+    private final ThreadLocal<Hasher> hashers;
+    private volatile CompiledPolicy cachedFor;
+    private volatile long cachedGeneration;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public AnalysisCache(PasswordAnalyzer analyzer, SecurityPolicy policy, int maxEntries) {
+        this.analyzer = analyzer;
+        this.policy = policy;
+        int perSegment = Math.max(1, maxEntries / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment, evictions);
+        }
+        new SecureRandom().nextBytes(salt);
+        hashers = ThreadLocal.withInitial(() -> new Hasher(salt));
+        cachedFor = policy.current();
+        cachedGeneration = analyzer.getDictionaryGeneration();
+    }
+
+    // Method to analyze a password, using a cached result when there is one
+    public Result analyze(String password) {
+        CompiledPolicy current = policy.current();
+        long generation = analyzer.getDictionaryGeneration();
+        if (current != cachedFor || generation != cachedGeneration) {
+            clear();
+            cachedFor = current;
+            cachedGeneration = generation;
+        }
+
+        Digest key = hashers.get().digest(password);
+        Segment segment = segments[(int) (key.high >>> 60)];
+        Result result;
+        synchronized (segment) {
+            result = segment.get(key);
+        }
+        if (result != null && result.policy == current && result.generation == generation) {
+            hits.increment();
+            return result;
+        }
+
+        misses.increment();
+        PasswordAnalysis analysis = analyzer.analyze(password);
+        result = new Result(analysis, current.failures(analysis), current, generation);
+        synchronized (segment) {
+            segment.put(key, result);
+        }
+        return result;
+    }
+
+    // Method to drop every cached result
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public double hitRate() {
+        long hit = hits();
+        long total = hit + misses();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    // One cached outcome: the analysis and the policy rules it fails
+    public static final class Result {
+        private final PasswordAnalysis analysis;
+        private final int failures;
+        private final CompiledPolicy policy;
+        private final long generation;
+
+        Result(PasswordAnalysis analysis, int failures, CompiledPolicy policy, long generation) {
+            this.analysis = analysis;
+            this.failures = failures;
+            this.policy = policy;
+            this.generation = generation;
+        }
+
+        public PasswordAnalysis getAnalysis() {
+            return analysis;
+        }
+
+        // Mask of CompiledPolicy.RULE_ bits
+        public int getFailures() {
+            return failures;
+        }
+
+        public boolean isCompliant() {
+            return failures == 0;
+        }
+    }
+
+    private static final class Digest {
+        final long high;
+        final long low;
+
+        Digest(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Digest && ((Digest) other).high == high && ((Digest) other).low == low;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (low ^ (low >>> 32));
+        }
+    }
+
+    private static final class Segment extends LinkedHashMap<Digest, Result> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+        private final LongAdder evictions;
+
+        Segment(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Digest, Result> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    // Per-thread SHA-256 with a reused buffer that is wiped after every use
+    private static final class Hasher {
+        private final MessageDigest sha256;
+        private final byte[] salt;
+        private byte[] buffer = new byte[64];
+
+        Hasher(byte[] salt) {
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+            this.salt = salt;
+        }
+
+        Digest digest(String password) {
+            int bytes = password.length() * 2;
+            if (buffer.length < bytes) {
+                buffer = new byte[Math.max(bytes, buffer.length * 2)];
+            }
+            for (int i = 0; i < password.length(); i++) {
+                char c = password.charAt(i);
+                buffer[2 * i] = (byte) (c >>> 8);
+                buffer[2 * i + 1] = (byte) c;
+            }
+            sha256.update(salt);
+            sha256.update(buffer, 0, bytes);
+            Arrays.fill(buffer, 0, bytes, (byte) 0);
+            byte[] hash = sha256.digest();
+            return new Digest(toLong(hash, 0), toLong(hash, 8));
+        }
+
+        private static long toLong(byte[] bytes, int offset) {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (bytes[offset + i] & 0xFF);
+            }
+            return value;
+        }
+    }
+}
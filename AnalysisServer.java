@@ -0,0 +1,221 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class AnalysisServer {
+    // This class serves the analyzer over HTTP with the JDK's built-in server
+    //
+    //   POST /analyze        body: one password            -> one JSON result
+    //   POST /analyze/batch  body: one password per line   -> {"results":[...]} in order
+    //   GET  /stats                                        -> result cache counters
+    //   GET  /range/ABCDE                                  -> breached hashes starting with ABCDE
+    //
+    // Results never contain the password itself. Each request runs on its own
+    // virtual thread when the JDK has them (21+), otherwise on a fixed pool. /range is
+    // only served when a breach range index is given; it answers k-anonymity queries
+    // with one "SUFFIX:COUNT" line per hash, so the password's hash never reaches us.
+
+    // Largest request body accepted, enough for tens of thousands of passwords
+    private static final int MAX_BODY_BYTES = 8 << 20;
+
+    private final PasswordAnalyzer analyzer;
+    private final SecurityPolicy policy;
+    private final AnalysisCache cache;
+    private BreachRangeIndex ranges;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public AnalysisServer(PasswordAnalyzer analyzer, SecurityPolicy policy) {
+        this(analyzer, policy, null);
+    }
+
+    // The cache is optional; pass null to analyze every request
+    public AnalysisServer(PasswordAnalyzer analyzer, SecurityPolicy policy, AnalysisCache cache) {
+        this.analyzer = analyzer;
+        this.policy = policy;
+        this.cache = cache;
+    }
+
+    // Method to answer /range queries from an index; call before start()
+    public void serveRanges(BreachRangeIndex ranges) {
+        this.ranges = ranges;
+    }
+
+    // Method to start listening on a port (0 picks a free one); returns the port
+    public int start(int port) throws IOException {
+        // Small JSON replies otherwise wait on Nagle's algorithm for tens of milliseconds
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(port), 4096);
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/analyze", this::handle);
+        server.createContext("/stats", this::handleStats);
+        if (ranges != null) {
+            server.createContext("/range/", this::handleRange);
+        }
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    // Method to stop the server, letting running requests finish for up to a second
+    public void stop() {
+        if (server != null) {
+            server.stop(1);
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Method to get one virtual thread per request where the JDK supports it
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                send(exchange, 405, "{\"error\":\"use POST\"}");
+                return;
+            }
+            byte[] body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                send(exchange, 413, "{\"error\":\"request body too large\"}");
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            String text = new String(body, StandardCharsets.UTF_8);
+            StringBuilder json = new StringBuilder();
+            if (path.equals("/analyze")) {
+                appendResult(json, stripLineEnd(text));
+            } else if (path.equals("/analyze/batch")) {
+                appendBatch(json, text);
+            } else {
+                send(exchange, 404, "{\"error\":\"not found\"}");
+                return;
+            }
+            send(exchange, 200, json);
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (cache == null) {
+                send(exchange, 200, "{\"cache\":null}");
+                return;
+            }
+            send(exchange, 200, "{\"cache\":{\"size\":" + cache.size()
+                    + ",\"hits\":" + cache.hits()
+                    + ",\"misses\":" + cache.misses()
+                    + ",\"evictions\":" + cache.evictions() + "}}");
+        }
+    }
+
+    private void handleRange(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                send(exchange, 405, "{\"error\":\"use GET\"}");
+                return;
+            }
+            int prefix = BreachRangeIndex.parsePrefix(exchange.getRequestURI().getPath().substring("/range/".length()));
+            if (prefix < 0) {
+                send(exchange, 400, "{\"error\":\"expected five hex characters\"}");
+                return;
+            }
+            StringBuilder text = new StringBuilder();
+            ranges.writeRange(prefix, text);
+            send(exchange, 200, "text/plain", text);
+        }
+    }
+
+    private void appendBatch(StringBuilder json, String text) {
+        json.append("{\"results\":[");
+        int start = 0;
+        boolean first = true;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            if (end < 0) {
+                end = text.length();
+            }
+            if (!first) {
+                json.append(',');
+            }
+            appendResult(json, stripLineEnd(text.substring(start, end)));
+            first = false;
+            start = end + 1;
+        }
+        json.append("]}");
+    }
+
+    private void appendResult(StringBuilder json, String password) {
+        PasswordAnalysis analysis;
+        int failures;
+        if (cache != null) {
+            AnalysisCache.Result cached = cache.analyze(password);
+            analysis = cached.getAnalysis();
+            failures = cached.getFailures();
+        } else {
+            analysis = analyzer.analyze(password);
+            failures = policy.current().failures(analysis);
+        }
+        json.append("{\"length\":").append(analysis.getLength())
+            .append(",\"score\":").append(analysis.getScore())
+            .append(",\"level\":\"").append(analysis.getStrengthLevel())
+            .append("\",\"compliant\":").append(failures == 0)
+            .append(",\"failures\":[");
+        boolean first = true;
+        for (int rule = 1; rule <= failures; rule <<= 1) {
+            if ((failures & rule) != 0) {
+                json.append(first ? "\"" : ",\"").append(CompiledPolicy.ruleName(rule)).append('"');
+                first = false;
+            }
+        }
+        json.append("]}");
+    }
+
+    private static String stripLineEnd(String line) {
+        int end = line.length();
+        while (end > 0 && (line.charAt(end - 1) == '\n' || line.charAt(end - 1) == '\r')) {
+            end--;
+        }
+        return line.substring(0, end);
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException {
+        byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+        return body.length > MAX_BODY_BYTES ? null : body;
+    }
+
+    private static void send(HttpExchange exchange, int status, CharSequence json) throws IOException {
+        send(exchange, status, "application/json", json);
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, CharSequence body)
+            throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+public final class AnalyzerMetrics implements AnalyzerMetricsMXBean {
+    // This class collects call counts, latency histograms and policy rule outcomes
+    // for the analyzer hot paths. It is off unless the JVM is started with
+    // -Dpassword.metrics=true; ENABLED is a constant, so when it is off the JIT
+    // removes the timing calls entirely. When on, the numbers are published as the
+    // MBean "PasswordAnalyzer:type=Metrics" and, with -Dpassword.metrics.log=<seconds>,
+    // printed to stderr at that interval.
+
+    public static final boolean ENABLED = Boolean.getBoolean("password.metrics");
+
+    public static final LatencyRecorder ANALYZE = new LatencyRecorder("analyze");
+    public static final LatencyRecorder SCORE = new LatencyRecorder("calculateStrengthScore");
+    public static final LatencyRecorder COMPLIANCE = new LatencyRecorder("isCompliant");
+    public static final LatencyRecorder REPORT = new LatencyRecorder("generateComplianceReport");
+    private static final LatencyRecorder[] RECORDERS = {ANALYZE, SCORE, COMPLIANCE, REPORT};
+
+    // Indexed by the position of the rule bit (CompiledPolicy.RULE_*)
+    private static final int RULE_SLOTS = 8;
+    private static final LongAdder[] RULE_PASSES = adders(RULE_SLOTS);
+    private static final LongAdder[] RULE_FAILURES = adders(RULE_SLOTS);
+    private static final LongAdder COMPLIANT = new LongAdder();
+    private static final LongAdder NON_COMPLIANT = new LongAdder();
+
+    private static final AnalyzerMetrics INSTANCE = new AnalyzerMetrics();
+
+    static {
+        if (ENABLED) {
+            register();
+        }
+    }
+
+    private AnalyzerMetrics() {
+    }
+
+    public static AnalyzerMetrics get() {
+        return INSTANCE;
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    // Method to start timing a call; returns 0 without reading the clock when disabled
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    // Method to finish timing a call started with start()
+    public static void stop(LatencyRecorder recorder, long start) {
+        if (ENABLED) {
+            recorder.record(System.nanoTime() - start);
+        }
+    }
+
+    // Method to count the outcome of one compliance check: every rule the chain
+    // evaluated before the failing one passed, and the failing rule (if any) failed
+    public static void recordOutcome(int[] chain, int failure) {
+        if (!ENABLED) {
+            return;
+        }
+        for (int rule : chain) {
+            if (rule == failure) {
+                RULE_FAILURES[Integer.numberOfTrailingZeros(rule)].increment();
+                NON_COMPLIANT.increment();
+                return;
+            }
+            RULE_PASSES[Integer.numberOfTrailingZeros(rule)].increment();
+        }
+        COMPLIANT.increment();
+    }
+
+    private static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE,
+                    new ObjectName("PasswordAnalyzer:type=Metrics"));
+        } catch (JMException e) {
+            System.err.println("Could not register analyzer metrics MBean: " + e.getMessage());
+        }
+        long interval = Long.getLong("password.metrics.log", 0);
+        if (interval > 0) {
+            ScheduledExecutorService logger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics-log");
+                thread.setDaemon(true);
+                return thread;
+            });
+            logger.scheduleAtFixedRate(() -> System.err.println(INSTANCE.getSummary()),
+                    interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getCallCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (LatencyRecorder recorder : RECORDERS) {
+            counts.put(recorder.getName(), recorder.snapshot().getCount());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getMeanMicros() {
+        Map<String, Double> means = new LinkedHashMap<>();
+        for (LatencyRecorder recorder : RECORDERS) {
+            means.put(recorder.getName(), recorder.snapshot().getMeanNanos() / 1000);
+        }
+        return means;
+    }
+
+    @Override
+    public Map<String, Double> getP50Micros() {
+        return percentiles(0.50);
+    }
+
+    @Override
+    public Map<String, Double> getP99Micros() {
+        return percentiles(0.99);
+    }
+
+    @Override
+    public Map<String, Double> getP999Micros() {
+        return percentiles(0.999);
+    }
+
+    private static Map<String, Double> percentiles(double fraction) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (LatencyRecorder recorder : RECORDERS) {
+            values.put(recorder.getName(), recorder.snapshot().percentileNanos(fraction) / 1000.0);
+        }
+        return values;
+    }
+
+    @Override
+    public long getCompliantCount() {
+        return COMPLIANT.sum();
+    }
+
+    @Override
+    public long getNonCompliantCount() {
+        return NON_COMPLIANT.sum();
+    }
+
+    @Override
+    public Map<String, Long> getRulePasses() {
+        return ruleCounts(RULE_PASSES);
+    }
+
+    @Override
+    public Map<String, Long> getRuleFailures() {
+        return ruleCounts(RULE_FAILURES);
+    }
+
+    private static Map<String, Long> ruleCounts(LongAdder[] adders) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < RULE_SLOTS; i++) {
+            counts.put(CompiledPolicy.ruleName(1 << i), adders[i].sum());
+        }
+        return counts;
+    }
+
+    // Method to describe all metrics on one line, e.g. for the periodic log
+    @Override
+    public String getSummary() {
+        StringBuilder line = new StringBuilder("metrics");
+        for (LatencyRecorder recorder : RECORDERS) {
+            LatencyRecorder.Snapshot snapshot = recorder.snapshot();
+            if (snapshot.getCount() == 0) {
+                continue;
+            }
+            line.append(String.format(" %s[n=%d p50=%.1fus p99=%.1fus p999=%.1fus]", recorder.getName(),
+                    snapshot.getCount(), snapshot.percentileNanos(0.50) / 1000.0,
+                    snapshot.percentileNanos(0.99) / 1000.0, snapshot.percentileNanos(0.999) / 1000.0));
+        }
+        line.append(" compliant=").append(COMPLIANT.sum()).append(" failed=");
+        boolean first = true;
+        for (int i = 0; i < RULE_SLOTS; i++) {
+            long failures = RULE_FAILURES[i].sum();
+            if (failures > 0) {
+                line.append(first ? "" : ",").append(CompiledPolicy.ruleName(1 << i)).append(':').append(failures);
+                first = false;
+            }
+        }
+        if (first) {
+            line.append('0');
+        }
+        return line.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyRecorder recorder : RECORDERS) {
+            recorder.reset();
+        }
+        for (int i = 0; i < RULE_SLOTS; i++) {
+            RULE_PASSES[i].reset();
+            RULE_FAILURES[i].reset();
+        }
+        COMPLIANT.reset();
+        NON_COMPLIANT.reset();
+    }
+}
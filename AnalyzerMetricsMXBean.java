@@ -0,0 +1,29 @@
+import java.util.Map;
+
+public interface AnalyzerMetricsMXBean {
+    // This interface is what JMX clients (jconsole, VisualVM, exporters) see of
+    // AnalyzerMetrics. Latencies are in microseconds and keyed by check name.
+
+    Map<String, Long> getCallCounts();
+
+    Map<String, Double> getMeanMicros();
+
+    Map<String, Double> getP50Micros();
+
+    Map<String, Double> getP99Micros();
+
+    Map<String, Double> getP999Micros();
+
+    long getCompliantCount();
+
+    long getNonCompliantCount();
+
+    // Times each policy rule was evaluated and passed, and failed
+    Map<String, Long> getRulePasses();
+
+    Map<String, Long> getRuleFailures();
+
+    String getSummary();
+
+    void reset();
+}
@@ -0,0 +1,125 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public final class AuditResultWriter implements AutoCloseable {
+    // This class writes the results of an audit as an AuditResultStore file, one record
+    // per account, in the order they are added. Records are gathered into blocks of
+    // AuditResultStore.BLOCK_RECORDS and each block is written column by column, so
+    // memory use is one block (about 700 KB) however many records are written.
+
+    private final Path file;
+    private final BinaryWriter out;
+    private final long[] ids = new long[AuditResultStore.BLOCK_RECORDS];
+    private final byte[] scores = new byte[AuditResultStore.BLOCK_RECORDS];
+    private final long[][] planes = new long[AuditResultStore.PLANES][AuditResultStore.BLOCK_RECORDS / 64];
+    private long[] blockOffsets = new long[64];
+    private int blockCount;
+    private int count;
+    private long records;
+
+    public AuditResultWriter(Path file) throws IOException {
+        this.file = file;
+        this.out = new BinaryWriter(file);
+        // The header is filled in on close, once the sizes are known
+        out.putInt(0).putInt(0).putLong(0).putLong(0).putInt(0).putInt(0);
+    }
+
+    // Method to add the result of one account: its score (0-120) and the mask of
+    // CompiledPolicy.RULE_ bits it fails (0 if compliant)
+    public void add(long accountId, int score, int failures) throws IOException {
+        ids[count] = accountId;
+        scores[count] = (byte) score;
+        int word = count >>> 6;
+        long bit = 1L << count;
+        int level = PasswordAnalyzer.strengthLevelIndex(score);
+        for (int plane = 0; plane < AuditResultStore.LEVEL_PLANES; plane++) {
+            if ((level & (1 << plane)) != 0) {
+                planes[plane][word] |= bit;
+            }
+        }
+        for (int rule = 0; rule < AuditResultStore.RULES; rule++) {
+            if ((failures & (1 << rule)) != 0) {
+                planes[AuditResultStore.LEVEL_PLANES + rule][word] |= bit;
+            }
+        }
+        count++;
+        records++;
+        if (count == AuditResultStore.BLOCK_RECORDS) {
+            writeBlock();
+        }
+    }
+
+    // Method to get the number of records added so far
+    public long size() {
+        return records;
+    }
+
+    // Method to write one block: the ids relative to the smallest, in as few bytes as
+    // they need (none when they count up by one), then the scores, then the bit planes
+    private void writeBlock() throws IOException {
+        if (blockCount == blockOffsets.length) {
+            blockOffsets = Arrays.copyOf(blockOffsets, blockCount * 2);
+        }
+        blockOffsets[blockCount++] = out.position();
+
+        long base = ids[0];
+        boolean consecutive = true;
+        for (int i = 1; i < count; i++) {
+            base = Math.min(base, ids[i]);
+            consecutive &= ids[i] == ids[0] + i;
+        }
+        long range = 0;
+        for (int i = 0; i < count; i++) {
+            range = Math.max(range, ids[i] - base);
+        }
+        // Ids far apart make range negative, i.e. above Long.MAX_VALUE unsigned
+        int idBytes = consecutive ? 0 : range < 0 ? 8 : (64 - Long.numberOfLeadingZeros(range) + 7) / 8;
+
+        out.putLong(base).putInt(count).putInt(idBytes);
+        for (int i = 0; i < count && idBytes > 0; i++) {
+            long delta = ids[i] - base;
+            for (int b = 0; b < idBytes; b++) {
+                out.putByte((int) (delta >>> (8 * b)));
+            }
+        }
+        out.align(8);
+        out.putBytes(scores, 0, count).align(8);
+        int words = AuditResultStore.words(count);
+        for (long[] plane : planes) {
+            for (int w = 0; w < words; w++) {
+                out.putLong(plane[w]);
+            }
+            Arrays.fill(plane, 0, words, 0);
+        }
+        count = 0;
+    }
+
+    // Method to write the last block and the block index, and complete the header
+    @Override
+    public void close() throws IOException {
+        long indexOffset;
+        try (BinaryWriter writer = out) {
+            if (count > 0) {
+                writeBlock();
+            }
+            indexOffset = writer.position();
+            for (int i = 0; i < blockCount; i++) {
+                writer.putLong(blockOffsets[i]);
+            }
+        }
+        ByteBuffer header = ByteBuffer.allocate(AuditResultStore.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(AuditResultStore.MAGIC).putInt(AuditResultStore.VERSION)
+                .putLong(records).putLong(indexOffset).putInt(AuditResultStore.BLOCK_RECORDS).putInt(0).flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(false);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+public final class AuditStatistics {
+    // This class collects corpus-wide figures during a batch audit in fixed memory:
+    // how many distinct passwords there are (HyperLogLog), which ones are reused most
+    // (a count-min sketch with a small heavy-hitter table) and how scores, levels and
+    // compliance are spread. Passwords are only ever seen as a salted 64-bit hash;
+    // the salt is random per run and never written anywhere, and the report names a
+    // reused password only by its count, score and one record number where it occurs.
+    // One instance is filled per worker thread and they are merged at the end.
+
+    public static final int DEFAULT_TOP = 20;
+
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final long salt;
+    private final int top;
+    private final HyperLogLog distinct;
+    private final CountMinSketch frequency;
+
+    // Heavy-hitter candidates, a few times more than reported so a password that is
+    // common overall but rarer in one thread's share still survives the merge
+    private final long[] candidateHashes;
+    private final long[] candidateCounts;
+    private final long[] candidateRecords;
+    private final int[] candidateScores;
+    private int candidateCount;
+    private long minimumCandidateCount;
+
+    private final long[] scores = new long[PasswordAnalyzer.MAX_SCORE + 1];
+    private long compliant;
+
+    public AuditStatistics() {
+        this(new SecureRandom().nextLong(), DEFAULT_TOP);
+    }
+
+    public AuditStatistics(int top) {
+        this(new SecureRandom().nextLong(), top);
+    }
+
+    private AuditStatistics(long salt, int top) {
+        if (top < 1) {
+            throw new IllegalArgumentException("top must be positive");
+        }
+        this.salt = salt;
+        this.top = top;
+        this.distinct = new HyperLogLog();
+        this.frequency = new CountMinSketch();
+        int capacity = Math.max(64, top * 4);
+        this.candidateHashes = new long[capacity];
+        this.candidateCounts = new long[capacity];
+        this.candidateRecords = new long[capacity];
+        this.candidateScores = new int[capacity];
+    }
+
+    // Method to create an empty instance with the same salt, for another thread
+    public AuditStatistics emptyCopy() {
+        return new AuditStatistics(salt, top);
+    }
+
+    // Methods to hash a password with this run's salt; all three agree on the same
+    // text, so ASCII bytes hash the same as their chars
+    public long hash(CharSequence password) {
+        long h = salt ^ (password.length() * MULTIPLIER);
+        for (int i = 0; i < password.length(); i++) {
+            h = PasswordHash.step(h, password.charAt(i));
+        }
+        return PasswordHash.mix(h ^ salt);
+    }
+
+    public long hash(char[] password, int offset, int length) {
+        long h = salt ^ (length * MULTIPLIER);
+        for (int i = offset; i < offset + length; i++) {
+            h = PasswordHash.step(h, password[i]);
+        }
+        return PasswordHash.mix(h ^ salt);
+    }
+
+    public long hashAscii(ByteBuffer bytes, int offset, int length) {
+        long h = salt ^ (length * MULTIPLIER);
+        for (int i = offset; i < offset + length; i++) {
+            h = PasswordHash.step(h, bytes.get(i));
+        }
+        return PasswordHash.mix(h ^ salt);
+    }
+
+    // Method to count one audited password
+    public void record(long hash, int score, boolean isCompliant, long record) {
+        distinct.add(hash);
+        long count = frequency.add(hash);
+        scores[score]++;
+        if (isCompliant) {
+            compliant++;
+        }
+        if (candidateCount < candidateHashes.length || count > minimumCandidateCount) {
+            offer(hash, count, record, score);
+        }
+    }
+
+    // Method to add or update a heavy-hitter candidate, evicting the least frequent
+    private void offer(long hash, long count, long record, int score) {
+        int slot = -1;
+        for (int i = 0; i < candidateCount; i++) {
+            if (candidateHashes[i] == hash) {
+                slot = i;
+                break;
+            }
+        }
+        if (slot < 0) {
+            if (candidateCount < candidateHashes.length) {
+                slot = candidateCount++;
+            } else {
+                slot = minimumCandidate();
+            }
+            candidateHashes[slot] = hash;
+            candidateRecords[slot] = record;
+            candidateScores[slot] = score;
+        } else {
+            candidateRecords[slot] = Math.min(candidateRecords[slot], record);
+        }
+        candidateCounts[slot] = count;
+        if (candidateCount == candidateHashes.length) {
+            minimumCandidateCount = candidateCounts[minimumCandidate()];
+        }
+    }
+
+    private int minimumCandidate() {
+        int minimum = 0;
+        for (int i = 1; i < candidateCount; i++) {
+            if (candidateCounts[i] < candidateCounts[minimum]) {
+                minimum = i;
+            }
+        }
+        return minimum;
+    }
+
+    // Method to fold another thread's statistics into this one
+    public void merge(AuditStatistics other) {
+        if (other.salt != salt) {
+            throw new IllegalArgumentException("Cannot merge statistics hashed with a different salt");
+        }
+        distinct.merge(other.distinct);
+        frequency.merge(other.frequency);
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] += other.scores[i];
+        }
+        compliant += other.compliant;
+
+        // Counts from the merged sketch replace the per-thread ones
+        for (int i = 0; i < candidateCount; i++) {
+            candidateCounts[i] = frequency.estimate(candidateHashes[i]);
+        }
+        minimumCandidateCount = candidateCount == candidateHashes.length
+                ? candidateCounts[minimumCandidate()] : 0;
+        for (int i = 0; i < other.candidateCount; i++) {
+            long hash = other.candidateHashes[i];
+            long count = frequency.estimate(hash);
+            if (candidateCount < candidateHashes.length || count > minimumCandidateCount) {
+                offer(hash, count, other.candidateRecords[i], other.candidateScores[i]);
+            }
+        }
+    }
+
+    public long getRecords() {
+        return frequency.getTotal();
+    }
+
+    public long getCompliant() {
+        return compliant;
+    }
+
+    public long getDistinctEstimate() {
+        return distinct.estimate();
+    }
+
+    // Method to get how many passwords scored each value from 0 to MAX_SCORE
+    public long[] getScoreHistogram() {
+        return scores.clone();
+    }
+
+    // Method to get the number of passwords per strength level, strongest first
+    public long[] getLevelCounts() {
+        long[] levels = new long[PasswordAnalyzer.STRENGTH_LEVELS];
+        for (int score = 0; score < scores.length; score++) {
+            levels[PasswordAnalyzer.strengthLevelIndex(score)] += scores[score];
+        }
+        return levels;
+    }
+
+    // Method to get the most reused passwords, most frequent first, leaving out any
+    // seen only once
+    public List<ReusedPassword> getMostReused() {
+        Integer[] order = new Integer[candidateCount];
+        for (int i = 0; i < candidateCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> candidateCounts[i]).reversed());
+        List<ReusedPassword> reused = new ArrayList<>();
+        for (int i = 0; i < order.length && reused.size() < top; i++) {
+            int slot = order[i];
+            if (candidateCounts[slot] > 1) {
+                reused.add(new ReusedPassword(candidateCounts[slot], candidateRecords[slot], candidateScores[slot]));
+            }
+        }
+        return reused;
+    }
+
+    // Method to write the end-of-run report
+    public String summary() {
+        long records = getRecords();
+        long distinctEstimate = Math.min(getDistinctEstimate(), records);
+        StringBuilder report = new StringBuilder();
+        report.append("=== AUDIT SUMMARY ===\n");
+        report.append("Passwords audited: ").append(records).append("\n");
+        report.append("Distinct passwords: about ").append(distinctEstimate)
+              .append(String.format(" (+/- %.1f%%)", distinct.standardError() * 100)).append("\n");
+        report.append("Repeats of an earlier password: about ").append(records - distinctEstimate).append("\n");
+        report.append("Compliant: ").append(compliant).append(percent(compliant, records)).append("\n");
+
+        report.append("\nStrength levels:\n");
+        long[] levels = getLevelCounts();
+        for (int i = 0; i < levels.length; i++) {
+            report.append(String.format("  %-10s %12d", PasswordAnalyzer.strengthLevelName(i), levels[i]))
+                  .append(percent(levels[i], records)).append("\n");
+        }
+
+        report.append("\nScores:\n");
+        for (int from = 0; from <= PasswordAnalyzer.MAX_SCORE; from += 10) {
+            int to = Math.min(from + 9, PasswordAnalyzer.MAX_SCORE);
+            long count = 0;
+            for (int score = from; score <= to; score++) {
+                count += scores[score];
+            }
+            if (count > 0) {
+                report.append(String.format("  %3d-%-3d %12d", from, to, count))
+                      .append(percent(count, records)).append("\n");
+            }
+        }
+
+        List<ReusedPassword> reused = getMostReused();
+        report.append("\nMost reused passwords (estimated counts, never the password):\n");
+        if (reused.isEmpty()) {
+            report.append("  none\n");
+        }
+        int rank = 1;
+        for (ReusedPassword password : reused) {
+            report.append(String.format("  %2d. %10d times, e.g. record %d, score %d (%s)\n", rank++,
+                    password.getCount(), password.getRecord(), password.getScore(),
+                    PasswordAnalyzer.strengthLevelFor(password.getScore())));
+        }
+        report.append("Counts may be high by up to ").append(frequency.errorBound()).append("\n");
+        return report.toString();
+    }
+
+    private static String percent(long count, long total) {
+        return total == 0 ? "" : String.format(" (%.1f%%)", 100.0 * count / total);
+    }
+
+    // One entry of the heavy-hitter list
+    public static final class ReusedPassword {
+        private final long count;
+        private final long record;
+        private final int score;
+
+        ReusedPassword(long count, long record, int score) {
+            this.count = count;
+            this.record = record;
+            this.score = score;
+        }
+
+        // Estimated number of records holding this password
+        public long getCount() {
+            return count;
+        }
+
+        // One record (line number) holding it
+        public long getRecord() {
+            return record;
+        }
+
+        public int getScore() {
+            return score;
+        }
+    }
+}
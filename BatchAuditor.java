@@ -0,0 +1,505 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BatchAuditor {
+    // This class runs a non-interactive audit over a newline-delimited password file
+    // Lines are read in batches, scored on all cores and written back in input order.
+    // Only a fixed number of batches may be in flight, so memory use does not depend
+    // on the size of the input: when the writer falls behind the reader blocks.
+    // Files are memory-mapped and analyzed as UTF-8 bytes where they lie; only
+    // records with non-ASCII bytes are decoded, and never into a String.
+    // Records are formatted by ReportWriter into pooled per-batch buffers.
+    // Results may also be kept in an AuditResultStore file, with or without a report.
+
+    private static final int BATCH_SIZE = 4096;
+
+    // Bytes of the input mapped at a time; a single line may not be longer
+    private static final long WINDOW_SIZE = 1L << 28;
+
+    // Decoder and char buffer for non-ASCII records, one per worker thread
+    private static final ThreadLocal<CharsetDecoder> DECODER =
+            ThreadLocal.withInitial(StandardCharsets.UTF_8::newDecoder);
+    private static final ThreadLocal<char[][]> DECODED = ThreadLocal.withInitial(() -> new char[1][256]);
+
+    // Class masks of one mapped batch, one array per worker thread
+    private static final ThreadLocal<int[]> MASKS = ThreadLocal.withInitial(() -> new int[BATCH_SIZE]);
+
+    private final PasswordAnalyzer analyzer;
+    private final SecurityPolicy policy;
+    private final int threads;
+    private final ClassScanner scanner;
+    private AuditStatistics statistics;
+    private AuditResultWriter results;
+    private boolean footer;
+    private long windowSize = WINDOW_SIZE;
+
+    public BatchAuditor(PasswordAnalyzer analyzer, SecurityPolicy policy) {
+        this(analyzer, policy, Runtime.getRuntime().availableProcessors());
+    }
+
+    public BatchAuditor(PasswordAnalyzer analyzer, SecurityPolicy policy, int threads) {
+        this.analyzer = analyzer;
+        this.policy = policy;
+        this.threads = Math.max(1, threads);
+        this.scanner = ClassScanner.create(analyzer.getCharacterClasses());
+    }
+
+    // Method to also collect corpus statistics on every later audit; each audit adds
+    // to the given instance, and null turns collection off again
+    public void setStatistics(AuditStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    // Method to also add the results of every later audit to a result store, with the
+    // record (line) number as the account id; null turns it off again. The caller
+    // closes the writer once the audits are done.
+    public void setResultStore(AuditResultWriter results) {
+        this.results = results;
+    }
+
+    // Method to map smaller windows of the input, so tests can cover lines that
+    // straddle two windows without a file of hundreds of megabytes
+    void setWindowSize(long windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    // Method to end every later audit with a footer of totals (see ReportWriter)
+    public void setFooter(boolean footer) {
+        this.footer = footer;
+    }
+
+    // Method to audit a file (or stdin for "-") into a file (or stdout for "-")
+    // and return the number of records written
+    // A null output writes no report at all, only the result store (see setResultStore)
+    public long audit(String input, String output, ReportWriter.Format format) throws IOException {
+        try (WritableByteChannel out = output == null ? null : output.equals("-")
+                     ? Channels.newChannel(System.out)
+                     : FileChannel.open(Path.of(output), StandardOpenOption.CREATE,
+                             StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ReportWriter.Format reportFormat = out == null ? null : format;
+            if (!input.equals("-")) {
+                return audit(Path.of(input), out, reportFormat);
+            }
+            return audit(Channels.newChannel(System.in), out, reportFormat);
+        }
+    }
+
+    // Method to audit newline-delimited UTF-8 passwords from one channel into another
+    public long audit(ReadableByteChannel in, WritableByteChannel out, ReportWriter.Format format) throws IOException {
+        BufferedReader reader = new BufferedReader(Channels.newReader(in, StandardCharsets.UTF_8), 1 << 16);
+        return run(out, format, sink -> {
+            long records = 0;
+            String[] batch = new String[BATCH_SIZE];
+            int size = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                batch[size++] = line;
+                if (size == BATCH_SIZE) {
+                    submit(sink, batch, size, records, format);
+                    records += size;
+                    batch = new String[BATCH_SIZE];
+                    size = 0;
+                }
+            }
+            if (size > 0) {
+                submit(sink, batch, size, records, format);
+                records += size;
+            }
+            return records;
+        });
+    }
+
+    // Method to audit a newline-delimited UTF-8 file by mapping it into memory
+    // Lines end at \n, \r or \r\n, exactly as BufferedReader.readLine() splits them
+    public long audit(Path input, WritableByteChannel out, ReportWriter.Format format) throws IOException {
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            long size = channel.size();
+            return run(out, format, sink -> {
+                long records = 0;
+                long position = 0;
+                while (position < size) {
+                    long length = Math.min(windowSize, size - position);
+                    MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                    int end = (int) length;
+                    if (position + length < size) {
+                        // Stop after the last full line; the rest starts the next window
+                        end = lastLineEnd(window, end);
+                        if (end < 0) {
+                            throw new IOException("Line longer than " + windowSize + " bytes at offset " + position);
+                        }
+                    }
+                    records += submitLines(sink, window, end, records, format);
+                    position += end;
+                }
+                return records;
+            });
+        }
+    }
+
+    // Method to find where the last line that ends inside the window stops, or -1
+    static int lastLineEnd(ByteBuffer window, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            if (window.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        // A \r in the last byte may be the first half of a \r\n
+        for (int i = end - 2; i >= 0; i--) {
+            if (window.get(i) == '\r') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    // Method to split one window into lines and hand them out in batches of offsets
+    private long submitLines(BatchSink sink, ByteBuffer window, int end, long firstRecord, ReportWriter.Format format)
+            throws IOException, InterruptedException {
+        long records = 0;
+        int[] lines = new int[BATCH_SIZE * 2];
+        int count = 0;
+        int start = 0;
+        while (start < end) {
+            int i = start;
+            byte b = 0;
+            while (i < end && (b = window.get(i)) != '\n' && b != '\r') {
+                i++;
+            }
+            lines[count * 2] = start;
+            lines[count * 2 + 1] = i - start;
+            count++;
+            if (i < end && b == '\r' && i + 1 < end && window.get(i + 1) == '\n') {
+                i++;
+            }
+            start = i + 1;
+            if (count == BATCH_SIZE) {
+                submitMapped(sink, window, lines, count, firstRecord + records, format);
+                records += count;
+                lines = new int[BATCH_SIZE * 2];
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            submitMapped(sink, window, lines, count, firstRecord + records, format);
+            records += count;
+        }
+        return records;
+    }
+
+    // Produces the batches of one audit; returns the number of records
+    private interface BatchProducer {
+        long produce(BatchSink sink) throws IOException, InterruptedException;
+    }
+
+    private interface BatchSink {
+        void submit(Batch batch) throws IOException, InterruptedException;
+    }
+
+    // Formats one batch with the calling worker's own share of the run's totals
+    private interface Batch {
+        FormattedBatch format(WorkerShare share) throws Exception;
+    }
+
+    // One batch ready to be written: its report text (null when there is no report)
+    // and, when results are stored, score | failures << 8 of each record
+    private static final class FormattedBatch {
+        final StringBuilder text;
+        final int[] results;
+        final long firstRecord;
+        final int count;
+
+        FormattedBatch(StringBuilder text, int[] results, long firstRecord, int count) {
+            this.text = text;
+            this.results = results;
+            this.firstRecord = firstRecord;
+            this.count = count;
+        }
+    }
+
+    // What one worker thread gathers during a run; the shares are merged at the end
+    private static final class WorkerShare {
+        final ReportWriter.Totals totals = new ReportWriter.Totals();
+        final AuditStatistics statistics;  // null when statistics are off
+        final Queue<StringBuilder> buffers;
+        final Queue<int[]> resultBuffers;
+
+        WorkerShare(AuditStatistics statistics, Queue<StringBuilder> buffers, Queue<int[]> resultBuffers) {
+            this.statistics = statistics;
+            this.buffers = buffers;
+            this.resultBuffers = resultBuffers;
+        }
+
+        // Method to take an output buffer the writer has finished with, or a new one
+        StringBuilder buffer(int capacity) {
+            StringBuilder buffer = buffers.poll();
+            return buffer != null ? buffer : new StringBuilder(capacity);
+        }
+
+        // Method to take a result array the writer has finished with, or a new one
+        int[] resultBuffer() {
+            int[] buffer = resultBuffers.poll();
+            return buffer != null ? buffer : new int[BATCH_SIZE];
+        }
+    }
+
+    private long run(WritableByteChannel out, ReportWriter.Format format, BatchProducer producer) throws IOException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        // Twice the worker count keeps every core busy while the writer catches up
+        BlockingQueue<Future<FormattedBatch>> pending = new ArrayBlockingQueue<>(threads * 2);
+        ReportWriter report = format == null ? null : ReportWriter.open(out, format, policy.current());
+        // Batch buffers go back here once written, so a run only ever allocates as many
+        // as can be in flight at once
+        Queue<StringBuilder> buffers = new ConcurrentLinkedQueue<>();
+        Queue<int[]> resultBuffers = new ConcurrentLinkedQueue<>();
+
+        // Each worker counts into its own share; they are merged once the output is written
+        AuditStatistics total = statistics;
+        List<WorkerShare> shares = Collections.synchronizedList(new ArrayList<>());
+        ThreadLocal<WorkerShare> share = ThreadLocal.withInitial(() -> {
+            WorkerShare copy = new WorkerShare(total == null ? null : total.emptyCopy(), buffers, resultBuffers);
+            shares.add(copy);
+            return copy;
+        });
+
+        AuditWriterThread writerThread = new AuditWriterThread(pending, report, buffers, results, resultBuffers);
+        writerThread.start();
+        try {
+            if (report != null) {
+                report.writeHeader();
+            }
+            long records = producer.produce(batch -> {
+                // Blocks while too many batches are in flight
+                pending.put(workers.submit(() -> batch.format(share.get())));
+                writerThread.checkFailure();
+            });
+            pending.put(AuditWriterThread.END);
+            writerThread.join();
+            writerThread.checkFailure();
+            ReportWriter.Totals totals = new ReportWriter.Totals();
+            for (WorkerShare partial : shares) {
+                totals.merge(partial.totals);
+                if (total != null) {
+                    total.merge(partial.statistics);
+                }
+            }
+            if (report != null) {
+                if (footer) {
+                    report.writeFooter(totals);
+                }
+                report.close();
+            }
+            return records;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Audit was interrupted", e);
+        } finally {
+            workers.shutdownNow();
+            writerThread.interrupt();
+        }
+    }
+
+    private void submit(BatchSink sink, String[] batch, int size, long firstRecord, ReportWriter.Format format)
+            throws IOException, InterruptedException {
+        sink.submit(share -> formatBatch(batch, size, firstRecord, format, share));
+    }
+
+    private void submitMapped(BatchSink sink, ByteBuffer window, int[] lines, int count, long firstRecord,
+                              ReportWriter.Format format) throws IOException, InterruptedException {
+        sink.submit(share -> formatMappedBatch(window, lines, count, firstRecord, format, share));
+    }
+
+    private FormattedBatch formatBatch(String[] batch, int size, long firstRecord, ReportWriter.Format format,
+                                       WorkerShare share) throws IOException {
+        CompiledPolicy rules = policy.current();
+        StringBuilder out = format == null ? null : share.buffer(size * 48);
+        ReportWriter rows = format == null ? null : new ReportWriter(out, format, rules, share.totals);
+        int[] stored = results == null ? null : share.resultBuffer();
+        AuditStatistics statistics = share.statistics;
+        for (int i = 0; i < size; i++) {
+            PasswordAnalysis analysis = analyzer.analyze(batch[i]);
+            int score = analysis.getScore();
+            long checked = AnalyzerMetrics.start();
+            int failures = rules.failures(analysis);
+            boolean compliant = SecurityPolicy.recordFailures(rules, failures, checked);
+            if (statistics != null) {
+                statistics.record(statistics.hash(batch[i]), score, compliant, firstRecord + i + 1);
+            }
+            batch[i] = null;
+            if (rows != null) {
+                rows.write(firstRecord + i + 1, analysis, compliant);
+            }
+            if (stored != null) {
+                stored[i] = score | failures << 8;
+            }
+        }
+        return new FormattedBatch(out, stored, firstRecord, size);
+    }
+
+    // The classes of every ASCII record in the batch come from one ClassScanner pass;
+    // only the dictionary lookup is left per record. Other records are decoded.
+    private FormattedBatch formatMappedBatch(ByteBuffer window, int[] lines, int count, long firstRecord,
+                                             ReportWriter.Format format, WorkerShare share) throws IOException {
+        int[] masks = MASKS.get();
+        scanner.scan(window, lines, count, masks);
+        CompiledPolicy rules = policy.current();
+        StringBuilder out = format == null ? null : share.buffer(count * 48);
+        ReportWriter rows = format == null ? null : new ReportWriter(out, format, rules, share.totals);
+        int[] stored = results == null ? null : share.resultBuffer();
+        AuditStatistics statistics = share.statistics;
+        for (int i = 0; i < count; i++) {
+            int start = lines[i * 2];
+            int length = lines[i * 2 + 1];
+            int chars = length;
+            int classMask = masks[i];
+            boolean common;
+            int score;
+            long hash = 0;
+            if (classMask != ClassScanner.NOT_ASCII) {
+                common = analyzer.isCommonAscii(window, start, length);
+                score = PasswordAnalysis.calculateScore(length, classMask, common);
+                if (statistics != null) {
+                    hash = statistics.hashAscii(window, start, length);
+                }
+            } else {
+                chars = decodeUtf8(window, start, length);
+                char[] decoded = DECODED.get()[0];
+                try {
+                    PasswordAnalysis analysis = analyzer.analyze(decoded, 0, chars);
+                    classMask = analysis.getClassMask();
+                    common = analysis.isCommonPassword();
+                    score = analysis.getScore();
+                    if (statistics != null) {
+                        hash = statistics.hash(decoded, 0, chars);
+                    }
+                } finally {
+                    Arrays.fill(decoded, 0, chars, '\0');
+                }
+            }
+            // Every column of the record comes from the one policy snapshot, even if the
+            // policy file is reloaded halfway through the batch
+            long checked = AnalyzerMetrics.start();
+            int failures = rules.failures(chars, classMask, common);
+            boolean compliant = SecurityPolicy.recordFailures(rules, failures, checked);
+            if (statistics != null) {
+                statistics.record(hash, score, compliant, firstRecord + i + 1);
+            }
+            if (rows != null) {
+                rows.write(firstRecord + i + 1, chars, classMask, common, score, compliant);
+            }
+            if (stored != null) {
+                stored[i] = score | failures << 8;
+            }
+        }
+        return new FormattedBatch(out, stored, firstRecord, count);
+    }
+
+    // Method to decode a non-ASCII record into this thread's DECODED buffer and return
+    // its length in chars; the caller wipes the buffer once it is done with it
+    // Malformed UTF-8 fails the audit, as it does when reading through a Reader
+    private int decodeUtf8(ByteBuffer window, int start, int length) throws CharacterCodingException {
+        char[][] holder = DECODED.get();
+        if (holder[0].length < length) {
+            // UTF-8 never needs more chars than bytes
+            holder[0] = new char[Math.max(length, holder[0].length * 2)];
+        }
+        char[] chars = holder[0];
+        CharBuffer decoded = CharBuffer.wrap(chars);
+        CharsetDecoder decoder = DECODER.get().reset();
+        CoderResult result = decoder.decode(window.slice(start, length), decoded, true);
+        if (result.isError()) {
+            result.throwException();
+        }
+        decoder.flush(decoded);
+        return decoded.position();
+    }
+
+    // Writes finished batches strictly in the order they were submitted
+    private static class AuditWriterThread extends Thread {
+        static final Future<FormattedBatch> END = CompletableFuture.completedFuture(null);
+
+        private final BlockingQueue<Future<FormattedBatch>> pending;
+        private final ReportWriter report;
+        private final Queue<StringBuilder> buffers;
+        private final AuditResultWriter results;
+        private final Queue<int[]> resultBuffers;
+        private volatile Throwable failure;
+
+        AuditWriterThread(BlockingQueue<Future<FormattedBatch>> pending, ReportWriter report,
+                          Queue<StringBuilder> buffers, AuditResultWriter results, Queue<int[]> resultBuffers) {
+            super("audit-writer");
+            this.pending = pending;
+            this.report = report;
+            this.buffers = buffers;
+            this.results = results;
+            this.resultBuffers = resultBuffers;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                Future<FormattedBatch> next;
+                while ((next = pending.take()) != END) {
+                    if (failure != null) {
+                        continue; // keep draining so the reader never blocks forever
+                    }
+                    try {
+                        FormattedBatch batch = next.get();
+                        if (batch.text != null) {
+                            report.writeFormatted(batch.text);
+                            batch.text.setLength(0);
+                            buffers.offer(batch.text);
+                        }
+                        if (batch.results != null) {
+                            for (int i = 0; i < batch.count; i++) {
+                                int result = batch.results[i];
+                                results.add(batch.firstRecord + i + 1, result & 0xFF, result >>> 8);
+                            }
+                            resultBuffers.offer(batch.results);
+                        }
+                    } catch (IOException | ExecutionException | RuntimeException e) {
+                        failure = e instanceof ExecutionException ? e.getCause() : e;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Audit was cancelled
+            }
+        }
+
+        void checkFailure() throws IOException {
+            Throwable t = failure;
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            } else if (t != null) {
+                throw new IOException("Audit failed: " + t, t);
+            }
+        }
+    }
+}
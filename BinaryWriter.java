@@ -0,0 +1,93 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class BinaryWriter implements AutoCloseable {
+    // This class writes little-endian binary files through one reused buffer
+    // It is the writing side of MappedRegion
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+    private long position;
+
+    public BinaryWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    public long position() {
+        return position;
+    }
+
+    public BinaryWriter putByte(int value) throws IOException {
+        ensure(1);
+        buffer.put((byte) value);
+        position += 1;
+        return this;
+    }
+
+    public BinaryWriter putShort(int value) throws IOException {
+        ensure(2);
+        buffer.putShort((short) value);
+        position += 2;
+        return this;
+    }
+
+    public BinaryWriter putInt(int value) throws IOException {
+        ensure(4);
+        buffer.putInt(value);
+        position += 4;
+        return this;
+    }
+
+    public BinaryWriter putLong(long value) throws IOException {
+        ensure(8);
+        buffer.putLong(value);
+        position += 8;
+        return this;
+    }
+
+    public BinaryWriter putBytes(byte[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            ensure(1);
+            int n = Math.min(length, buffer.remaining());
+            buffer.put(values, offset, n);
+            offset += n;
+            length -= n;
+            position += n;
+        }
+        return this;
+    }
+
+    // Method to pad with zeros until the position is a multiple of the alignment
+    public BinaryWriter align(int alignment) throws IOException {
+        while (position % alignment != 0) {
+            putByte(0);
+        }
+        return this;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.force(false);
+        channel.close();
+    }
+}
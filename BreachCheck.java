@@ -0,0 +1,86 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+public final class BreachCheck {
+    // This class checks whether a password appears in a breach corpus the way a
+    // k-anonymity client does: it hashes the password with SHA-1, asks a RangeSource
+    // only for the hashes that share the first five hex characters (one of about a
+    // million ranges, each holding hundreds of hashes), and looks for the rest of its
+    // hash in the reply itself. The source never learns which of them, if any, was
+    // being checked. The password's bytes are wiped as soon as they are hashed.
+
+    // Where the ranges come from: a local BreachRangeIndex, or a client of a remote
+    // service that turns its reply into the same record format
+    public interface RangeSource {
+        // Method to get the records of a prefix, BreachRangeIndex.RECORD_SIZE bytes each,
+        // between the buffer's position and limit
+        ByteBuffer range(int prefix) throws IOException;
+    }
+
+    private static final ThreadLocal<MessageDigest> SHA1 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    });
+
+    private final RangeSource source;
+
+    public BreachCheck(RangeSource source) {
+        this.source = source;
+    }
+
+    // Method to check if a password has been seen in a breach, like isCommonPassword
+    // but case-sensitive, since breach hashes are of the exact password
+    public boolean isBreachedPassword(CharSequence password) throws IOException {
+        return breachCount(password) > 0;
+    }
+
+    // Method to get how many times a password has been seen in breaches (0 if never)
+    public long breachCount(CharSequence password) throws IOException {
+        return breachCount(sha1(password));
+    }
+
+    // Method to look up an already computed SHA-1
+    public long breachCount(byte[] sha1) throws IOException {
+        ByteBuffer records = source.range(prefixOf(sha1));
+        for (int record = records.position(); record < records.limit(); record += BreachRangeIndex.RECORD_SIZE) {
+            if (matches(records, record, sha1)) {
+                return Integer.toUnsignedLong(records.getInt(record + BreachRangeIndex.SUFFIX_BYTES));
+            }
+        }
+        return 0;
+    }
+
+    // Method to hash a password's UTF-8 bytes
+    static byte[] sha1(CharSequence password) {
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        MessageDigest digest = SHA1.get();
+        digest.update(bytes.duplicate());
+        if (bytes.hasArray()) {
+            Arrays.fill(bytes.array(), (byte) 0);
+        }
+        return digest.digest();
+    }
+
+    // Method to get the 20-bit range prefix of a hash
+    static int prefixOf(byte[] sha1) {
+        return (sha1[0] & 0xFF) << 12 | (sha1[1] & 0xFF) << 4 | (sha1[2] & 0xFF) >>> 4;
+    }
+
+    // Method to compare the suffix a record stores with hash bytes 2..19
+    private static boolean matches(ByteBuffer records, int record, byte[] sha1) {
+        for (int i = 0; i < BreachRangeIndex.SUFFIX_BYTES; i++) {
+            if (records.get(record + i) != sha1[i + 2]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,105 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+public final class BreachRangeIndex implements BreachCheck.RangeSource {
+    // This class answers k-anonymity range queries from a memory-mapped file built by
+    // BreachRangeIndexBuilder: given the first five hex characters (20 bits) of a
+    // password's SHA-1, it returns every breached hash that starts with them and how
+    // often each was seen. The caller never reveals the password or its full hash.
+    //
+    // Records are sorted by hash, so the records of a prefix are contiguous. A dense
+    // directory with one entry per possible prefix holds where each range starts. A
+    // query is two directory reads, then one sequential read of the range.
+    //
+    // File layout (little-endian):
+    //   int magic, int version, long recordCount, long directoryOffset, long reserved,
+    //   recordCount x (18 bytes: SHA-1 bytes 2..19, int count),
+    //   padding to 8 bytes, (PREFIXES + 1) x long index of the first record of a prefix
+
+    static final int MAGIC = 0x47525750; // "PWRG"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+
+    public static final int PREFIX_BITS = 20;
+    public static final int PREFIXES = 1 << PREFIX_BITS;
+
+    // A record keeps the hash from its third byte on; the low half of that byte is
+    // the last hex digit of the prefix, kept so a record is whole bytes
+    static final int SUFFIX_BYTES = 18;
+    static final int RECORD_SIZE = SUFFIX_BYTES + 4;
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final MappedRegion region;
+    private final long recordCount;
+    private final long directoryOffset;
+
+    private BreachRangeIndex(MappedRegion region) throws IOException {
+        this.region = region;
+        if (region.size() < HEADER_SIZE || region.getInt(0) != MAGIC) {
+            throw new IOException("Not a breach range index file");
+        }
+        if (region.getInt(4) != VERSION) {
+            throw new IOException("Unsupported breach range index version " + region.getInt(4));
+        }
+        recordCount = region.getLong(8);
+        directoryOffset = region.getLong(16);
+        if (directoryOffset < HEADER_SIZE + recordCount * RECORD_SIZE
+                || directoryOffset + 8L * (PREFIXES + 1) > region.size()) {
+            throw new IOException("Breach range index file is truncated");
+        }
+    }
+
+    // Method to open an index file written by BreachRangeIndexBuilder
+    public static BreachRangeIndex open(Path file) throws IOException {
+        return new BreachRangeIndex(MappedRegion.map(file));
+    }
+
+    // Method to get the number of distinct hashes in the index
+    public long size() {
+        return recordCount;
+    }
+
+    // Method to get the records of a 20-bit prefix, RECORD_SIZE bytes each, in hash order
+    // The buffer is a view of the mapping (read-only) whenever the range allows it
+    @Override
+    public ByteBuffer range(int prefix) {
+        if (prefix < 0 || prefix >= PREFIXES) {
+            throw new IllegalArgumentException("Prefix must have " + PREFIX_BITS + " bits");
+        }
+        long first = region.getLong(directoryOffset + 8L * prefix);
+        long end = region.getLong(directoryOffset + 8L * (prefix + 1));
+        return region.slice(HEADER_SIZE + first * RECORD_SIZE, (int) ((end - first) * RECORD_SIZE));
+    }
+
+    // Method to write a range as the usual text reply: one "SUFFIX:COUNT" line per hash,
+    // the suffix being the 35 hex characters after the prefix
+    public void writeRange(int prefix, Appendable out) throws IOException {
+        ByteBuffer records = range(prefix);
+        for (int record = records.position(); record < records.limit(); record += RECORD_SIZE) {
+            out.append(HEX[records.get(record) & 0x0F]);
+            for (int i = 1; i < SUFFIX_BYTES; i++) {
+                int b = records.get(record + i);
+                out.append(HEX[(b >>> 4) & 0x0F]).append(HEX[b & 0x0F]);
+            }
+            out.append(':').append(Integer.toUnsignedString(records.getInt(record + SUFFIX_BYTES))).append("\r\n");
+        }
+    }
+
+    // Method to parse five hex characters into a prefix, or return -1
+    public static int parsePrefix(CharSequence hex) {
+        if (hex.length() != PREFIX_BITS / 4) {
+            return -1;
+        }
+        int prefix = 0;
+        for (int i = 0; i < hex.length(); i++) {
+            int digit = Character.digit(hex.charAt(i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            prefix = prefix << 4 | digit;
+        }
+        return prefix;
+    }
+}
@@ -0,0 +1,235 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+public class BreachRangeIndexBuilder {
+    // This class turns a breach corpus into the file read by BreachRangeIndex. Lines are
+    // either "SHA1HEX:COUNT" (the format breach hash lists are published in) or plain
+    // passwords, which are hashed and counted. The same hash may appear any number
+    // of times; its counts are added up.
+    //
+    // Hundreds of millions of hashes do not fit in memory, so the corpus is read once
+    // and its hashes are spread over PARTITIONS temporary files by their first byte.
+    // Each file is then sorted in memory and appended to the index in turn. Memory use
+    // is one partition (about 1/256 of the corpus at 24 bytes per hash) plus the
+    // 8 MB prefix directory.
+
+    private static final int PARTITIONS = 256;
+
+    // A temporary record: the 20-byte hash, then the count
+    private static final int TEMPORARY_RECORD_SIZE = 24;
+
+    // Records of a partition are sorted by a long holding the top 40 bits of the hash
+    // (after the first byte, which the partition fixes) above the record's index
+    private static final int INDEX_BITS = 24;
+    private static final long MAX_PARTITION_RECORDS = 1L << INDEX_BITS;
+
+    // Method to build an index file from a corpus and return the number of distinct hashes
+    public static long build(Path corpus, Path index) throws IOException {
+        Path temporary = Files.createTempDirectory(index.toAbsolutePath().getParent(), "breach-range");
+        try {
+            partition(corpus, temporary);
+            return write(temporary, index);
+        } finally {
+            for (int p = 0; p < PARTITIONS; p++) {
+                Files.deleteIfExists(partitionFile(temporary, p));
+            }
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static Path partitionFile(Path directory, int partition) {
+        return directory.resolve("partition-" + partition);
+    }
+
+    // Method to hash every line and append it to the partition of its first byte
+    private static void partition(Path corpus, Path directory) throws IOException {
+        MessageDigest sha1;
+        try {
+            sha1 = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-1 is not available", e);
+        }
+        OutputStream[] outputs = new OutputStream[PARTITIONS];
+        byte[] record = new byte[TEMPORARY_RECORD_SIZE];
+        try (BufferedReader reader = Files.newBufferedReader(corpus, StandardCharsets.UTF_8)) {
+            for (int p = 0; p < PARTITIONS; p++) {
+                outputs[p] = new BufferedOutputStream(Files.newOutputStream(partitionFile(directory, p)), 1 << 16);
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                long count = parseHashLine(line, record);
+                if (count < 0) {
+                    sha1.update(line.getBytes(StandardCharsets.UTF_8));
+                    sha1.digest(record, 0, 20);
+                    count = 1;
+                }
+                int saturated = (int) Math.min(count, 0xFFFFFFFFL);
+                record[20] = (byte) saturated;
+                record[21] = (byte) (saturated >>> 8);
+                record[22] = (byte) (saturated >>> 16);
+                record[23] = (byte) (saturated >>> 24);
+                outputs[record[0] & 0xFF].write(record);
+            }
+        } catch (DigestException e) {
+            throw new IOException("Could not hash corpus line", e);
+        } finally {
+            for (OutputStream output : outputs) {
+                if (output != null) {
+                    output.close();
+                }
+            }
+        }
+    }
+
+    // Method to read a "SHA1HEX:COUNT" line into the first 20 bytes of record and
+    // return the count, or -1 if the line is not one
+    static long parseHashLine(String line, byte[] record) {
+        if (line.length() < 42 || line.charAt(40) != ':') {
+            return -1;
+        }
+        for (int i = 0; i < 20; i++) {
+            int high = Character.digit(line.charAt(2 * i), 16);
+            int low = Character.digit(line.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return -1;
+            }
+            record[i] = (byte) (high << 4 | low);
+        }
+        long count = 0;
+        for (int i = 41; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            count = Math.min(count * 10 + (c - '0'), 1L << 40);
+        }
+        return count;
+    }
+
+    // Method to sort the partitions one by one into the index and write its directory
+    private static long write(Path directory, Path index) throws IOException {
+        long[] starts = new long[BreachRangeIndex.PREFIXES + 1];
+        int nextPrefix = 0;
+        long records = 0;
+        long directoryOffset;
+        try (BinaryWriter out = new BinaryWriter(index)) {
+            // The header is filled in once the sizes are known
+            out.putInt(0).putInt(0).putLong(0).putLong(0).putLong(0);
+            byte[] suffix = new byte[BreachRangeIndex.SUFFIX_BYTES];
+            for (int p = 0; p < PARTITIONS; p++) {
+                Path file = partitionFile(directory, p);
+                long size = Files.size(file);
+                if (size / TEMPORARY_RECORD_SIZE > MAX_PARTITION_RECORDS) {
+                    throw new IOException("More than " + MAX_PARTITION_RECORDS
+                            + " hashes start with the same byte; the corpus is too large or not hashes");
+                }
+                ByteBuffer partition = ByteBuffer.wrap(Files.readAllBytes(file));
+                Files.delete(file);
+                int[] order = sort(partition);
+                partition.order(ByteOrder.LITTLE_ENDIAN);
+
+                int i = 0;
+                while (i < order.length) {
+                    int record = order[i] * TEMPORARY_RECORD_SIZE;
+                    long count = Integer.toUnsignedLong(partition.getInt(record + 20));
+                    int next = i + 1;
+                    while (next < order.length && compare(partition, record, order[next] * TEMPORARY_RECORD_SIZE) == 0) {
+                        count += Integer.toUnsignedLong(
+                                partition.getInt(order[next] * TEMPORARY_RECORD_SIZE + 20));
+                        next++;
+                    }
+                    int prefix = (partition.get(record) & 0xFF) << 12 | (partition.get(record + 1) & 0xFF) << 4
+                            | (partition.get(record + 2) & 0xFF) >>> 4;
+                    while (nextPrefix <= prefix) {
+                        starts[nextPrefix++] = records;
+                    }
+                    partition.get(record + 2, suffix);
+                    out.putBytes(suffix, 0, suffix.length).putInt((int) Math.min(count, 0xFFFFFFFFL));
+                    records++;
+                    i = next;
+                }
+            }
+            while (nextPrefix < starts.length) {
+                starts[nextPrefix++] = records;
+            }
+            out.align(8);
+            directoryOffset = out.position();
+            for (long start : starts) {
+                out.putLong(start);
+            }
+        }
+        ByteBuffer header = ByteBuffer.allocate(BreachRangeIndex.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(BreachRangeIndex.MAGIC).putInt(BreachRangeIndex.VERSION)
+                .putLong(records).putLong(directoryOffset).putLong(0).flip();
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(false);
+        }
+        return records;
+    }
+
+    // Method to get the record numbers of a partition in hash order
+    private static int[] sort(ByteBuffer partition) {
+        partition.order(ByteOrder.BIG_ENDIAN);
+        int count = partition.capacity() / TEMPORARY_RECORD_SIZE;
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            // Bytes 1..5 of the hash, then the record number; flipping the top bit
+            // makes signed order the same as unsigned order
+            long top = partition.getLong(i * TEMPORARY_RECORD_SIZE) << 8 >>> (64 - 40);
+            keys[i] = (top << INDEX_BITS | i) ^ Long.MIN_VALUE;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = (int) (keys[i] & (MAX_PARTITION_RECORDS - 1));
+        }
+        // Records that share those 40 bits are put in full order; such runs are short
+        int start = 0;
+        for (int i = 1; i <= count; i++) {
+            if (i == count || (keys[i] >>> INDEX_BITS) != (keys[start] >>> INDEX_BITS)) {
+                for (int j = start + 1; j < i; j++) {
+                    int value = order[j];
+                    int k = j - 1;
+                    while (k >= start && compare(partition, order[k] * TEMPORARY_RECORD_SIZE,
+                            value * TEMPORARY_RECORD_SIZE) > 0) {
+                        order[k + 1] = order[k];
+                        k--;
+                    }
+                    order[k + 1] = value;
+                }
+                start = i;
+            }
+        }
+        return order;
+    }
+
+    // Method to compare the hashes of two temporary records as unsigned bytes
+    private static int compare(ByteBuffer partition, int a, int b) {
+        for (int i = 0; i < 20; i++) {
+            int difference = (partition.get(a + i) & 0xFF) - (partition.get(b + i) & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,115 @@
+import java.util.Arrays;
+
+public final class CharacterClassCounter {
+    // This class keeps running character class counts for text that is edited in
+    // place, such as the GUI password field. Each edit only looks at the characters
+    // that changed. The class of every position is remembered (not the character
+    // itself) so a removal can be undone without seeing the removed text again.
+    // A surrogate pair inserted in one edit counts once, at its high half; a pair
+    // split across two edits counts as neither until the full analysis runs.
+
+    private final CharacterClasses table;
+    private byte[] classes = new byte[32];
+    private int length;
+    private int uppercase;
+    private int lowercase;
+    private int digits;
+    private int special;
+
+    public CharacterClassCounter() {
+        this(CharacterClasses.DEFAULT);
+    }
+
+    public CharacterClassCounter(CharacterClasses table) {
+        this.table = table;
+    }
+
+    // Method to account for text inserted at offset
+    public void insert(int offset, CharSequence text) {
+        int count = text.length();
+        if (offset < 0 || offset > length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length);
+        }
+        if (length + count > classes.length) {
+            classes = Arrays.copyOf(classes, Math.max(classes.length * 2, length + count));
+        }
+        System.arraycopy(classes, offset, classes, offset + count, length - offset);
+        for (int i = 0; i < count; i++) {
+            char c = text.charAt(i);
+            int bit = 0;
+            if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bit = table.classBit(Character.toCodePoint(c, text.charAt(i + 1)));
+            } else if (!Character.isSurrogate(c)) {
+                bit = table.classBit(c);
+            }
+            classes[offset + i] = (byte) bit;
+            add(bit, 1);
+        }
+        length += count;
+    }
+
+    // Method to account for count characters removed at offset
+    public void remove(int offset, int count) {
+        if (offset < 0 || count < 0 || offset + count > length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", count " + count + ", length " + length);
+        }
+        for (int i = offset; i < offset + count; i++) {
+            add(classes[i], -1);
+        }
+        System.arraycopy(classes, offset + count, classes, offset, length - offset - count);
+        length -= count;
+    }
+
+    public void clear() {
+        length = 0;
+        uppercase = 0;
+        lowercase = 0;
+        digits = 0;
+        special = 0;
+    }
+
+    private void add(int bit, int delta) {
+        switch (bit) {
+            case PasswordAnalysis.UPPERCASE: uppercase += delta; break;
+            case PasswordAnalysis.LOWERCASE: lowercase += delta; break;
+            case PasswordAnalysis.DIGIT: digits += delta; break;
+            case PasswordAnalysis.SPECIAL: special += delta; break;
+            default: break;
+        }
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getUppercaseCount() {
+        return uppercase;
+    }
+
+    public int getLowercaseCount() {
+        return lowercase;
+    }
+
+    public int getDigitCount() {
+        return digits;
+    }
+
+    public int getSpecialCount() {
+        return special;
+    }
+
+    public int getClassMask() {
+        int mask = 0;
+        if (uppercase > 0) mask |= PasswordAnalysis.UPPERCASE;
+        if (lowercase > 0) mask |= PasswordAnalysis.LOWERCASE;
+        if (digits > 0) mask |= PasswordAnalysis.DIGIT;
+        if (special > 0) mask |= PasswordAnalysis.SPECIAL;
+        return mask;
+    }
+
+    // Method to get the score the text would have if it is not a common password
+    // The dictionary check is left to the full analysis
+    public int getScoreBeforeDictionary() {
+        return PasswordAnalysis.calculateScore(length, getClassMask(), false);
+    }
+}
@@ -0,0 +1,207 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+public final class CharacterClasses {
+    // This class decides which character class every Unicode code point belongs to
+    // All answers come from tables built once up front: a flat table with one byte
+    // per BMP char, and for the supplementary planes a two-level table (256 code
+    // point blocks, identical blocks stored once). Surrogate chars are marked in the
+    // BMP table so callers only decode a code point when they actually meet one;
+    // the supplementary table is only built the first time that happens.
+    //
+    // Letters and digits follow Character.isUpperCase/isLowerCase/isDigit. Which other
+    // characters are "special" is configurable: a set of ASCII characters, plus the
+    // Unicode general categories (e.g. Po, Sm, So) that count outside ASCII.
+
+    // Class codes stored in the tables; PasswordAnalysis bits are 1 << (code - 1)
+    static final byte OTHER = 0;
+    static final byte UPPERCASE = 1;
+    static final byte LOWERCASE = 2;
+    static final byte DIGIT = 3;
+    static final byte SPECIAL = 4;
+    static final byte SURROGATE = 5;
+
+    public static final String DEFAULT_ASCII_SPECIALS = "!@#$%^&*()_+-=[]{}|;:,.<>?";
+
+    // Punctuation and symbols
+    public static final String DEFAULT_SPECIAL_CATEGORIES = "P,S";
+
+    // Two-letter names of the Character.getType() values, indexed by type
+    private static final String[] CATEGORY_NAMES = {
+        "Cn", "Lu", "Ll", "Lt", "Lm", "Lo", "Mn", "Me", "Mc", "Nd", "Nl", "No", "Zs", "Zl", "Zp", "Cc",
+        "Cf", "", "Co", "Cs", "Pd", "Ps", "Pe", "Pc", "Po", "Sm", "Sc", "Sk", "So", "Pi", "Pf"
+    };
+
+    private static final int BLOCK_SHIFT = 8;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int SUPPLEMENTARY_BLOCKS = (Character.MAX_CODE_POINT + 1 - Character.MIN_SUPPLEMENTARY_CODE_POINT) >>> BLOCK_SHIFT;
+
+    public static final CharacterClasses DEFAULT = new CharacterClasses(DEFAULT_ASCII_SPECIALS, DEFAULT_SPECIAL_CATEGORIES);
+
+    private final String asciiSpecials;
+    private final String specialCategories;
+    private final long categoryMask;
+
+    // Flat BMP table, read directly by PasswordAnalyzer's loops
+    final byte[] bmp;
+    private volatile SupplementaryTable supplementary;
+
+    // asciiSpecials: the ASCII characters that count as special
+    // specialCategories: comma-separated general categories that count as special
+    // outside ASCII; a single letter such as "P" stands for all its categories
+    public CharacterClasses(String asciiSpecials, String specialCategories) {
+        this.asciiSpecials = asciiSpecials;
+        this.specialCategories = specialCategories;
+        this.categoryMask = parseCategories(specialCategories);
+        for (int i = 0; i < asciiSpecials.length(); i++) {
+            if (asciiSpecials.charAt(i) >= 0x80) {
+                throw new IllegalArgumentException("Not an ASCII character: " + asciiSpecials.charAt(i));
+            }
+        }
+
+        bmp = new byte[Character.MAX_VALUE + 1];
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            bmp[c] = Character.isSurrogate((char) c) ? SURROGATE : classify(c);
+        }
+    }
+
+    private synchronized SupplementaryTable supplementary() {
+        SupplementaryTable table = supplementary;
+        if (table == null) {
+            table = buildSupplementary();
+            supplementary = table;
+        }
+        return table;
+    }
+
+    private SupplementaryTable buildSupplementary() {
+        short[] blockIndex = new short[SUPPLEMENTARY_BLOCKS];
+        Map<String, Integer> distinct = new HashMap<>();
+        byte[] all = new byte[SUPPLEMENTARY_BLOCKS * BLOCK_SIZE];
+        byte[] block = new byte[BLOCK_SIZE];
+        for (int b = 0; b < SUPPLEMENTARY_BLOCKS; b++) {
+            int first = Character.MIN_SUPPLEMENTARY_CODE_POINT + (b << BLOCK_SHIFT);
+            for (int i = 0; i < BLOCK_SIZE; i++) {
+                block[i] = classify(first + i);
+            }
+            // Class codes are below 0x80, so ISO-8859-1 maps each byte to one char
+            String key = new String(block, StandardCharsets.ISO_8859_1);
+            Integer slot = distinct.get(key);
+            if (slot == null) {
+                slot = distinct.size();
+                distinct.put(key, slot);
+                System.arraycopy(block, 0, all, slot << BLOCK_SHIFT, BLOCK_SIZE);
+            }
+            blockIndex[b] = (short) (int) slot;
+        }
+        return new SupplementaryTable(blockIndex, Arrays.copyOf(all, distinct.size() << BLOCK_SHIFT));
+    }
+
+    // Method to read special.ascii and special.categories from a policy file
+    // Missing keys keep their defaults
+    public static CharacterClasses load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        String ascii = properties.getProperty("special.ascii");
+        String categories = properties.getProperty("special.categories");
+        if (ascii == null && categories == null) {
+            return DEFAULT;
+        }
+        try {
+            return new CharacterClasses(ascii == null ? DEFAULT_ASCII_SPECIALS : ascii.trim(),
+                    categories == null ? DEFAULT_SPECIAL_CATEGORIES : categories.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid policy file " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static long parseCategories(String categories) {
+        long mask = 0;
+        for (String token : categories.split(",")) {
+            String name = token.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            boolean found = false;
+            for (int type = 0; type < CATEGORY_NAMES.length; type++) {
+                String category = CATEGORY_NAMES[type];
+                if (!category.isEmpty() && (category.equals(name)
+                        || (name.length() == 1 && category.charAt(0) == name.charAt(0)))) {
+                    mask |= 1L << type;
+                    found = true;
+                }
+            }
+            if (!found) {
+                throw new IllegalArgumentException("Unknown character category: " + name);
+            }
+        }
+        return mask;
+    }
+
+    private byte classify(int codePoint) {
+        int type = Character.getType(codePoint);
+        // Most supplementary code points are unassigned or private use, which have
+        // no case and no digit value; only the category check applies to them
+        if (type != Character.UNASSIGNED && type != Character.PRIVATE_USE) {
+            if (Character.isUpperCase(codePoint)) return UPPERCASE;
+            if (Character.isLowerCase(codePoint)) return LOWERCASE;
+            if (Character.isDigit(codePoint)) return DIGIT;
+        }
+        if (codePoint < 0x80) {
+            return asciiSpecials.indexOf(codePoint) >= 0 ? SPECIAL : OTHER;
+        }
+        return (categoryMask & (1L << type)) != 0 ? SPECIAL : OTHER;
+    }
+
+    // Method to get the class code of a code point; lone surrogates are OTHER
+    int classOf(int codePoint) {
+        if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            int charClass = bmp[codePoint];
+            return charClass == SURROGATE ? OTHER : charClass;
+        }
+        SupplementaryTable table = supplementary;
+        if (table == null) {
+            table = supplementary();
+        }
+        int offset = codePoint - Character.MIN_SUPPLEMENTARY_CODE_POINT;
+        return table.blocks[(table.blockIndex[offset >>> BLOCK_SHIFT] << BLOCK_SHIFT) | (offset & (BLOCK_SIZE - 1))];
+    }
+
+    // Method to get the PasswordAnalysis bit of a code point, or 0 if it is in no class
+    int classBit(int codePoint) {
+        int charClass = classOf(codePoint);
+        return charClass == OTHER ? 0 : 1 << (charClass - 1);
+    }
+
+    public String getAsciiSpecials() {
+        return asciiSpecials;
+    }
+
+    public String getSpecialCategories() {
+        return specialCategories;
+    }
+
+    // Method to get how many distinct 256 code point blocks the supplementary table holds
+    int supplementaryBlockCount() {
+        return supplementary().blocks.length >>> BLOCK_SHIFT;
+    }
+
+    private static final class SupplementaryTable {
+        final short[] blockIndex;
+        final byte[] blocks;
+
+        SupplementaryTable(short[] blockIndex, byte[] blocks) {
+            this.blockIndex = blockIndex;
+            this.blocks = blocks;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CheckDaemon {
+    // This class answers password checks on a Unix domain socket for local callers such
+    // as a login tier, so a check costs neither JVM startup nor HTTP parsing.
+    //
+    // Protocol (big-endian). A client may send any number of requests without waiting;
+    // responses come back on the same connection in request order.
+    //   request:  int frameLength (bytes that follow), byte fieldCount (1 to 4),
+    //             fieldCount x (short byteLength, UTF-8 bytes): the password, then
+    //             optionally the username, email address and old password
+    //   response: int frameLength (always 8), byte status, byte score, byte level,
+    //             byte reserved, int failures
+    // level is 0 (VERY WEAK) to 3 (STRONG); failures holds the CompiledPolicy RULE_ bits
+    // of every rule the password breaks (0 means compliant). The similarity rule is
+    // checked when context fields are sent. A malformed request gets status
+    // BAD_REQUEST and the connection stays usable; a frame longer than MAX_FRAME_BYTES
+    // gets the same answer and the connection is closed, since it cannot be skipped
+    // safely.
+    //
+    // Each connection has its own platform thread that reads whatever has arrived,
+    // answers every complete request in it and sends the answers with one write.
+    // Connections are few and long-lived, and a thread blocked in read wakes up faster
+    // than a virtual thread parked on the poller. Passwords are decoded into the
+    // connection's own char buffer and wiped after every check.
+
+    public static final int STATUS_OK = 0;
+    public static final int STATUS_BAD_REQUEST = 1;
+
+    static final int RESPONSE_BYTES = 12;
+    static final int MAX_FIELDS = 4;
+
+    // Largest request accepted, length prefix excluded
+    static final int MAX_FRAME_BYTES = 16 << 10;
+
+    private static final int BUFFER_BYTES = 64 << 10;
+
+    private final PasswordAnalyzer analyzer;
+    private final SecurityPolicy policy;
+    private final AtomicInteger connections = new AtomicInteger();
+    private ServerSocketChannel server;
+    private Path socket;
+
+    public CheckDaemon(PasswordAnalyzer analyzer, SecurityPolicy policy) {
+        this.analyzer = analyzer;
+        this.policy = policy;
+    }
+
+    // Method to start listening on a socket file, replacing a stale one left by an
+    // earlier run; connections are accepted on a background thread
+    public void start(Path socket) throws IOException {
+        Files.deleteIfExists(socket);
+        this.socket = socket;
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socket));
+        Thread acceptor = new Thread(this::acceptLoop, "check-daemon-accept");
+        acceptor.start();
+    }
+
+    // Method to stop accepting connections and remove the socket file; open
+    // connections end when their clients close them
+    public void stop() throws IOException {
+        if (server != null) {
+            server.close();
+            Files.deleteIfExists(socket);
+        }
+    }
+
+    private void acceptLoop() {
+        try {
+            while (true) {
+                SocketChannel channel = server.accept();
+                Thread thread = new Thread(() -> serve(channel), "check-daemon-" + connections.incrementAndGet());
+                thread.setDaemon(true);
+                thread.start();
+            }
+        } catch (ClosedChannelException e) {
+            // Stopped
+        } catch (IOException e) {
+            System.err.println("Check daemon stopped accepting connections: " + e.getMessage());
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        Connection connection = new Connection();
+        try (channel) {
+            ByteBuffer in = connection.in;
+            ByteBuffer out = connection.out;
+            while (channel.read(in) >= 0) {
+                in.flip();
+                boolean open = true;
+                while (open && in.remaining() >= 4) {
+                    int frameLength = in.getInt(in.position());
+                    if (frameLength < 0 || frameLength > MAX_FRAME_BYTES) {
+                        putResponse(out, STATUS_BAD_REQUEST, 0, 0, 0);
+                        open = false;
+                    } else if (in.remaining() - 4 >= frameLength) {
+                        int start = in.position() + 4;
+                        connection.check(in, start, frameLength, out);
+                        in.position(start + frameLength);
+                        if (out.remaining() < RESPONSE_BYTES) {
+                            flush(channel, out);
+                        }
+                    } else {
+                        break;
+                    }
+                }
+                in.compact();
+                flush(channel, out);
+                if (!open) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // The client went away
+        } finally {
+            connection.wipe();
+        }
+    }
+
+    private static void flush(SocketChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    static void putResponse(ByteBuffer out, int status, int score, int level, int failures) {
+        out.putInt(RESPONSE_BYTES - 4).put((byte) status).put((byte) score).put((byte) level).put((byte) 0)
+           .putInt(failures);
+    }
+
+    // Method to get the level code sent for a score: 0 (VERY WEAK) to 3 (STRONG), i.e.
+    // PasswordAnalyzer.strengthLevelIndex counted from the weakest end, as the protocol has it
+    static int levelCode(int score) {
+        return PasswordAnalyzer.STRENGTH_LEVELS - 1 - PasswordAnalyzer.strengthLevelIndex(score);
+    }
+
+    // The buffers of one connection, reused for every request on it
+    private final class Connection {
+        final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        // UTF-8 never needs more chars than bytes, so one frame always fits
+        private final char[] chars = new char[MAX_FRAME_BYTES];
+        // Views of the decoded fields in chars, and the number of chars in use
+        private final CharBuffer[] fields = new CharBuffer[MAX_FIELDS];
+        private final CharSequence[][] contexts = new CharSequence[MAX_FIELDS][];
+        private int used;
+
+        Connection() {
+            for (int i = 0; i < MAX_FIELDS; i++) {
+                fields[i] = CharBuffer.wrap(chars);
+                contexts[i] = new CharSequence[i];
+            }
+        }
+
+        // Method to answer the request in bytes [start, start + length) of in
+        void check(ByteBuffer in, int start, int length, ByteBuffer out) {
+            try {
+                int fieldCount = decode(in, start, length);
+                if (fieldCount < 0) {
+                    putResponse(out, STATUS_BAD_REQUEST, 0, 0, 0);
+                } else {
+                    check(fieldCount, out);
+                }
+            } finally {
+                Arrays.fill(chars, 0, used, '\0');
+                used = 0;
+            }
+        }
+
+        private void check(int fieldCount, ByteBuffer out) {
+            CharBuffer password = fields[0];
+            PasswordAnalysis analysis = analyzer.analyze(chars, 0, password.length());
+            CompiledPolicy compiled = policy.current();
+            int failures = compiled.failures(analysis);
+            ContextSimilarity similarity = compiled.getSimilarity();
+            if (fieldCount > 1 && similarity != null) {
+                CharSequence[] context = contexts[fieldCount - 1];
+                for (int i = 1; i < fieldCount; i++) {
+                    context[i - 1] = fields[i];
+                }
+                if (similarity.isSimilar(password, context)) {
+                    failures |= CompiledPolicy.RULE_SIMILAR;
+                }
+                Arrays.fill(context, null);
+            }
+            int score = analysis.getScore();
+            putResponse(out, STATUS_OK, score, levelCode(score), failures);
+        }
+
+        // Method to decode the fields of a request into chars, one after the other, and
+        // return how many there are, or -1 if the request is malformed
+        private int decode(ByteBuffer in, int start, int length) {
+            if (length < 1) {
+                return -1;
+            }
+            int fieldCount = in.get(start);
+            if (fieldCount < 1 || fieldCount > MAX_FIELDS) {
+                return -1;
+            }
+            int position = start + 1;
+            int end = start + length;
+            for (int f = 0; f < fieldCount; f++) {
+                if (end - position < 2) {
+                    return -1;
+                }
+                int bytes = in.getShort(position) & 0xFFFF;
+                position += 2;
+                if (end - position < bytes) {
+                    return -1;
+                }
+                int from = used;
+                if (!decodeUtf8(in, position, bytes)) {
+                    return -1;
+                }
+                fields[f].clear().position(from).limit(used);
+                position += bytes;
+            }
+            return position == end ? fieldCount : -1;
+        }
+
+        // Method to decode bytes and append them to chars; ASCII is copied directly.
+        // Returns false for malformed UTF-8
+        private boolean decodeUtf8(ByteBuffer in, int position, int bytes) {
+            int i = 0;
+            while (i < bytes) {
+                byte b = in.get(position + i);
+                if (b < 0) {
+                    break;
+                }
+                chars[used++] = (char) b;
+                i++;
+            }
+            if (i == bytes) {
+                return true;
+            }
+            CharBuffer target = CharBuffer.wrap(chars, used, chars.length - used);
+            CoderResult result = decoder.reset().decode(in.slice(position + i, bytes - i), target, true);
+            boolean valid = !result.isError() && !decoder.flush(target).isError();
+            // Count what was decoded either way, so that it is wiped
+            used = target.position();
+            return valid;
+        }
+
+        void wipe() {
+            Arrays.fill(chars, '\0');
+            in.clear();
+            while (in.hasRemaining()) {
+                in.put((byte) 0);
+            }
+        }
+    }
+}
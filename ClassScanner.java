@@ -0,0 +1,31 @@
+import java.nio.ByteBuffer;
+
+public interface ClassScanner {
+    // This interface finds the character classes of many short passwords packed into
+    // one buffer, such as a batch of lines from a mapped audit file. Each record is a
+    // (start, length) pair in lines; records are in ascending order and do not overlap.
+    // Only ASCII records are classified here, anything else has to be decoded first.
+
+    // Stored for a record that holds a byte outside ASCII
+    int NOT_ASCII = -1;
+
+    // Method to store the PasswordAnalysis class bits of records 0..count-1 in masks
+    void scan(ByteBuffer buffer, int[] lines, int count, int[] masks);
+
+    // Method to get the fastest scanner this JVM can run: the Vector API one when the
+    // jdk.incubator.vector module is present (java --add-modules jdk.incubator.vector)
+    // and the CPU has wide enough vectors, the scalar one otherwise
+    // -Dpassword.vector=false forces the scalar scanner
+    static ClassScanner create(CharacterClasses classes) {
+        if (Boolean.parseBoolean(System.getProperty("password.vector", "true"))) {
+            try {
+                return (ClassScanner) Class.forName("VectorClassScanner")
+                        .getConstructor(CharacterClasses.class)
+                        .newInstance(classes);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Module not added or vectors too narrow: fall through
+            }
+        }
+        return new ScalarClassScanner(classes);
+    }
+}
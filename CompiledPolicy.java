@@ -0,0 +1,300 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+public final class CompiledPolicy {
+    // This class is one immutable version of the password policy, compiled into an
+    // ordered rule chain. Cheap rules run first (length, then the character classes,
+    // then the score, then the dictionary lookup) and evaluation stops at the first
+    // failure. SecurityPolicy swaps whole instances when the policy file changes.
+
+    // Rule ids, one bit each so failures can also be reported as a mask
+    public static final int RULE_LENGTH = 1;
+    public static final int RULE_UPPERCASE = 2;
+    public static final int RULE_LOWERCASE = 4;
+    public static final int RULE_NUMBERS = 8;
+    public static final int RULE_SPECIAL = 16;
+    public static final int RULE_COMMON = 32;
+    public static final int RULE_SCORE = 64;
+    public static final int RULE_SIMILAR = 128;
+
+    // Evaluation order: by cost, and within the same cost the rule that fails
+    // most often in real password sets first (special characters are the most
+    // commonly missing class, lowercase the least). The similarity rule only runs
+    // when context strings are passed in.
+    private static final int[] ORDER = {
+        RULE_LENGTH, RULE_SPECIAL, RULE_NUMBERS, RULE_UPPERCASE, RULE_LOWERCASE, RULE_SCORE, RULE_SIMILAR,
+        RULE_COMMON
+    };
+
+    // Defaults for the similarity rule: within two edits of, or containing, a context string
+    public static final int DEFAULT_SIMILARITY_DISTANCE = 2;
+
+    private static final CharSequence[] NO_CONTEXT = new CharSequence[0];
+
+    private final int minimumLength;
+    private final boolean requireUppercase;
+    private final boolean requireLowercase;
+    private final boolean requireNumbers;
+    private final boolean requireSpecialChars;
+    private final boolean rejectCommon;
+    private final int minimumScore;
+    // null when the similarity rule is off
+    private final ContextSimilarity similarity;
+    private final int[] chain;
+
+    public CompiledPolicy(int minimumLength, boolean requireUppercase, boolean requireLowercase,
+                          boolean requireNumbers, boolean requireSpecialChars, boolean rejectCommon,
+                          int minimumScore) {
+        this(minimumLength, requireUppercase, requireLowercase, requireNumbers, requireSpecialChars,
+                rejectCommon, minimumScore, new ContextSimilarity(DEFAULT_SIMILARITY_DISTANCE, true));
+    }
+
+    public CompiledPolicy(int minimumLength, boolean requireUppercase, boolean requireLowercase,
+                          boolean requireNumbers, boolean requireSpecialChars, boolean rejectCommon,
+                          int minimumScore, ContextSimilarity similarity) {
+        this.minimumLength = minimumLength;
+        this.requireUppercase = requireUppercase;
+        this.requireLowercase = requireLowercase;
+        this.requireNumbers = requireNumbers;
+        this.requireSpecialChars = requireSpecialChars;
+        this.rejectCommon = rejectCommon;
+        this.minimumScore = minimumScore;
+        this.similarity = similarity;
+
+        int enabled = (minimumLength > 0 ? RULE_LENGTH : 0)
+                | (requireUppercase ? RULE_UPPERCASE : 0)
+                | (requireLowercase ? RULE_LOWERCASE : 0)
+                | (requireNumbers ? RULE_NUMBERS : 0)
+                | (requireSpecialChars ? RULE_SPECIAL : 0)
+                | (rejectCommon ? RULE_COMMON : 0)
+                | (minimumScore > 0 ? RULE_SCORE : 0)
+                | (similarity != null ? RULE_SIMILAR : 0);
+        int[] rules = new int[Integer.bitCount(enabled)];
+        int count = 0;
+        for (int rule : ORDER) {
+            if ((enabled & rule) != 0) {
+                rules[count++] = rule;
+            }
+        }
+        this.chain = rules;
+    }
+
+    // Method to load a policy from a properties file; missing keys keep their defaults
+    public static CompiledPolicy load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        try {
+            return new CompiledPolicy(
+                    intValue(properties, "minimum.length", SecurityPolicy.MINIMUM_LENGTH),
+                    booleanValue(properties, "require.uppercase", SecurityPolicy.REQUIRE_UPPERCASE),
+                    booleanValue(properties, "require.lowercase", SecurityPolicy.REQUIRE_LOWERCASE),
+                    booleanValue(properties, "require.numbers", SecurityPolicy.REQUIRE_NUMBERS),
+                    booleanValue(properties, "require.special", SecurityPolicy.REQUIRE_SPECIAL_CHARS),
+                    booleanValue(properties, "reject.common", true),
+                    intValue(properties, "minimum.score", SecurityPolicy.MINIMUM_SCORE_REQUIRED),
+                    booleanValue(properties, "reject.similar", true)
+                            ? new ContextSimilarity(
+                                    intValue(properties, "similarity.max.distance", DEFAULT_SIMILARITY_DISTANCE),
+                                    booleanValue(properties, "similarity.reject.substring", true))
+                            : null);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid policy file " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static int intValue(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static boolean booleanValue(Properties properties, String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        value = value.trim();
+        if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("yes")) return true;
+        if (value.equalsIgnoreCase("false") || value.equalsIgnoreCase("no")) return false;
+        throw new IllegalArgumentException(key + " must be true or false");
+    }
+
+    // Method to find the first rule a password breaks, or 0 if it complies
+    // Only the work the chain reaches is done: a short password never gets scanned
+    // and the dictionary is only consulted when the other rules have passed
+    public int firstFailure(CharSequence password, PasswordAnalyzer analyzer) {
+        return firstFailure(password, null, 0, password.length(), analyzer, NO_CONTEXT);
+    }
+
+    // Same, also checking the password against what the user is known by: username,
+    // email address, the password being replaced (null entries are skipped)
+    public int firstFailure(CharSequence password, PasswordAnalyzer analyzer, CharSequence... context) {
+        return firstFailure(password, null, 0, password.length(), analyzer, context);
+    }
+
+    public int firstFailure(char[] password, int offset, int length, PasswordAnalyzer analyzer) {
+        return firstFailure(null, password, offset, length, analyzer, NO_CONTEXT);
+    }
+
+    // Exactly one of text and chars is set; context is only passed with text
+    private int firstFailure(CharSequence text, char[] chars, int offset, int length, PasswordAnalyzer analyzer,
+                             CharSequence[] context) {
+        int classes = -1;
+        int common = -1;
+        for (int rule : chain) {
+            switch (rule) {
+                case RULE_LENGTH:
+                    if (length < minimumLength) return rule;
+                    break;
+                case RULE_UPPERCASE:
+                case RULE_LOWERCASE:
+                case RULE_NUMBERS:
+                case RULE_SPECIAL:
+                    if (classes < 0) classes = classesOf(text, chars, offset, length, analyzer);
+                    if ((classes & classBit(rule)) == 0) return rule;
+                    break;
+                case RULE_SCORE:
+                    if (classes < 0) classes = classesOf(text, chars, offset, length, analyzer);
+                    if (PasswordAnalysis.calculateScore(length, classes, false) < minimumScore) return rule;
+                    if (PasswordAnalysis.calculateScore(length, classes, true) < minimumScore) {
+                        // Only the common-password penalty can still fail this rule
+                        if (common < 0) common = isCommon(text, chars, offset, length, analyzer);
+                        if (common == 1) return rule;
+                    }
+                    break;
+                case RULE_SIMILAR:
+                    if (context.length > 0 && similarity.isSimilar(text, context)) return rule;
+                    break;
+                case RULE_COMMON:
+                    if (common < 0) common = isCommon(text, chars, offset, length, analyzer);
+                    if (common == 1) return rule;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return 0;
+    }
+
+    private static int classesOf(CharSequence text, char[] chars, int offset, int length, PasswordAnalyzer analyzer) {
+        return text != null ? analyzer.characterClasses(text) : analyzer.characterClasses(chars, offset, length);
+    }
+
+    private static int isCommon(CharSequence text, char[] chars, int offset, int length, PasswordAnalyzer analyzer) {
+        boolean common = text != null
+                ? analyzer.isCommonPassword(text) : analyzer.isCommonPassword(chars, offset, length);
+        return common ? 1 : 0;
+    }
+
+    // Method to find the first rule an analyzed password breaks, or 0 if it complies
+    public int firstFailure(PasswordAnalysis analysis) {
+        return firstFailure(analysis.getLength(), analysis.getClassMask(), analysis.isCommonPassword());
+    }
+
+    // Same, from the three facts the rules look at; classMask holds PasswordAnalysis bits
+    // An analysis carries no text, so the similarity rule always passes here
+    public int firstFailure(int length, int classMask, boolean commonPassword) {
+        for (int rule : chain) {
+            if (fails(rule, length, classMask, commonPassword)) {
+                return rule;
+            }
+        }
+        return 0;
+    }
+
+    // Method to get every rule an analyzed password breaks, as a mask of RULE_ bits
+    public int failures(PasswordAnalysis analysis) {
+        return failures(analysis.getLength(), analysis.getClassMask(), analysis.isCommonPassword());
+    }
+
+    // Same, from the three facts the rules look at, as batch audits scan them
+    public int failures(int length, int classMask, boolean commonPassword) {
+        int failures = 0;
+        for (int rule : chain) {
+            if (fails(rule, length, classMask, commonPassword)) {
+                failures |= rule;
+            }
+        }
+        return failures;
+    }
+
+    private boolean fails(int rule, int length, int classMask, boolean commonPassword) {
+        switch (rule) {
+            case RULE_LENGTH: return length < minimumLength;
+            case RULE_UPPERCASE:
+            case RULE_LOWERCASE:
+            case RULE_NUMBERS:
+            case RULE_SPECIAL: return (classMask & classBit(rule)) == 0;
+            case RULE_COMMON: return commonPassword;
+            case RULE_SCORE: return PasswordAnalysis.calculateScore(length, classMask, commonPassword) < minimumScore;
+            default: return false;
+        }
+    }
+
+    private static int classBit(int rule) {
+        switch (rule) {
+            case RULE_UPPERCASE: return PasswordAnalysis.UPPERCASE;
+            case RULE_LOWERCASE: return PasswordAnalysis.LOWERCASE;
+            case RULE_NUMBERS: return PasswordAnalysis.DIGIT;
+            default: return PasswordAnalysis.SPECIAL;
+        }
+    }
+
+    // Method to get a short name for a rule id
+    public static String ruleName(int rule) {
+        switch (rule) {
+            case RULE_LENGTH: return "length";
+            case RULE_UPPERCASE: return "uppercase";
+            case RULE_LOWERCASE: return "lowercase";
+            case RULE_NUMBERS: return "numbers";
+            case RULE_SPECIAL: return "special";
+            case RULE_COMMON: return "common";
+            case RULE_SCORE: return "score";
+            case RULE_SIMILAR: return "similar";
+            default: return "none";
+        }
+    }
+
+    // The enabled rules in evaluation order, for metrics; callers must not modify it
+    int[] chain() {
+        return chain;
+    }
+
+    public int getMinimumLength() {
+        return minimumLength;
+    }
+
+    public boolean requiresUppercase() {
+        return requireUppercase;
+    }
+
+    public boolean requiresLowercase() {
+        return requireLowercase;
+    }
+
+    public boolean requiresNumbers() {
+        return requireNumbers;
+    }
+
+    public boolean requiresSpecialChars() {
+        return requireSpecialChars;
+    }
+
+    public boolean rejectsCommon() {
+        return rejectCommon;
+    }
+
+    public int getMinimumScore() {
+        return minimumScore;
+    }
+
+    // null when the similarity rule is off
+    public ContextSimilarity getSimilarity() {
+        return similarity;
+    }
+}
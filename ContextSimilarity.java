@@ -0,0 +1,268 @@
+import java.util.Arrays;
+
+public final class ContextSimilarity {
+    // This class decides whether a password is too close to strings the user is known
+    // by: the username, the email address, the password being replaced. A password is
+    // too close when it contains one of them or is within maxDistance edits of it
+    // (Levenshtein distance, letters compared without case).
+    // The distance uses Myers' bit-parallel algorithm: one column of the edit matrix is
+    // kept as bit vectors in two longs, so each character of the other string costs a
+    // dozen word operations, and it stops as soon as the limit can no longer be met.
+
+    // Strings of at most this many chars fit in one word of bit vectors
+    private static final int WORD = 64;
+
+    // Shorter context strings are ignored: containing "jo" says nothing about a password
+    public static final int MINIMUM_CONTEXT_LENGTH = 3;
+
+    // Reused per thread: the folded password and its character masks
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final int maxDistance;
+    private final boolean rejectSubstring;
+
+    public ContextSimilarity(int maxDistance, boolean rejectSubstring) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("similarity.max.distance must not be negative");
+        }
+        this.maxDistance = maxDistance;
+        this.rejectSubstring = rejectSubstring;
+    }
+
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    public boolean rejectsSubstring() {
+        return rejectSubstring;
+    }
+
+    // Method to check a password against every context string; null entries are skipped
+    // For an email address the part before the @ is checked as well
+    public boolean isSimilar(CharSequence password, CharSequence... context) {
+        Scratch scratch = SCRATCH.get();
+        try {
+            scratch.reset(password);
+            for (CharSequence value : context) {
+                if (value == null) {
+                    continue;
+                }
+                if (isSimilar(scratch, value, 0, value.length())) {
+                    return true;
+                }
+                int at = indexOf(value, '@');
+                if (at > 0 && isSimilar(scratch, value, 0, at)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            scratch.clear();
+        }
+    }
+
+    private boolean isSimilar(Scratch scratch, CharSequence value, int start, int end) {
+        if (end - start < MINIMUM_CONTEXT_LENGTH) {
+            return false;
+        }
+        if (rejectSubstring && scratch.contains(value, start, end)) {
+            return true;
+        }
+        return scratch.distance(value, start, end, maxDistance) <= maxDistance;
+    }
+
+    // Method to get the Levenshtein distance of two strings, ignoring case, or
+    // limit + 1 if it is larger than limit
+    public static int distance(CharSequence a, CharSequence b, int limit) {
+        Scratch scratch = SCRATCH.get();
+        try {
+            scratch.reset(a);
+            return scratch.distance(b, 0, b.length(), limit);
+        } finally {
+            scratch.clear();
+        }
+    }
+
+    private static int indexOf(CharSequence value, char c) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static char fold(char c) {
+        if (c < 128) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    // Reused per-thread working memory
+    private static final class Scratch {
+        // Folded password
+        char[] chars = new char[WORD];
+        int length;
+
+        // Bit i of ascii[c] is set when chars[i] == c; the first WORD chars only
+        final long[] ascii = new long[128];
+        // The same for the other chars, as a short list of (char, mask) pairs
+        final char[] otherChars = new char[WORD];
+        final long[] otherMasks = new long[WORD];
+        int otherCount;
+
+        // Two rows of the plain dynamic program, for when both strings are long
+        int[] previousRow = new int[WORD + 1];
+        int[] currentRow = new int[WORD + 1];
+
+        void reset(CharSequence password) {
+            length = password.length();
+            if (chars.length < length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                char c = fold(password.charAt(i));
+                chars[i] = c;
+                if (i < WORD) {
+                    addMask(c, 1L << i);
+                }
+            }
+        }
+
+        private void addMask(char c, long bit) {
+            if (c < 128) {
+                ascii[c] |= bit;
+                return;
+            }
+            for (int k = 0; k < otherCount; k++) {
+                if (otherChars[k] == c) {
+                    otherMasks[k] |= bit;
+                    return;
+                }
+            }
+            otherChars[otherCount] = c;
+            otherMasks[otherCount] = bit;
+            otherCount++;
+        }
+
+        private long mask(char c) {
+            if (c < 128) {
+                return ascii[c];
+            }
+            for (int k = 0; k < otherCount; k++) {
+                if (otherChars[k] == c) {
+                    return otherMasks[k];
+                }
+            }
+            return 0;
+        }
+
+        // Clears only what reset set, and wipes the password
+        void clear() {
+            for (int i = 0; i < Math.min(length, WORD); i++) {
+                if (chars[i] < 128) {
+                    ascii[chars[i]] = 0;
+                }
+            }
+            for (int i = 0; i < length; i++) {
+                chars[i] = '\0';
+            }
+            Arrays.fill(otherChars, 0, otherCount, '\0');
+            Arrays.fill(otherMasks, 0, otherCount, 0);
+            otherCount = 0;
+            length = 0;
+        }
+
+        // Method to check whether the password contains value[start, end)
+        boolean contains(CharSequence value, int start, int end) {
+            int n = end - start;
+            for (int i = 0; i + n <= length; i++) {
+                int j = 0;
+                while (j < n && chars[i + j] == fold(value.charAt(start + j))) {
+                    j++;
+                }
+                if (j == n) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int distance(CharSequence value, int start, int end, int limit) {
+            int n = end - start;
+            int m = length;
+            // Every insertion or deletion counts, so the lengths alone can rule it out
+            if (Math.abs(m - n) > limit) {
+                return limit + 1;
+            }
+            if (m == 0) {
+                return n;
+            }
+            if (m > WORD) {
+                return rowDistance(value, start, end, limit);
+            }
+
+            // Myers (1999) as formulated by Hyyro for the global distance: Pv and Mv
+            // hold the +1 and -1 vertical deltas of the current column, score is the
+            // bottom cell. The bottom can drop by at most one per remaining char.
+            long pv = m == WORD ? -1L : (1L << m) - 1;
+            long mv = 0;
+            long last = 1L << (m - 1);
+            int score = m;
+            for (int j = 0; j < n; j++) {
+                long eq = mask(fold(value.charAt(start + j)));
+                long xv = eq | mv;
+                long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+                if ((ph & last) != 0) {
+                    score++;
+                } else if ((mh & last) != 0) {
+                    score--;
+                }
+                if (score - (n - j - 1) > limit) {
+                    return limit + 1;
+                }
+                ph = (ph << 1) | 1;
+                mh <<= 1;
+                pv = mh | ~(xv | ph);
+                mv = ph & xv;
+            }
+            return score <= limit ? score : limit + 1;
+        }
+
+        // The textbook dynamic program, one row per char of value; passwords over
+        // 64 chars are rare enough that this does not need to be fast
+        private int rowDistance(CharSequence value, int start, int end, int limit) {
+            int m = length;
+            if (previousRow.length < m + 1) {
+                previousRow = new int[m + 1];
+                currentRow = new int[m + 1];
+            }
+            int[] previous = previousRow;
+            int[] current = currentRow;
+            for (int i = 0; i <= m; i++) {
+                previous[i] = i;
+            }
+            for (int j = 1; j <= end - start; j++) {
+                char c = fold(value.charAt(start + j - 1));
+                current[0] = j;
+                int best = j;
+                for (int i = 1; i <= m; i++) {
+                    int cost = chars[i - 1] == c ? 0 : 1;
+                    current[i] = Math.min(Math.min(current[i - 1], previous[i]) + 1, previous[i - 1] + cost);
+                    best = Math.min(best, current[i]);
+                }
+                // Every path to the last row passes through this one
+                if (best > limit) {
+                    return limit + 1;
+                }
+                int[] swap = previous;
+                previous = current;
+                current = swap;
+            }
+            return previous[m] <= limit ? previous[m] : limit + 1;
+        }
+    }
+}
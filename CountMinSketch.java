@@ -0,0 +1,83 @@
+public final class CountMinSketch {
+    // This class estimates how often each value occurs, in fixed memory
+    // (Cormode and Muthukrishnan, 2005). Every value increments one counter in each of
+    // depth rows, picked by a different hash; its estimate is the smallest of those
+    // counters, which is never below the true count and exceeds it by at most
+    // e / width * total with probability 1 - e^-depth. Sketches of the same shape merge
+    // by adding counters.
+
+    public static final int DEFAULT_DEPTH = 4;
+    public static final int DEFAULT_WIDTH = 1 << 16;
+
+    private final int depth;
+    private final int mask;
+    // Row after row; one value only ever moves a counter up by one, so int is enough
+    // for any input this tool can audit in one run
+    private final int[] counters;
+    private long total;
+
+    public CountMinSketch() {
+        this(DEFAULT_DEPTH, DEFAULT_WIDTH);
+    }
+
+    // width must be a power of two
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || width < 1 || Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("depth must be positive and width a power of two");
+        }
+        this.depth = depth;
+        this.mask = width - 1;
+        this.counters = new int[depth * width];
+    }
+
+    // Method to count one occurrence of a value by its hash and return its new estimate
+    public long add(long hash) {
+        total++;
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        int width = mask + 1;
+        int estimate = Integer.MAX_VALUE;
+        // Row i uses h1 + i * h2 (Kirsch and Mitzenmacher): one hash stands in for depth
+        for (int i = 0; i < depth; i++) {
+            int slot = i * width + ((h1 + i * h2) & mask);
+            int count = ++counters[slot];
+            if (count < estimate) {
+                estimate = count;
+            }
+        }
+        return estimate;
+    }
+
+    // Method to estimate how often a value was counted
+    public long estimate(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        int width = mask + 1;
+        int estimate = Integer.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            estimate = Math.min(estimate, counters[i * width + ((h1 + i * h2) & mask)]);
+        }
+        return estimate;
+    }
+
+    // Method to fold another sketch into this one
+    public void merge(CountMinSketch other) {
+        if (other.depth != depth || other.mask != mask) {
+            throw new IllegalArgumentException("Cannot merge sketches of different shape");
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other.counters[i];
+        }
+        total += other.total;
+    }
+
+    // Number of values counted
+    public long getTotal() {
+        return total;
+    }
+
+    // Method to get the largest overestimate to expect for any value, e / width * total
+    public long errorBound() {
+        return (long) Math.ceil(Math.E / (mask + 1) * total);
+    }
+}
@@ -0,0 +1,172 @@
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DaemonLoadTestClient {
+    // This class drives a CheckDaemon over its Unix domain socket and reports
+    // throughput and latency percentiles. Each connection keeps up to depth requests
+    // in flight: whenever answers arrive it sends as many new requests in one write.
+    // A request's latency runs from the write that carries it to the read that
+    // returns its answer, so time spent queued behind earlier requests is included.
+    // As in LoadTestClient, each connection keeps its own latency array and requests
+    // sent during the warm-up are not counted.
+
+    private static final int MAX_SAMPLES_PER_CONNECTION = 1 << 22;
+
+    // Requests are drawn from a fixed set built up front, so encoding costs nothing
+    private static final int REQUEST_POOL = 4096;
+
+    private static final String ALPHABET =
+        "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789!@#$%^&*()_+-=[]{}|;:,.<>?";
+
+    private final Path socket;
+    private final int connections;
+    private final int depth;
+    private final int seconds;
+    private final int warmupSeconds;
+
+    public DaemonLoadTestClient(Path socket, int connections, int depth, int seconds, int warmupSeconds) {
+        this.socket = socket;
+        this.connections = connections;
+        this.depth = Math.max(1, depth);
+        this.seconds = seconds;
+        this.warmupSeconds = warmupSeconds;
+    }
+
+    // Method to run the load test and print a summary
+    public void run() throws InterruptedException {
+        long[][] latencies = new long[connections][];
+        int[] counts = new int[connections];
+        long[] finished = new long[connections];
+        AtomicLong errors = new AtomicLong();
+        long measureFrom = System.nanoTime() + warmupSeconds * 1_000_000_000L;
+        long deadline = measureFrom + seconds * 1_000_000_000L;
+
+        Thread[] threads = new Thread[connections];
+        for (int c = 0; c < connections; c++) {
+            int connection = c;
+            threads[c] = new Thread(() -> {
+                long[] samples = new long[MAX_SAMPLES_PER_CONNECTION];
+                try {
+                    counts[connection] = drive(new SplittableRandom(connection), samples, measureFrom, deadline, errors);
+                    finished[connection] = System.nanoTime();
+                } catch (IOException e) {
+                    System.err.println("Connection " + connection + " failed: " + e.getMessage());
+                    errors.incrementAndGet();
+                }
+                latencies[connection] = samples;
+            }, "daemon-load-" + c);
+            threads[c].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int total = 0;
+        long end = measureFrom;
+        for (int c = 0; c < connections; c++) {
+            total += counts[c];
+            end = Math.max(end, finished[c]);
+        }
+        // A connection stops early once its latency array is full
+        double elapsed = Math.max(1, end - measureFrom) / 1e9;
+        long[] all = new long[total];
+        int offset = 0;
+        for (int c = 0; c < connections; c++) {
+            System.arraycopy(latencies[c], 0, all, offset, counts[c]);
+            offset += counts[c];
+        }
+        Arrays.sort(all);
+
+        System.out.printf("Requests: %d (%d errors) in %.1f s over %d connections, %d in flight each%n",
+                total, errors.get(), elapsed, connections, depth);
+        System.out.printf("Throughput: %.0f checks/s%n", total / elapsed);
+        System.out.printf("Latency: p50 %s  p99 %s  p999 %s  max %s%n",
+                LoadTestClient.micros(all, 0.50), LoadTestClient.micros(all, 0.99),
+                LoadTestClient.micros(all, 0.999), LoadTestClient.micros(all, 1.0));
+    }
+
+    // Method to keep one connection busy until the deadline; returns the number of
+    // latencies recorded into samples
+    private int drive(SplittableRandom random, long[] samples, long measureFrom, long deadline, AtomicLong errors)
+            throws IOException {
+        byte[][] requests = requests(random);
+        // Send time of every request in flight, by sequence number modulo depth
+        long[] sentAt = new long[depth];
+        long sent = 0;
+        long answered = 0;
+        int count = 0;
+        int longest = 0;
+        for (byte[] request : requests) {
+            longest = Math.max(longest, request.length);
+        }
+        ByteBuffer out = ByteBuffer.allocateDirect(depth * longest);
+        ByteBuffer in = ByteBuffer.allocateDirect(depth * CheckDaemon.RESPONSE_BYTES);
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            while (true) {
+                long now = System.nanoTime();
+                boolean sending = now < deadline && count < samples.length;
+                if (!sending && answered == sent) {
+                    return count;
+                }
+                if (sending && sent - answered < depth) {
+                    out.clear();
+                    long first = sent;
+                    while (sent - answered < depth) {
+                        out.put(requests[random.nextInt(REQUEST_POOL)]);
+                        sent++;
+                    }
+                    out.flip();
+                    while (out.hasRemaining()) {
+                        channel.write(out);
+                    }
+                    for (long s = first; s < sent; s++) {
+                        sentAt[(int) (s % depth)] = now;
+                    }
+                }
+                if (channel.read(in) < 0) {
+                    throw new IOException("daemon closed the connection");
+                }
+                long received = System.nanoTime();
+                in.flip();
+                while (in.remaining() >= CheckDaemon.RESPONSE_BYTES) {
+                    if (in.get(in.position() + 4) != CheckDaemon.STATUS_OK) {
+                        errors.incrementAndGet();
+                    }
+                    in.position(in.position() + CheckDaemon.RESPONSE_BYTES);
+                    long start = sentAt[(int) (answered % depth)];
+                    answered++;
+                    if (start >= measureFrom && count < samples.length) {
+                        samples[count++] = received - start;
+                    }
+                }
+                in.compact();
+            }
+        }
+    }
+
+    // Method to encode REQUEST_POOL random passwords as single-field requests
+    private static byte[][] requests(SplittableRandom random) {
+        byte[][] requests = new byte[REQUEST_POOL][];
+        for (int r = 0; r < REQUEST_POOL; r++) {
+            int length = 6 + random.nextInt(11);
+            StringBuilder password = new StringBuilder(length);
+            for (int c = 0; c < length; c++) {
+                password.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            byte[] bytes = password.toString().getBytes(StandardCharsets.UTF_8);
+            requests[r] = ByteBuffer.allocate(4 + 1 + 2 + bytes.length)
+                    .putInt(1 + 2 + bytes.length).put((byte) 1).putShort((short) bytes.length).put(bytes)
+                    .array();
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,24 @@
+import java.util.Set;
+
+public class DefaultPasswordDictionary implements PasswordDictionary {
+    // This class is the small built-in list of common weak passwords
+
+    private static final Set<String> COMMON_PASSWORDS = Set.of(
+        "password", "123456", "password123", "admin", "qwerty",
+        "letmein", "welcome", "monkey", "dragon", "master"
+    );
+
+    @Override
+    public boolean contains(CharSequence lowerPassword) {
+        if (lowerPassword instanceof String) {
+            return COMMON_PASSWORDS.contains(lowerPassword);
+        }
+        // Compare in place so a view over a char buffer needs no String copy
+        for (String common : COMMON_PASSWORDS) {
+            if (common.contentEquals(lowerPassword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,27 @@
+public class FilteredPasswordDictionary implements PasswordDictionary {
+    // This class puts a probabilistic filter in front of an exact dictionary
+    // so that only filter hits pay for the exact lookup
+
+    private final MappedPasswordFilter filter;
+    private final PasswordDictionary exact;
+
+    public FilteredPasswordDictionary(MappedPasswordFilter filter, PasswordDictionary exact) {
+        this.filter = filter;
+        this.exact = exact;
+    }
+
+    @Override
+    public boolean contains(CharSequence lowerPassword) {
+        return contains(lowerPassword, PasswordHash.hash64(lowerPassword));
+    }
+
+    @Override
+    public boolean contains(CharSequence lowerPassword, long hash) {
+        return filter.mayContainHash(hash) && exact.contains(lowerPassword, hash);
+    }
+
+    @Override
+    public long generation() {
+        return exact.generation();
+    }
+}
@@ -0,0 +1,44 @@
+public final class GuessEstimate {
+    // This class holds how many guesses an attacker would need for a password
+    // as estimated by GuessEstimator
+
+    // Offline attack on a slow hash (bcrypt, scrypt, PBKDF2) on one machine
+    public static final double GUESSES_PER_SECOND = 1e4;
+
+    private final double log10Guesses;
+
+    public GuessEstimate(double log10Guesses) {
+        this.log10Guesses = log10Guesses;
+    }
+
+    public double getLog10Guesses() {
+        return log10Guesses;
+    }
+
+    public double getGuesses() {
+        return Math.pow(10, log10Guesses);
+    }
+
+    // Method to get the time to crack at GUESSES_PER_SECOND, in seconds
+    public double getCrackTimeSeconds() {
+        return getGuesses() / GUESSES_PER_SECOND;
+    }
+
+    // Method to describe the crack time in words, e.g. "3 hours"
+    public String getCrackTimeDisplay() {
+        double seconds = getCrackTimeSeconds();
+        if (seconds < 1) return "less than a second";
+        if (seconds < 60) return plural(seconds, "second");
+        if (seconds < 3600) return plural(seconds / 60, "minute");
+        if (seconds < 86400) return plural(seconds / 3600, "hour");
+        if (seconds < 86400 * 31) return plural(seconds / 86400, "day");
+        if (seconds < 86400 * 365) return plural(seconds / (86400 * 31), "month");
+        if (seconds < 86400 * 365 * 100.0) return plural(seconds / (86400 * 365), "year");
+        return "centuries";
+    }
+
+    private static String plural(double value, String unit) {
+        long rounded = Math.round(value);
+        return rounded + " " + unit + (rounded == 1 ? "" : "s");
+    }
+}
@@ -0,0 +1,584 @@
+import java.time.Year;
+import java.util.Arrays;
+
+public class GuessEstimator {
+    // This class estimates how many guesses an attacker needs for a password
+    // It works like zxcvbn: find keyboard walks, sequences, repeated blocks and
+    // dates, then search for the cheapest way to cover the whole password with
+    // those matches and brute-forced gaps (dynamic programming over positions).
+    // All tables are primitive arrays built once, and the per-call work happens
+    // in reused per-thread scratch arrays, so a call allocates nothing.
+
+    // Characters past this are scored as plain brute force
+    private static final int MAX_LENGTH = 64;
+    private static final int MAX_MATCHES = 2048;
+    // Splitting into more pieces than this is never the cheapest cover in practice
+    private static final int MAX_PIECES = 10;
+
+    private static final double LOG10_BRUTEFORCE_PER_CHAR = 1; // 10 guesses per character
+    private static final double LOG10_MIN_GUESSES_BEFORE_GROWING = 4;
+    private static final double LOG10_MIN_SINGLE_CHAR_GUESSES = 1;
+    private static final double LOG10_MIN_MULTI_CHAR_GUESSES = Math.log10(50);
+
+    private static final int REFERENCE_YEAR = Year.now().getValue();
+    private static final int MIN_YEAR_SPACE = 20;
+    private static final int MIN_DATE_YEAR = 1000;
+    private static final int MAX_DATE_YEAR = 2050;
+    private static final String DATE_SEPARATORS = " /\\_.-";
+    // {first cut, second cut} for digit-only dates of length 4..8
+    private static final int[][][] DATE_SPLITS = {
+        null, null, null, null,
+        {{1, 2}, {2, 3}},
+        {{1, 3}, {2, 3}},
+        {{1, 2}, {2, 4}, {4, 5}},
+        {{1, 3}, {2, 3}, {4, 5}, {4, 6}},
+        {{2, 4}, {4, 6}},
+    };
+
+    private static final KeyboardGraph QWERTY = new KeyboardGraph(
+            new String[] {"`1234567890-=", " qwertyuiop[]\\", " asdfghjkl;'", " zxcvbnm,./"},
+            new String[] {"~!@#$%^&*()_+", " QWERTYUIOP{}|", " ASDFGHJKL:\"", " ZXCVBNM<>?"},
+            true);
+    private static final KeyboardGraph KEYPAD = new KeyboardGraph(
+            new String[] {" /*-", "789+", "456", "123", " 0."},
+            null,
+            false);
+
+    private static final double[] LOG10_FACTORIAL = new double[MAX_LENGTH + 1];
+    private static final double[][] BINOMIAL = new double[MAX_LENGTH + 1][MAX_LENGTH + 1];
+
+    static {
+        for (int i = 1; i <= MAX_LENGTH; i++) {
+            LOG10_FACTORIAL[i] = LOG10_FACTORIAL[i - 1] + Math.log10(i);
+        }
+        for (int n = 0; n <= MAX_LENGTH; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= n; k++) {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + (k < n ? BINOMIAL[n - 1][k] : 0);
+            }
+        }
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    // Method to estimate the guesses needed for a password
+    public GuessEstimate estimate(CharSequence password) {
+        return new GuessEstimate(estimateLog10Guesses(password));
+    }
+
+    // Method to estimate log10 of the guesses needed, without allocating
+    public double estimateLog10Guesses(CharSequence password) {
+        int length = password.length();
+        if (length == 0) {
+            return 0;
+        }
+        int n = Math.min(length, MAX_LENGTH);
+        Scratch scratch = SCRATCH.get();
+        scratch.reset(password, n);
+
+        findKeyboardWalks(scratch, QWERTY);
+        findKeyboardWalks(scratch, KEYPAD);
+        findSequences(scratch);
+        findDates(scratch);
+        findRepeats(scratch);
+
+        return minimumGuesses(scratch) + (length - n) * LOG10_BRUTEFORCE_PER_CHAR;
+    }
+
+    // ---- keyboard walks ----
+
+    private static void findKeyboardWalks(Scratch scratch, KeyboardGraph graph) {
+        char[] s = scratch.chars;
+        int n = scratch.length;
+        int i = 0;
+        while (i < n - 1) {
+            int j = i;
+            int lastDirection = -1;
+            int turns = 0;
+            int shifted = graph.isShifted(s[i]) ? 1 : 0;
+            while (j + 1 < n) {
+                int direction = graph.direction(s[j], s[j + 1]);
+                if (direction < 0) {
+                    break;
+                }
+                if (direction != lastDirection) {
+                    turns++;
+                    lastDirection = direction;
+                }
+                if (graph.isShifted(s[j + 1])) {
+                    shifted++;
+                }
+                j++;
+            }
+            if (j - i + 1 >= 3) {
+                scratch.add(i, j, graph.log10Guesses(j - i + 1, turns, shifted));
+            }
+            i = j + 1;
+        }
+    }
+
+    // ---- sequences such as abcd, 9753 ----
+
+    // A sequence stays within digits, lowercase or uppercase letters, so 89:; is not one
+    private static void findSequences(Scratch scratch) {
+        char[] s = scratch.chars;
+        int n = scratch.length;
+        int i = 0;
+        while (i < n - 1) {
+            int sequenceClass = sequenceClass(s[i]);
+            if (sequenceClass == 0 || sequenceClass(s[i + 1]) != sequenceClass) {
+                i++;
+                continue;
+            }
+            int delta = s[i + 1] - s[i];
+            int j = i + 1;
+            while (j + 1 < n && sequenceClass(s[j + 1]) == sequenceClass && s[j + 1] - s[j] == delta) {
+                j++;
+            }
+            int absDelta = Math.abs(delta);
+            if (absDelta >= 1 && absDelta <= 5 && j - i + 1 >= 3) {
+                char first = s[i];
+                double base;
+                if ("aAzZ019".indexOf(first) >= 0) {
+                    base = 4;
+                } else if (first >= '0' && first <= '9') {
+                    base = 10;
+                } else {
+                    base = 26;
+                }
+                if (delta < 0) {
+                    base *= 2;
+                }
+                scratch.add(i, j, Math.log10(base * (j - i + 1)));
+            }
+            i = j;
+        }
+    }
+
+    // Returns 1 for a digit, 2 for a lowercase and 3 for an uppercase ASCII letter, else 0
+    private static int sequenceClass(char c) {
+        if (isDigit(c)) return 1;
+        if (c >= 'a' && c <= 'z') return 2;
+        if (c >= 'A' && c <= 'Z') return 3;
+        return 0;
+    }
+
+    // ---- dates and years ----
+
+    private static void findDates(Scratch scratch) {
+        char[] s = scratch.chars;
+        int n = scratch.length;
+        for (int i = 0; i < n; i++) {
+            if (!isDigit(s[i])) {
+                continue;
+            }
+            // Digit-only dates and years, within the run of up to 8 digits starting here
+            int digits = 1;
+            while (digits < 8 && i + digits < n && isDigit(s[i + digits])) {
+                digits++;
+            }
+            for (int len = 4; len <= digits; len++) {
+                if (len == 4) {
+                    int year = parse(s, i, i + 4);
+                    if (year >= 1900 && year <= 2099) {
+                        scratch.add(i, i + 3, Math.log10(yearSpace(year)));
+                    }
+                }
+                int bestSpace = Integer.MAX_VALUE;
+                for (int[] split : DATE_SPLITS[len]) {
+                    int year = dateYear(parse(s, i, i + split[0]), parse(s, i + split[0], i + split[1]),
+                            parse(s, i + split[1], i + len));
+                    if (year > 0) {
+                        bestSpace = Math.min(bestSpace, yearSpace(year));
+                    }
+                }
+                if (bestSpace != Integer.MAX_VALUE) {
+                    scratch.add(i, i + len - 1, Math.log10(bestSpace * 365.0));
+                }
+            }
+            // Dates with separators, e.g. 1.2.1990 or 1990-02-01
+            for (int firstLen = 1; firstLen <= 4 && i + firstLen < n; firstLen++) {
+                if (!isDigit(s[i + firstLen - 1])) {
+                    break;
+                }
+                int sepAt = i + firstLen;
+                char separator = s[sepAt];
+                if (DATE_SEPARATORS.indexOf(separator) < 0) {
+                    continue;
+                }
+                for (int secondLen = 1; secondLen <= 2 && sepAt + secondLen + 1 < n; secondLen++) {
+                    if (!isDigit(s[sepAt + secondLen])) {
+                        break;
+                    }
+                    int sep2At = sepAt + secondLen + 1;
+                    if (s[sep2At] != separator) {
+                        continue;
+                    }
+                    for (int thirdLen = 1; thirdLen <= 4 && sep2At + thirdLen < n; thirdLen++) {
+                        int end = sep2At + thirdLen;
+                        if (!isDigit(s[end])) {
+                            break;
+                        }
+                        int year = dateYear(parse(s, i, sepAt), parse(s, sepAt + 1, sep2At),
+                                parse(s, sep2At + 1, end + 1));
+                        if (year > 0) {
+                            scratch.add(i, end, Math.log10(yearSpace(year) * 365.0 * 4));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Returns the four-digit year of a valid day/month/year triple, or 0
+    private static int dateYear(int a, int b, int c) {
+        if (b > 31 || b <= 0) {
+            return 0;
+        }
+        if (!isDatePart(a) || !isDatePart(c)) {
+            return 0;
+        }
+        int over31 = (a > 31 ? 1 : 0) + (c > 31 ? 1 : 0);
+        int over12 = (a > 12 ? 1 : 0) + (b > 12 ? 1 : 0) + (c > 12 ? 1 : 0);
+        int under1 = (a <= 0 ? 1 : 0) + (c <= 0 ? 1 : 0);
+        if (over31 >= 2 || over12 == 3 || under1 >= 2) {
+            return 0;
+        }
+        // A four-digit year at either end decides the split
+        if (c >= MIN_DATE_YEAR && c <= MAX_DATE_YEAR) {
+            return isDayMonth(a, b) ? c : 0;
+        }
+        if (a >= MIN_DATE_YEAR && a <= MAX_DATE_YEAR) {
+            return isDayMonth(b, c) ? a : 0;
+        }
+        if (isDayMonth(a, b)) {
+            return twoToFourDigitYear(c);
+        }
+        if (isDayMonth(b, c)) {
+            return twoToFourDigitYear(a);
+        }
+        return 0;
+    }
+
+    private static boolean isDatePart(int value) {
+        return value <= 99 || (value >= MIN_DATE_YEAR && value <= MAX_DATE_YEAR);
+    }
+
+    private static boolean isDayMonth(int x, int y) {
+        return (x >= 1 && x <= 31 && y >= 1 && y <= 12) || (y >= 1 && y <= 31 && x >= 1 && x <= 12);
+    }
+
+    private static int twoToFourDigitYear(int year) {
+        if (year > 99) return year;
+        return year > 50 ? 1900 + year : 2000 + year;
+    }
+
+    private static int yearSpace(int year) {
+        return Math.max(Math.abs(year - REFERENCE_YEAR), MIN_YEAR_SPACE);
+    }
+
+    // ---- repeated blocks such as aaaa, abcabc ----
+
+    // Only maximal runs are kept: the smallest block that repeats at i, and only when
+    // the run does not go on to the left of i (then it was found further left)
+    private static void findRepeats(Scratch scratch) {
+        char[] s = scratch.chars;
+        int n = scratch.length;
+        for (int i = 0; i < n - 1; i++) {
+            for (int period = 1; i + 2 * period <= n; period++) {
+                if (!sameBlock(s, i, i + period, period)) {
+                    continue;
+                }
+                if (i < period || !sameBlock(s, i - period, i, period)) {
+                    int repeats = 2;
+                    while (i + (repeats + 1) * period <= n && sameBlock(s, i, i + repeats * period, period)) {
+                        repeats++;
+                    }
+                    double base = scratch.bestMatch(i, i + period - 1, bruteforce(period));
+                    scratch.add(i, i + repeats * period - 1, base + Math.log10(repeats));
+                }
+                break;
+            }
+        }
+    }
+
+    private static boolean sameBlock(char[] s, int a, int b, int length) {
+        for (int k = 0; k < length; k++) {
+            if (s[a + k] != s[b + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ---- search for the cheapest cover ----
+
+    private static double minimumGuesses(Scratch scratch) {
+        int n = scratch.length;
+        scratch.bucketByEnd();
+        for (int k = 0; k < n; k++) {
+            // Pattern matches ending at k
+            for (int m = scratch.endStart[k]; m < scratch.endStart[k + 1]; m++) {
+                int match = scratch.order[m];
+                int start = scratch.matchStart[match];
+                double log10 = minimumFor(scratch.matchLog10[match], k - start + 1, n);
+                if (start == 0) {
+                    update(scratch, k, 1, log10, 0, false);
+                } else {
+                    for (int l = 1; l < MAX_PIECES; l++) {
+                        if (scratch.logG[start - 1][l] != Double.POSITIVE_INFINITY) {
+                            update(scratch, k, l + 1, log10 + scratch.logPi[start - 1][l], start, false);
+                        }
+                    }
+                }
+            }
+            // Brute force from any start up to k, never right after another brute force piece.
+            // Brute force i..k costs (k - i + 1) * LOG10_BRUTEFORCE_PER_CHAR, which is never
+            // below the minimumFor floors, so the best start for each piece count is the
+            // running minimum of logPi[i - 1][l] - i * LOG10_BRUTEFORCE_PER_CHAR.
+            update(scratch, k, 1, minimumFor(bruteforce(k + 1), k + 1, n), 0, true);
+            for (int l = 1; l < MAX_PIECES; l++) {
+                if (scratch.bruteforceFrom[l] != Double.POSITIVE_INFINITY) {
+                    update(scratch, k, l + 1, scratch.bruteforceFrom[l] + bruteforce(k + 1), -1, true);
+                }
+            }
+            for (int l = 1; l < MAX_PIECES; l++) {
+                if (scratch.logG[k][l] != Double.POSITIVE_INFINITY && !scratch.bruteforce[k][l]) {
+                    scratch.bruteforceFrom[l] = Math.min(scratch.bruteforceFrom[l],
+                            scratch.logPi[k][l] - bruteforce(k + 1));
+                }
+            }
+        }
+        double best = Double.POSITIVE_INFINITY;
+        for (int l = 1; l <= MAX_PIECES; l++) {
+            best = Math.min(best, scratch.logG[n - 1][l]);
+        }
+        return best;
+    }
+
+    private static void update(Scratch scratch, int k, int pieces, double logPi, int start, boolean bruteforce) {
+        // guesses = pieces! * product + 10000^(pieces - 1)
+        double factorial = LOG10_FACTORIAL[pieces] + logPi;
+        double growing = LOG10_MIN_GUESSES_BEFORE_GROWING * (pieces - 1);
+        // The sum is at least the larger term, so most candidates lose without log10Sum
+        double known = Double.POSITIVE_INFINITY;
+        for (int l = 1; l <= pieces; l++) {
+            known = Math.min(known, scratch.logG[k][l]);
+        }
+        if (known <= Math.max(factorial, growing)) {
+            return;
+        }
+        double logG = log10Sum(factorial, growing);
+        if (known <= logG) {
+            return;
+        }
+        scratch.logG[k][pieces] = logG;
+        scratch.logPi[k][pieces] = logPi;
+        scratch.bruteforce[k][pieces] = bruteforce;
+    }
+
+    private static double minimumFor(double log10, int matchLength, int passwordLength) {
+        if (matchLength == passwordLength) {
+            return log10;
+        }
+        return Math.max(log10, matchLength == 1 ? LOG10_MIN_SINGLE_CHAR_GUESSES : LOG10_MIN_MULTI_CHAR_GUESSES);
+    }
+
+    private static double bruteforce(int length) {
+        return length * LOG10_BRUTEFORCE_PER_CHAR;
+    }
+
+    private static double log10Sum(double a, double b) {
+        double max = Math.max(a, b);
+        double min = Math.min(a, b);
+        return max + Math.log10(1 + Math.pow(10, min - max));
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int parse(char[] s, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            value = value * 10 + (s[i] - '0');
+        }
+        return value;
+    }
+
+    // Keyboard layout as key ids and neighbour tables
+    private static final class KeyboardGraph {
+        private final short[] keyOf = new short[128];
+        private final boolean[] shifted = new boolean[128];
+        private final short[] neighbors;
+        private final int directions;
+        private final double startingPositions;
+        private final double averageDegree;
+
+        KeyboardGraph(String[] rows, String[] shiftedRows, boolean slanted) {
+            // Slanted keyboards: the row below sits half a key to the right
+            int[][] offsets = slanted
+                    ? new int[][] {{0, -1}, {-1, 0}, {-1, 1}, {0, 1}, {1, 0}, {1, -1}}
+                    : new int[][] {{0, -1}, {-1, -1}, {-1, 0}, {-1, 1}, {0, 1}, {1, 1}, {1, 0}, {1, -1}};
+            directions = offsets.length;
+            Arrays.fill(keyOf, (short) -1);
+
+            int width = 0;
+            for (String row : rows) {
+                width = Math.max(width, row.length());
+            }
+            short[][] grid = new short[rows.length][width];
+            int keys = 0;
+            for (int r = 0; r < rows.length; r++) {
+                Arrays.fill(grid[r], (short) -1);
+                for (int c = 0; c < rows[r].length(); c++) {
+                    char key = rows[r].charAt(c);
+                    if (key == ' ') {
+                        continue;
+                    }
+                    grid[r][c] = (short) keys;
+                    keyOf[key] = (short) keys;
+                    if (shiftedRows != null) {
+                        char upper = shiftedRows[r].charAt(c);
+                        keyOf[upper] = (short) keys;
+                        shifted[upper] = true;
+                    }
+                    keys++;
+                }
+            }
+
+            neighbors = new short[keys * directions];
+            long degreeSum = 0;
+            for (int r = 0; r < rows.length; r++) {
+                for (int c = 0; c < width; c++) {
+                    int key = grid[r][c];
+                    if (key < 0) {
+                        continue;
+                    }
+                    for (int d = 0; d < directions; d++) {
+                        int nr = r + offsets[d][0];
+                        int nc = c + offsets[d][1];
+                        short neighbor = nr >= 0 && nr < rows.length && nc >= 0 && nc < width ? grid[nr][nc] : -1;
+                        neighbors[key * directions + d] = neighbor;
+                        if (neighbor >= 0) {
+                            degreeSum++;
+                        }
+                    }
+                }
+            }
+            startingPositions = keys;
+            averageDegree = (double) degreeSum / keys;
+        }
+
+        boolean isShifted(char c) {
+            return c < 128 && shifted[c];
+        }
+
+        // Returns the direction from a to b, or -1 if they are not neighbours
+        int direction(char a, char b) {
+            if (a >= 128 || b >= 128) {
+                return -1;
+            }
+            int from = keyOf[a];
+            int to = keyOf[b];
+            if (from < 0 || to < 0) {
+                return -1;
+            }
+            int base = from * directions;
+            for (int d = 0; d < directions; d++) {
+                if (neighbors[base + d] == to) {
+                    return d;
+                }
+            }
+            return -1;
+        }
+
+        double log10Guesses(int length, int turns, int shiftedCount) {
+            double guesses = 0;
+            for (int i = 2; i <= length; i++) {
+                int possibleTurns = Math.min(turns, i - 1);
+                for (int j = 1; j <= possibleTurns; j++) {
+                    guesses += BINOMIAL[i - 1][j - 1] * startingPositions * Math.pow(averageDegree, j);
+                }
+            }
+            int unshifted = length - shiftedCount;
+            if (shiftedCount > 0 && unshifted == 0) {
+                guesses *= 2;
+            } else if (shiftedCount > 0) {
+                double variations = 0;
+                for (int i = 1; i <= Math.min(shiftedCount, unshifted); i++) {
+                    variations += BINOMIAL[length][i];
+                }
+                guesses *= variations;
+            }
+            return Math.log10(guesses);
+        }
+    }
+
+    // Reused per-thread working memory
+    private static final class Scratch {
+        final char[] chars = new char[MAX_LENGTH];
+        int length;
+
+        final int[] matchStart = new int[MAX_MATCHES];
+        final int[] matchEnd = new int[MAX_MATCHES];
+        final double[] matchLog10 = new double[MAX_MATCHES];
+        int matchCount;
+
+        // Cheapest match over exactly start..end, by [start][end]
+        final double[][] cheapest = new double[MAX_LENGTH][MAX_LENGTH];
+
+        final int[] order = new int[MAX_MATCHES];
+        final int[] endStart = new int[MAX_LENGTH + 1];
+        final int[] cursor = new int[MAX_LENGTH + 1];
+
+        final double[][] logG = new double[MAX_LENGTH][MAX_PIECES + 1];
+        final double[][] logPi = new double[MAX_LENGTH][MAX_PIECES + 1];
+        final boolean[][] bruteforce = new boolean[MAX_LENGTH][MAX_PIECES + 1];
+        // By piece count, the best logPi before a brute force piece, less its start offset
+        final double[] bruteforceFrom = new double[MAX_PIECES + 1];
+
+        void reset(CharSequence password, int n) {
+            length = n;
+            for (int i = 0; i < n; i++) {
+                chars[i] = password.charAt(i);
+            }
+            matchCount = 0;
+            Arrays.fill(bruteforceFrom, Double.POSITIVE_INFINITY);
+            for (int k = 0; k < n; k++) {
+                Arrays.fill(logG[k], Double.POSITIVE_INFINITY);
+                Arrays.fill(cheapest[k], k, n, Double.POSITIVE_INFINITY);
+            }
+        }
+
+        void add(int start, int end, double log10) {
+            if (matchCount < MAX_MATCHES) {
+                matchStart[matchCount] = start;
+                matchEnd[matchCount] = end;
+                matchLog10[matchCount] = log10;
+                matchCount++;
+                cheapest[start][end] = Math.min(cheapest[start][end], log10);
+            }
+        }
+
+        // Returns the cheapest match covering exactly start..end, or the fallback
+        double bestMatch(int start, int end, double fallback) {
+            return Math.min(fallback, cheapest[start][end]);
+        }
+
+        // Counting sort of the matches by end position
+        void bucketByEnd() {
+            Arrays.fill(endStart, 0, length + 1, 0);
+            for (int m = 0; m < matchCount; m++) {
+                endStart[matchEnd[m] + 1]++;
+            }
+            for (int k = 0; k < length; k++) {
+                endStart[k + 1] += endStart[k];
+            }
+            System.arraycopy(endStart, 0, cursor, 0, length + 1);
+            for (int m = 0; m < matchCount; m++) {
+                order[cursor[matchEnd[m]]++] = m;
+            }
+        }
+    }
+}
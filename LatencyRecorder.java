@@ -0,0 +1,127 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public final class LatencyRecorder {
+    // This class counts calls and records their latency in a log-linear histogram
+    // Every power of two of nanoseconds is split into four buckets, so a reported
+    // percentile is at most 25% above the real value. Threads record into one of
+    // several stripes picked by thread id, so recording is a single uncontended
+    // atomic add and never takes a lock; stripes are only summed for snapshots.
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    // Slots per stripe: the buckets, the total time, and padding so that two
+    // stripes never share a cache line
+    private static final int TOTAL_SLOT = BUCKETS;
+    private static final int STRIDE = BUCKETS + 16;
+
+    private final String name;
+    private final int stripeMask;
+    private final AtomicLongArray slots;
+
+    public LatencyRecorder(String name) {
+        this.name = name;
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        this.stripeMask = stripes - 1;
+        this.slots = new AtomicLongArray(stripes * STRIDE);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Method to record one call that took the given number of nanoseconds
+    public void record(long nanos) {
+        long id = Thread.currentThread().getId();
+        int base = (int) ((id ^ (id >>> 16)) & stripeMask) * STRIDE;
+        slots.getAndIncrement(base + bucketFor(nanos));
+        slots.getAndAdd(base + TOTAL_SLOT, nanos);
+    }
+
+    static int bucketFor(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(0, nanos);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // Method to get the largest latency that falls into a bucket
+    static long bucketLimit(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long low = (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+        return low + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    // Method to take a consistent-enough copy of all stripes for reporting
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int base = 0; base < slots.length(); base += STRIDE) {
+            for (int b = 0; b < BUCKETS; b++) {
+                counts[b] += slots.get(base + b);
+            }
+            total += slots.get(base + TOTAL_SLOT);
+        }
+        return new Snapshot(name, counts, total);
+    }
+
+    public void reset() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, 0);
+        }
+    }
+
+    // One point-in-time view of a recorder
+    public static final class Snapshot {
+        private final String name;
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+
+        Snapshot(String name, long[] counts, long totalNanos) {
+            this.name = name;
+            this.counts = counts;
+            long sum = 0;
+            for (long c : counts) {
+                sum += c;
+            }
+            this.count = sum;
+            this.totalNanos = totalNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        // Method to get the latency below which the given fraction of calls fell
+        public long percentileNanos(double fraction) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(fraction * count);
+            long seen = 0;
+            for (int b = 0; b < counts.length; b++) {
+                seen += counts[b];
+                if (seen >= rank) {
+                    return bucketLimit(b);
+                }
+            }
+            return bucketLimit(counts.length - 1);
+        }
+    }
+}
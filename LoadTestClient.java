@@ -0,0 +1,118 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LoadTestClient {
+    // This class drives an AnalysisServer with concurrent requests and reports
+    // throughput and latency percentiles. Each worker keeps its own latency
+    // array, so recording a sample costs no synchronisation. Requests sent during
+    // the warm-up period (while both JVMs compile their hot paths) are not counted.
+
+    private static final int MAX_SAMPLES_PER_WORKER = 1 << 20;
+    private static final String ALPHABET =
+        "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789!@#$%^&*()_+-=[]{}|;:,.<>?";
+
+    private final URI uri;
+    private final int workers;
+    private final int seconds;
+    private final int warmupSeconds;
+    private final int batchSize;
+
+    public LoadTestClient(String baseUrl, int workers, int seconds, int warmupSeconds, int batchSize) {
+        this.uri = URI.create(baseUrl + (batchSize > 1 ? "/analyze/batch" : "/analyze"));
+        this.workers = workers;
+        this.seconds = seconds;
+        this.warmupSeconds = warmupSeconds;
+        this.batchSize = batchSize;
+    }
+
+    // Method to run the load test and print a summary
+    public void run() throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        long[][] latencies = new long[workers][];
+        int[] counts = new int[workers];
+        AtomicLong errors = new AtomicLong();
+        long measureFrom = System.nanoTime() + warmupSeconds * 1_000_000_000L;
+        long deadline = measureFrom + seconds * 1_000_000_000L;
+
+        Thread[] threads = new Thread[workers];
+        for (int w = 0; w < workers; w++) {
+            int worker = w;
+            threads[w] = new Thread(() -> {
+                long[] samples = new long[MAX_SAMPLES_PER_WORKER];
+                int count = 0;
+                SplittableRandom random = new SplittableRandom(worker);
+                while (System.nanoTime() < deadline && count < samples.length) {
+                    HttpRequest request = HttpRequest.newBuilder(uri)
+                            .POST(HttpRequest.BodyPublishers.ofString(body(random)))
+                            .build();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                    if (start >= measureFrom) {
+                        samples[count++] = System.nanoTime() - start;
+                    }
+                }
+                latencies[worker] = samples;
+                counts[worker] = count;
+            }, "load-" + w);
+            threads[w].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        long[] all = new long[total];
+        int offset = 0;
+        for (int w = 0; w < workers; w++) {
+            System.arraycopy(latencies[w], 0, all, offset, counts[w]);
+            offset += counts[w];
+        }
+        Arrays.sort(all);
+
+        System.out.printf("Requests: %d (%d errors) in %d s with %d workers%n", total, errors.get(), seconds, workers);
+        System.out.printf("Throughput: %.0f requests/s, %.0f passwords/s%n",
+                (double) total / seconds, (double) total * batchSize / seconds);
+        System.out.printf("Latency: p50 %s  p99 %s  p999 %s  max %s%n",
+                micros(all, 0.50), micros(all, 0.99), micros(all, 0.999), micros(all, 1.0));
+    }
+
+    private String body(SplittableRandom random) {
+        StringBuilder body = new StringBuilder(batchSize * 13);
+        for (int i = 0; i < batchSize; i++) {
+            int length = 6 + random.nextInt(11);
+            for (int c = 0; c < length; c++) {
+                body.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            body.append('\n');
+        }
+        return body.toString();
+    }
+
+    // Method to format a percentile of sorted nanosecond latencies in microseconds;
+    // DaemonLoadTestClient reports with it too
+    static String micros(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return "-";
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return String.format("%.1fus", sorted[Math.max(0, index)] / 1000.0);
+    }
+}
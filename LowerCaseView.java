@@ -0,0 +1,119 @@
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+final class LowerCaseView implements CharSequence {
+    // This class shows a password folded the way String.toLowerCase() folds it, one
+    // char at a time and without copying it, so dictionary lookups need no new String.
+    // Instances are reused per thread: reset() before a lookup, release() after it.
+
+    private CharSequence text;
+    private char[] chars;
+    private ByteBuffer bytes;
+    private int offset;
+    private int length;
+
+    // Method to wrap text; returns false if folding char by char would not match
+    // String.toLowerCase() (Turkish, Azeri or Lithuanian default locale, dotted
+    // capital I, capital sigma) and the caller has to fold a String instead
+    boolean reset(CharSequence text) {
+        this.text = text;
+        this.chars = null;
+        this.bytes = null;
+        this.offset = 0;
+        this.length = text.length();
+        return foldsPerChar();
+    }
+
+    boolean reset(char[] chars, int offset, int length) {
+        this.text = null;
+        this.chars = chars;
+        this.bytes = null;
+        this.offset = offset;
+        this.length = length;
+        return foldsPerChar();
+    }
+
+    // The bytes must all be ASCII, one char each
+    boolean resetAscii(ByteBuffer bytes, int offset, int length) {
+        this.text = null;
+        this.chars = null;
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        return foldsPerChar();
+    }
+
+    // Method to drop the reference to the password after a lookup
+    void release() {
+        text = null;
+        chars = null;
+        bytes = null;
+        length = 0;
+    }
+
+    private boolean foldsPerChar() {
+        String language = Locale.getDefault().getLanguage();
+        if (language.equals("tr") || language.equals("az") || language.equals("lt")) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = raw(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c == '\u0130' || c == '\u03A3') {
+                return false;
+            }
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(raw(i + 1))) {
+                int lower = Character.toLowerCase(Character.toCodePoint(c, raw(i + 1)));
+                if (!Character.isSupplementaryCodePoint(lower)) {
+                    return false;
+                }
+                i++;
+            }
+        }
+        return true;
+    }
+
+    private char raw(int index) {
+        if (chars != null) {
+            return chars[offset + index];
+        }
+        return bytes != null ? (char) bytes.get(offset + index) : text.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        char c = raw(index);
+        if (c < 0x80) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        if (Character.isHighSurrogate(c) && index + 1 < length && Character.isLowSurrogate(raw(index + 1))) {
+            return Character.highSurrogate(Character.toLowerCase(Character.toCodePoint(c, raw(index + 1))));
+        }
+        if (Character.isLowSurrogate(c) && index > 0 && Character.isHighSurrogate(raw(index - 1))) {
+            return Character.lowSurrogate(Character.toLowerCase(Character.toCodePoint(raw(index - 1), c)));
+        }
+        return Character.toLowerCase(c);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    // Allocates; only for dictionaries that need a String key
+    @Override
+    public String toString() {
+        StringBuilder folded = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            folded.append(charAt(i));
+        }
+        return folded.toString();
+    }
+}
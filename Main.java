@@ -1,10 +1,86 @@
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Scanner;
 
 public class Main {
     public static void main(String[] args) {
+        // Build a common-password index instead of starting the menu
+        if (args.length >= 3 && args[0].equals("--build-index")) {
+            buildIndex(args);
+            return;
+        }
+        if (args.length >= 3 && args[0].equals("--index-add")) {
+            addIndexDelta(args);
+            return;
+        }
+        if (args.length >= 2 && args[0].equals("--index-compact")) {
+            compactIndex(args);
+            return;
+        }
+        if (args.length >= 3 && args[0].equals("--build-filter")) {
+            buildFilter(args);
+            return;
+        }
+        if (args.length >= 3 && args[0].equals("--build-markov")) {
+            buildMarkovModel(args);
+            return;
+        }
+        if (args.length >= 3 && args[0].equals("--build-range")) {
+            buildRangeIndex(args);
+            return;
+        }
+        if (args.length >= 3 && args[0].equals("--range")) {
+            printRange(args);
+            return;
+        }
+        if (args.length >= 2 && args[0].equals("--audit")) {
+            runAudit(args);
+            return;
+        }
+        if (args.length >= 2 && args[0].equals("--store-report")) {
+            reportStore(args);
+            return;
+        }
+        if (args.length >= 1 && args[0].equals("--serve")) {
+            runServer(args);
+            return;
+        }
+        if (args.length >= 2 && args[0].equals("--daemon")) {
+            runDaemon(args);
+            return;
+        }
+        if (args.length >= 2 && args[0].equals("--daemon-load-test")) {
+            runDaemonLoadTest(args);
+            return;
+        }
+        if (args.length >= 2 && args[0].equals("--load-test")) {
+            runLoadTest(args);
+            return;
+        }
+        if (args.length >= 2 && args[0].equals("--generate")) {
+            runGenerator(args);
+            return;
+        }
+
         // Create instances of our classes
-        PasswordAnalyzer analyzer = new PasswordAnalyzer();
-        SecurityPolicy policy = new SecurityPolicy();
+        PasswordAnalyzer analyzer = createAnalyzer(args);
+        if (analyzer == null) {
+            return;
+        }
+        SecurityPolicy policy = createPolicy(args);
+        if (policy == null) {
+            return;
+        }
+        BreachCheck breachCheck;
+        try {
+            BreachRangeIndex breaches = openBreachIndex(args);
+            breachCheck = breaches == null ? null : new BreachCheck(breaches);
+        } catch (IOException e) {
+            System.err.println("Could not open breach range index: " + e.getMessage());
+            return;
+        }
         Scanner scanner = new Scanner(System.in);
         
         System.out.println("=== CYBERSECURITY PASSWORD ANALYZER ===");
@@ -24,13 +100,13 @@ public class Main {
             
             switch (choice) {
                 case 1:
-                    analyzeSinglePassword(analyzer, policy, scanner);
+                    analyzeSinglePassword(analyzer, policy, breachCheck, scanner);
                     break;
                 case 2:
                     testMultiplePasswords(analyzer, policy, scanner);
                     break;
                 case 3:
-                    displaySecurityPolicy();
+                    displaySecurityPolicy(policy);
                     break;
                 case 4:
                     System.out.println("Thank you for using the Password Analyzer!");
@@ -42,37 +118,435 @@ public class Main {
         }
     }
     
+    // Method to create the analyzer, using a common-password index if --index is given
+    // (a file, or a segmented index directory that is watched for new segments), a
+    // pre-filter in front of it if --filter is given and a Markov model if --markov is.
+    // A directory is only read here: compaction is left to --index-compact, so serving
+    // processes never hold a merged key list in memory.
+    static PasswordAnalyzer createAnalyzer(String[] args) {
+        String indexFile = optionValue(args, "--index");
+        String filterFile = optionValue(args, "--filter");
+        String markovFile = optionValue(args, "--markov");
+        PasswordDictionary dictionary;
+        MarkovModel markov;
+        try {
+            if (indexFile == null) {
+                dictionary = new DefaultPasswordDictionary();
+            } else if (Files.isDirectory(Path.of(indexFile))) {
+                // A filter built once would reject passwords added by later deltas
+                if (filterFile != null) {
+                    System.err.println("--filter cannot be used with a segmented index directory");
+                    return null;
+                }
+                SegmentedPasswordIndex segmented = SegmentedPasswordIndex.open(Path.of(indexFile), 0);
+                segmented.watch();
+                dictionary = segmented;
+            } else {
+                dictionary = MappedPasswordIndex.open(Path.of(indexFile));
+            }
+            if (filterFile != null) {
+                dictionary = new FilteredPasswordDictionary(MappedPasswordFilter.open(Path.of(filterFile)), dictionary);
+            }
+            markov = markovFile == null ? null : MarkovModel.open(Path.of(markovFile));
+        } catch (IOException e) {
+            System.err.println("Could not open password data file: " + e.getMessage());
+            return null;
+        }
+        // The special-character settings of --policy are read once; changing them needs a restart
+        String policyFile = optionValue(args, "--policy");
+        try {
+            CharacterClasses classes = policyFile == null
+                    ? CharacterClasses.DEFAULT
+                    : CharacterClasses.load(Path.of(policyFile));
+            return new PasswordAnalyzer(dictionary, classes, markov);
+        } catch (IOException e) {
+            System.err.println("Could not load security policy: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Method to create the policy, loading and watching a properties file if --policy is given
+    static SecurityPolicy createPolicy(String[] args) {
+        String policyFile = optionValue(args, "--policy");
+        if (policyFile == null) {
+            return new SecurityPolicy();
+        }
+        try {
+            SecurityPolicy policy = SecurityPolicy.load(Path.of(policyFile));
+            policy.watch(Path.of(policyFile));
+            return policy;
+        } catch (IOException e) {
+            System.err.println("Could not load security policy: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Method to open the breach range index if --breach <index> is given, or return null
+    static BreachRangeIndex openBreachIndex(String[] args) throws IOException {
+        String indexFile = optionValue(args, "--breach");
+        return indexFile == null ? null : BreachRangeIndex.open(Path.of(indexFile));
+    }
+
+    // Method to create the optional result cache if --cache <entries> is given
+    static AnalysisCache createCache(String[] args, PasswordAnalyzer analyzer, SecurityPolicy policy) {
+        String entries = optionValue(args, "--cache");
+        return entries == null ? null : new AnalysisCache(analyzer, policy, Integer.parseInt(entries));
+    }
+
+    // Method to find the value following an option such as --index
+    static String optionValue(String[] args, String option) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(option)) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+
+    // Method to check whether a flag without a value was given
+    static boolean hasOption(String[] args, String option) {
+        for (String arg : args) {
+            if (arg.equals(option)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Method to build a common-password index: --build-index <wordlist> <index> [fingerprintBits]
+    private static void buildIndex(String[] args) {
+        int bits = args.length > 3 ? Integer.parseInt(args[3]) : PasswordIndexBuilder.DEFAULT_FINGERPRINT_BITS;
+        try {
+            long count = PasswordIndexBuilder.build(Path.of(args[1]), Path.of(args[2]), bits);
+            System.out.println("Indexed " + count + " passwords into " + args[2]);
+        } catch (IOException e) {
+            System.err.println("Could not build password index: " + e.getMessage());
+        }
+    }
+
+    // Method to add a wordlist to a segmented index as a new delta: --index-add <directory> <wordlist>
+    // Running programs that use the directory as --index see it without a restart
+    private static void addIndexDelta(String[] args) {
+        try (SegmentedPasswordIndex index = SegmentedPasswordIndex.open(Path.of(args[1]), 0)) {
+            long count = index.add(Path.of(args[2]));
+            System.out.println("Added " + count + " passwords to " + args[1] + " (" + index.deltaCount()
+                    + " deltas waiting for compaction)");
+            if (index.deltaCount() >= SegmentedPasswordIndex.DEFAULT_MAX_DELTAS) {
+                System.out.println("Run --index-compact " + args[1] + " to merge them into the base");
+            }
+        } catch (IOException e) {
+            System.err.println("Could not add to password index: " + e.getMessage());
+        }
+    }
+
+    // Method to merge the deltas of a segmented index into a new base: --index-compact <directory>
+    private static void compactIndex(String[] args) {
+        try (SegmentedPasswordIndex index = SegmentedPasswordIndex.open(Path.of(args[1]), 0)) {
+            long start = System.nanoTime();
+            if (index.compact()) {
+                System.out.printf("Compacted %s into a base of %d passwords in %.1f seconds%n",
+                        args[1], index.baseSize(), (System.nanoTime() - start) / 1e9);
+            } else {
+                System.out.println("Nothing to compact in " + args[1] + ", or another compaction is running");
+            }
+        } catch (IOException e) {
+            System.err.println("Could not compact password index: " + e.getMessage());
+        }
+    }
+
+    // Method to build a breach range index: --build-range <corpus> <index>
+    // The corpus holds "SHA1HEX:COUNT" lines, plain passwords, or a mix of both
+    private static void buildRangeIndex(String[] args) {
+        try {
+            long start = System.nanoTime();
+            long count = BreachRangeIndexBuilder.build(Path.of(args[1]), Path.of(args[2]));
+            System.out.printf("Indexed %d distinct hashes into %s in %.1f seconds%n",
+                    count, args[2], (System.nanoTime() - start) / 1e9);
+        } catch (IOException e) {
+            System.err.println("Could not build breach range index: " + e.getMessage());
+        }
+    }
+
+    // Method to print one range of a breach range index: --range <index> <first five hex characters>
+    private static void printRange(String[] args) {
+        int prefix = BreachRangeIndex.parsePrefix(args[2]);
+        if (prefix < 0) {
+            System.err.println("A range prefix is five hex characters, such as 5BAA6");
+            return;
+        }
+        try {
+            StringBuilder text = new StringBuilder();
+            BreachRangeIndex.open(Path.of(args[1])).writeRange(prefix, text);
+            System.out.print(text);
+        } catch (IOException e) {
+            System.err.println("Could not read breach range index: " + e.getMessage());
+        }
+    }
+
+    // Method to build a common-password pre-filter: --build-filter <wordlist> <filter> [falsePositiveRate]
+    private static void buildFilter(String[] args) {
+        double rate = args.length > 3 ? Double.parseDouble(args[3]) : PasswordFilterBuilder.DEFAULT_FALSE_POSITIVE_RATE;
+        try {
+            long count = PasswordFilterBuilder.build(Path.of(args[1]), Path.of(args[2]), rate);
+            MappedPasswordFilter filter = MappedPasswordFilter.open(Path.of(args[2]));
+            System.out.println("Filtered " + count + " passwords into " + args[2]);
+            System.out.printf("Size: %d bytes (%.2f bits per password)%n", filter.sizeInBytes(), filter.bitsPerKey());
+            System.out.printf("False-positive rate: %.6f measured, %.6f expected%n",
+                    filter.measureFalsePositiveRate(1_000_000), filter.expectedFalsePositiveRate());
+        } catch (IOException e) {
+            System.err.println("Could not build password filter: " + e.getMessage());
+        }
+    }
+
+    // Method to train a Markov model: --build-markov <corpus|-> <model> [order] [--threads n]
+    // A file is counted on every core; "-" reads the corpus from stdin on one thread
+    private static void buildMarkovModel(String[] args) {
+        int order = args.length > 3 && !args[3].startsWith("--")
+                ? Integer.parseInt(args[3]) : MarkovModelBuilder.DEFAULT_ORDER;
+        String threads = optionValue(args, "--threads");
+        int workers = threads == null ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(threads);
+        try {
+            long start = System.nanoTime();
+            long count = args[1].equals("-")
+                    ? MarkovModelBuilder.build(System.in, Path.of(args[2]), order)
+                    : MarkovModelBuilder.build(Path.of(args[1]), Path.of(args[2]), order, workers);
+            System.out.printf("Trained an order-%d model on %d passwords into %s in %.1f seconds%n",
+                    order, count, args[2], (System.nanoTime() - start) / 1e9);
+        } catch (IOException e) {
+            System.err.println("Could not build Markov model: " + e.getMessage());
+        }
+    }
+
+    // Method to run a batch audit: --audit <input|-> [--out <output|->] [--format csv|jsonl|text]
+    // [--footer] ends the output with totals; [--summary <file|->] writes corpus
+    // statistics at the end ("-" for stderr); [--store <file>] keeps the results in a
+    // columnar result store, and then only writes a report if --out is also given
+    private static void runAudit(String[] args) {
+        String output = optionValue(args, "--out");
+        String store = optionValue(args, "--store");
+        if (output == null && store == null) {
+            output = "-";
+        }
+        // A bad --format is reported before any file is opened or written
+        ReportWriter.Format format;
+        try {
+            format = output == null ? null : ReportWriter.formatFor(optionValue(args, "--format"), output);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown --format " + optionValue(args, "--format") + "; use csv, jsonl or text");
+            return;
+        }
+        PasswordAnalyzer analyzer = createAnalyzer(args);
+        if (analyzer == null) {
+            return;
+        }
+        SecurityPolicy policy = createPolicy(args);
+        if (policy == null) {
+            return;
+        }
+        BatchAuditor auditor = new BatchAuditor(analyzer, policy);
+        String summary = optionValue(args, "--summary");
+        AuditStatistics statistics = summary == null ? null : new AuditStatistics();
+        auditor.setStatistics(statistics);
+        auditor.setFooter(hasOption(args, "--footer"));
+        try (AuditResultWriter results = store == null ? null : new AuditResultWriter(Path.of(store))) {
+            auditor.setResultStore(results);
+            long start = System.nanoTime();
+            long records = auditor.audit(args[1], output, format);
+            System.err.printf("Audited %d passwords in %.1f seconds%n", records, (System.nanoTime() - start) / 1e9);
+            if (statistics != null) {
+                if (summary.equals("-")) {
+                    System.err.print(statistics.summary());
+                } else {
+                    Files.writeString(Path.of(summary), statistics.summary());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Audit failed: " + e.getMessage());
+        }
+    }
+
+    // Method to print compliance, failures per rule and levels from a result store
+    // written by --audit --store: --store-report <file>
+    private static void reportStore(String[] args) {
+        try {
+            System.out.print(AuditResultStore.open(Path.of(args[1])).summary());
+        } catch (IOException e) {
+            System.err.println("Could not read audit results: " + e.getMessage());
+        }
+    }
+
+    // Method to run the HTTP service: --serve [--port 8080] [--cache entries] [--breach index]
+    // With --breach the service also answers /range/ABCDE queries
+    private static void runServer(String[] args) {
+        PasswordAnalyzer analyzer = createAnalyzer(args);
+        SecurityPolicy policy = createPolicy(args);
+        if (analyzer == null || policy == null) {
+            return;
+        }
+        String port = optionValue(args, "--port");
+        try {
+            AnalysisServer server = new AnalysisServer(analyzer, policy, createCache(args, analyzer, policy));
+            BreachRangeIndex breaches = openBreachIndex(args);
+            if (breaches != null) {
+                server.serveRanges(breaches);
+            }
+            int bound = server.start(port == null ? 8080 : Integer.parseInt(port));
+            System.out.println("Password analysis service listening on port " + bound);
+        } catch (IOException e) {
+            System.err.println("Could not start service: " + e.getMessage());
+        }
+    }
+
+    // Method to load-test a running service:
+    // --load-test <url> [--workers n] [--seconds s] [--warmup s] [--batch k]
+    private static void runLoadTest(String[] args) {
+        String workers = optionValue(args, "--workers");
+        String seconds = optionValue(args, "--seconds");
+        String warmup = optionValue(args, "--warmup");
+        String batch = optionValue(args, "--batch");
+        LoadTestClient client = new LoadTestClient(args[1],
+                workers == null ? 64 : Integer.parseInt(workers),
+                seconds == null ? 10 : Integer.parseInt(seconds),
+                warmup == null ? 3 : Integer.parseInt(warmup),
+                batch == null ? 1 : Integer.parseInt(batch));
+        try {
+            client.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Method to run the check daemon: --daemon <socket>
+    private static void runDaemon(String[] args) {
+        PasswordAnalyzer analyzer = createAnalyzer(args);
+        SecurityPolicy policy = createPolicy(args);
+        if (analyzer == null || policy == null) {
+            return;
+        }
+        CheckDaemon daemon = new CheckDaemon(analyzer, policy);
+        try {
+            daemon.start(Path.of(args[1]));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    daemon.stop();
+                } catch (IOException e) {
+                    // The socket file is replaced on the next start anyway
+                }
+            }));
+            System.out.println("Password check daemon listening on " + args[1]);
+        } catch (IOException e) {
+            System.err.println("Could not start daemon: " + e.getMessage());
+        }
+    }
+
+    // Method to load-test a running daemon:
+    // --daemon-load-test <socket> [--connections n] [--depth d] [--seconds s] [--warmup s]
+    private static void runDaemonLoadTest(String[] args) {
+        String connections = optionValue(args, "--connections");
+        String depth = optionValue(args, "--depth");
+        String seconds = optionValue(args, "--seconds");
+        String warmup = optionValue(args, "--warmup");
+        DaemonLoadTestClient client = new DaemonLoadTestClient(Path.of(args[1]),
+                connections == null ? 4 : Integer.parseInt(connections),
+                depth == null ? 16 : Integer.parseInt(depth),
+                seconds == null ? 10 : Integer.parseInt(seconds),
+                warmup == null ? 3 : Integer.parseInt(warmup));
+        try {
+            client.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Method to generate policy-compliant passwords in bulk:
+    // --generate <count> [--out file] [--length n] [--threads n]
+    private static void runGenerator(String[] args) {
+        PasswordAnalyzer analyzer = createAnalyzer(args);
+        SecurityPolicy policy = createPolicy(args);
+        if (analyzer == null || policy == null) {
+            return;
+        }
+        String output = optionValue(args, "--out");
+        String length = optionValue(args, "--length");
+        String threads = optionValue(args, "--threads");
+        PasswordGenerator generator = new PasswordGenerator(analyzer, policy,
+                length == null ? PasswordGenerator.DEFAULT_LENGTH : Integer.parseInt(length));
+        int workers = threads == null ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(threads);
+        long count = Long.parseLong(args[1]);
+        try {
+            long start = System.nanoTime();
+            long written = output == null || output.equals("-")
+                    ? generator.generate(count, Channels.newChannel(System.out), workers)
+                    : generator.generate(count, Path.of(output), workers);
+            System.err.printf("Generated %d passwords in %.1f seconds%n", written, (System.nanoTime() - start) / 1e9);
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("Generation failed: " + e.getMessage());
+        }
+    }
+
     // Method to analyze a single password
-    private static void analyzeSinglePassword(PasswordAnalyzer analyzer, SecurityPolicy policy, Scanner scanner) {
+    private static void analyzeSinglePassword(PasswordAnalyzer analyzer, SecurityPolicy policy,
+                                              BreachCheck breachCheck, Scanner scanner) {
         System.out.print("Enter password to analyze: ");
         String password = scanner.nextLine();
+        PasswordAnalysis analysis = analyzer.analyze(password);
         
-        // Generate and display the compliance report
-        String report = policy.generateComplianceReport(password, analyzer);
-        System.out.println("\n" + report);
+        // Write the compliance report straight to the console
+        System.out.println();
+        try {
+            policy.writeComplianceReport(analysis, System.out);
+        } catch (IOException e) {
+            // PrintStream never throws; it sets its error flag instead
+        }
+        System.out.println();
+
+        // Pattern-based estimate (keyboard walks, sequences, repeats, dates)
+        GuessEstimate estimate = analyzer.estimateGuesses(password);
+        System.out.printf("Estimated guesses: 10^%.1f (cracked in %s offline)%n",
+                estimate.getLog10Guesses(), estimate.getCrackTimeDisplay());
+        System.out.println("Pattern-based level: " + analyzer.getStrengthLevel(estimate));
+        GuessEstimate markovEstimate = analyzer.estimateMarkovGuesses(password);
+        if (markovEstimate != null) {
+            System.out.printf("Markov model estimate: 10^%.1f guesses, level %s%n",
+                    markovEstimate.getLog10Guesses(), analyzer.getStrengthLevel(markovEstimate));
+        }
+        long breachCount = 0;
+        if (breachCheck != null) {
+            try {
+                breachCount = breachCheck.breachCount(password);
+                System.out.println("Seen in breaches: " + breachCount + " times");
+            } catch (IOException e) {
+                System.out.println("Breach check failed: " + e.getMessage());
+            }
+        }
+        System.out.println();
         
         // Provide recommendations if password is not compliant
-        if (!policy.isCompliant(password, analyzer)) {
+        if (!policy.isCompliant(analysis)) {
             System.out.println("RECOMMENDATIONS FOR IMPROVEMENT:");
-            if (!analyzer.checkMinimumLength(password, SecurityPolicy.MINIMUM_LENGTH)) {
-                System.out.println("- Increase password length to at least " + SecurityPolicy.MINIMUM_LENGTH + " characters");
+            int minimumLength = policy.current().getMinimumLength();
+            if (!analysis.meetsMinimumLength(minimumLength)) {
+                System.out.println("- Increase password length to at least " + minimumLength + " characters");
             }
-            if (!analyzer.hasUppercase(password)) {
+            if (!analysis.hasUppercase()) {
                 System.out.println("- Add uppercase letters (A-Z)");
             }
-            if (!analyzer.hasLowercase(password)) {
+            if (!analysis.hasLowercase()) {
                 System.out.println("- Add lowercase letters (a-z)");
             }
-            if (!analyzer.hasNumbers(password)) {
+            if (!analysis.hasNumbers()) {
                 System.out.println("- Add numbers (0-9)");
             }
-            if (!analyzer.hasSpecialCharacters(password)) {
+            if (!analysis.hasSpecialCharacters()) {
                 System.out.println("- Add special characters (!@#$%^&*...)");
             }
-            if (analyzer.isCommonPassword(password)) {
+            if (analysis.isCommonPassword()) {
                 System.out.println("- Avoid common passwords - use something unique");
             }
         }
+        if (breachCount > 0) {
+            System.out.println("WARNING: this exact password has appeared in data breaches - do not use it anywhere");
+        }
     }
     
     // Method to test multiple passwords at once
@@ -87,28 +561,31 @@ public class Main {
         
         System.out.println("\n=== TESTING MULTIPLE PASSWORDS ===");
         for (String pwd : testPasswords) {
-            int score = analyzer.calculateStrengthScore(pwd);
-            String level = analyzer.getStrengthLevel(score);
-            boolean compliant = policy.isCompliant(pwd, analyzer);
+            PasswordAnalysis analysis = analyzer.analyze(pwd);
+            boolean compliant = policy.isCompliant(analysis);
             
             System.out.printf("Password: %-20s | Score: %3d | Level: %-10s | Compliant: %s%n", 
-                            pwd, score, level, compliant ? "YES" : "NO");
+                            pwd, analysis.getScore(), analysis.getStrengthLevel(), compliant ? "YES" : "NO");
         }
     }
     
     // Method to display the current security policy
-    private static void displaySecurityPolicy() {
+    private static void displaySecurityPolicy(SecurityPolicy policy) {
+        CompiledPolicy rules = policy.current();
         System.out.println("\n=== ORGANIZATIONAL SECURITY POLICY ===");
         System.out.println("Based on ISO 22301 Standards");
         System.out.println("Defined by GCS (Governance Cyber Security) Team\n");
         
         System.out.println("Password Requirements:");
-        System.out.println("• Minimum length: " + SecurityPolicy.MINIMUM_LENGTH + " characters");
-        System.out.println("• Must contain uppercase letters: " + (SecurityPolicy.REQUIRE_UPPERCASE ? "YES" : "NO"));
-        System.out.println("• Must contain lowercase letters: " + (SecurityPolicy.REQUIRE_LOWERCASE ? "YES" : "NO"));
-        System.out.println("• Must contain numbers: " + (SecurityPolicy.REQUIRE_NUMBERS ? "YES" : "NO"));
-        System.out.println("• Must contain special characters: " + (SecurityPolicy.REQUIRE_SPECIAL_CHARS ? "YES" : "NO"));
-        System.out.println("• Minimum security score required: " + SecurityPolicy.MINIMUM_SCORE_REQUIRED + "/100");
-        System.out.println("• Cannot be a common/weak password");
+        System.out.println("• Minimum length: " + rules.getMinimumLength() + " characters");
+        System.out.println("• Must contain uppercase letters: " + (rules.requiresUppercase() ? "YES" : "NO"));
+        System.out.println("• Must contain lowercase letters: " + (rules.requiresLowercase() ? "YES" : "NO"));
+        System.out.println("• Must contain numbers: " + (rules.requiresNumbers() ? "YES" : "NO"));
+        System.out.println("• Must contain special characters: " + (rules.requiresSpecialChars() ? "YES" : "NO"));
+        System.out.println("• Minimum security score required: " + rules.getMinimumScore() + "/100");
+        System.out.println("• Cannot be a common/weak password: " + (rules.rejectsCommon() ? "YES" : "NO"));
+        ContextSimilarity similarity = rules.getSimilarity();
+        System.out.println("• Cannot be close to username, email or old password: "
+                + (similarity == null ? "NO" : "YES (within " + similarity.getMaxDistance() + " edits)"));
     }
 }
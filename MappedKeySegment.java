@@ -0,0 +1,104 @@
+import java.io.IOException;
+import java.nio.file.Path;
+
+public final class MappedKeySegment {
+    // This class is a memory-mapped, sorted array of PasswordHash.hash64 values: one
+    // delta segment of a SegmentedPasswordIndex, and the full key list kept next to
+    // its base index. Hashes are spread evenly, so their top bits split the keys into
+    // buckets of about one key each. A directory of the index of the first key in every
+    // bucket (an int per key, built by one pass over the file when it is opened) takes a
+    // lookup straight to its bucket, and the few keys in it are compared in order.
+    //
+    // File layout (little-endian):
+    //   int magic, int version, long keyCount, keyCount x long hash (ascending, unique)
+
+    static final int MAGIC = 0x534B5750; // "PWKS"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    // The directory has at most 2^MAX_DIRECTORY_BITS buckets
+    private static final int MAX_DIRECTORY_BITS = 30;
+
+    private final MappedRegion region;
+    private final long keyCount;
+    private final int directoryBits;
+    // Null when the file was opened by openKeys()
+    private final int[] directory;
+
+    private MappedKeySegment(MappedRegion region, boolean lookups) throws IOException {
+        this.region = region;
+        if (region.size() < HEADER_SIZE || region.getInt(0) != MAGIC) {
+            throw new IOException("Not a password key file");
+        }
+        if (region.getInt(4) != VERSION) {
+            throw new IOException("Unsupported password key file version " + region.getInt(4));
+        }
+        keyCount = region.getLong(8);
+        if (HEADER_SIZE + 8 * keyCount > region.size()) {
+            throw new IOException("Password key file is truncated");
+        }
+        directoryBits = Math.max(1, Math.min(MAX_DIRECTORY_BITS, 64 - Long.numberOfLeadingZeros(keyCount)));
+        directory = lookups ? buildDirectory() : null;
+    }
+
+    // Method to open a key file written by write() for lookups; the directory is built
+    // here, on the opening thread, so that no lookup pays for it
+    public static MappedKeySegment open(Path file) throws IOException {
+        return new MappedKeySegment(MappedRegion.map(file), true);
+    }
+
+    // Method to open a key file only to read its keys in order, as compaction does
+    static MappedKeySegment openKeys(Path file) throws IOException {
+        return new MappedKeySegment(MappedRegion.map(file), false);
+    }
+
+    // Method to write sorted, unique hashes [0, count) as a key file
+    static void write(long[] keys, int count, Path file) throws IOException {
+        try (BinaryWriter out = new BinaryWriter(file)) {
+            out.putInt(MAGIC).putInt(VERSION).putLong(count);
+            for (int i = 0; i < count; i++) {
+                out.putLong(keys[i]);
+            }
+        }
+    }
+
+    public long size() {
+        return keyCount;
+    }
+
+    long keyAt(long index) {
+        return region.getLong(HEADER_SIZE + 8 * index);
+    }
+
+    // Method to look up a password by its PasswordHash.hash64 value
+    public boolean containsHash(long key) {
+        int[] starts = directory;
+        if (starts == null) {
+            throw new IllegalStateException("Key file was opened without a lookup directory");
+        }
+        int bucket = (int) ((key ^ Long.MIN_VALUE) >>> (64 - directoryBits));
+        for (long i = starts[bucket], end = starts[bucket + 1]; i < end; i++) {
+            long candidate = keyAt(i);
+            if (candidate >= key) {
+                return candidate == key;
+            }
+        }
+        return false;
+    }
+
+    // Method to build the index of the first key of every bucket, plus the key count
+    private int[] buildDirectory() {
+        int[] starts = new int[(1 << directoryBits) + 1];
+        int bucket = 0;
+        for (long i = 0; i < keyCount; i++) {
+            int keyBucket = (int) ((keyAt(i) ^ Long.MIN_VALUE) >>> (64 - directoryBits));
+            while (bucket <= keyBucket) {
+                starts[bucket++] = (int) i;
+            }
+        }
+        while (bucket < starts.length) {
+            starts[bucket++] = (int) keyCount;
+        }
+        return starts;
+    }
+}
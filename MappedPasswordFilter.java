@@ -0,0 +1,122 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+public class MappedPasswordFilter {
+    // This class is a memory-mapped binary fuse filter over common passwords
+    // It answers "definitely not listed" or "maybe listed" and is built by
+    // PasswordFilterBuilder. Only "maybe" answers need the exact index.
+    //
+    // File layout (little-endian):
+    //   int magic, int version, int fingerprintBits, int segmentLength,
+    //   long seed, long keyCount, long segmentCountLength, long arrayLength,
+    //   arrayLength x fingerprint (1, 2 or 4 bytes each)
+
+    static final int MAGIC = 0x46425750; // "PWBF"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 48;
+
+    private final MappedRegion region;
+    private final int fingerprintBytes;
+    private final long fingerprintMask;
+    private final int segmentLength;
+    private final long segmentLengthMask;
+    private final long seed;
+    private final long keyCount;
+    private final long segmentCountLength;
+    private final long arrayLength;
+
+    private MappedPasswordFilter(MappedRegion region) throws IOException {
+        this.region = region;
+        if (region.size() < HEADER_SIZE || region.getInt(0) != MAGIC) {
+            throw new IOException("Not a password filter file");
+        }
+        if (region.getInt(4) != VERSION) {
+            throw new IOException("Unsupported password filter version " + region.getInt(4));
+        }
+        int fingerprintBits = region.getInt(8);
+        fingerprintBytes = fingerprintBits / 8;
+        fingerprintMask = (1L << fingerprintBits) - 1;
+        segmentLength = region.getInt(12);
+        segmentLengthMask = segmentLength - 1;
+        seed = region.getLong(16);
+        keyCount = region.getLong(24);
+        segmentCountLength = region.getLong(32);
+        arrayLength = region.getLong(40);
+        if (HEADER_SIZE + arrayLength * fingerprintBytes > region.size()) {
+            throw new IOException("Password filter file is truncated");
+        }
+    }
+
+    // Method to open a filter file written by PasswordFilterBuilder
+    public static MappedPasswordFilter open(Path file) throws IOException {
+        return new MappedPasswordFilter(MappedRegion.map(file));
+    }
+
+    // Method to check a password that has already been folded with toLowerCase()
+    public boolean mayContain(CharSequence lowerPassword) {
+        return mayContainHash(PasswordHash.hash64(lowerPassword));
+    }
+
+    // Method to check a password by its PasswordHash.hash64 value
+    public boolean mayContainHash(long key) {
+        long hash = PasswordHash.mix(key + seed);
+        long h0 = position0(hash, segmentCountLength);
+        long h1 = h0 + segmentLength;
+        long h2 = h1 + segmentLength;
+        h1 ^= (hash >>> 18) & segmentLengthMask;
+        h2 ^= hash & segmentLengthMask;
+        long f = fingerprint(hash, fingerprintMask);
+        return (f ^ fingerprintAt(h0) ^ fingerprintAt(h1) ^ fingerprintAt(h2)) == 0;
+    }
+
+    // Method to measure the false-positive rate with random keys that are not in the filter
+    public double measureFalsePositiveRate(int probes) {
+        SplittableRandom random = new SplittableRandom(probes);
+        long hits = 0;
+        for (int i = 0; i < probes; i++) {
+            if (mayContainHash(random.nextLong())) {
+                hits++;
+            }
+        }
+        return (double) hits / probes;
+    }
+
+    // Method to get the number of passwords the filter was built from
+    public long size() {
+        return keyCount;
+    }
+
+    // Method to get the mapped size of the filter in bytes
+    public long sizeInBytes() {
+        return region.size();
+    }
+
+    // Method to get the memory cost per listed password
+    public double bitsPerKey() {
+        return keyCount == 0 ? 0 : 8.0 * sizeInBytes() / keyCount;
+    }
+
+    // Method to get the theoretical false-positive rate for the fingerprint size
+    public double expectedFalsePositiveRate() {
+        return 1.0 / (fingerprintMask + 1);
+    }
+
+    private long fingerprintAt(long index) {
+        long position = HEADER_SIZE + index * fingerprintBytes;
+        switch (fingerprintBytes) {
+            case 1: return region.getByte(position) & 0xFFL;
+            case 2: return region.getShort(position) & 0xFFFFL;
+            default: return region.getInt(position) & 0xFFFFFFFFL;
+        }
+    }
+
+    static long position0(long hash, long segmentCountLength) {
+        // Unsigned high half of hash * segmentCountLength
+        return Math.multiplyHigh(hash, segmentCountLength) + ((hash >> 63) & segmentCountLength);
+    }
+
+    static long fingerprint(long hash, long mask) {
+        return (hash ^ (hash >>> 32)) & mask;
+    }
+}
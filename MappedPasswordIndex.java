@@ -0,0 +1,131 @@
+import java.io.IOException;
+import java.nio.file.Path;
+
+public class MappedPasswordIndex implements PasswordDictionary {
+    // This class answers common-password lookups from a memory-mapped index file
+    // built by PasswordIndexBuilder. The file holds a minimal perfect hash (levels of
+    // bit arrays, BBHash style) that maps every listed password to a slot, and each
+    // slot stores a short fingerprint of the password it belongs to.
+    //
+    // File layout (little-endian):
+    //   int magic, int version, long keyCount, int fingerprintBits, int levelCount,
+    //   long wordCount, levelCount x (long bitOffset, long bitCount),
+    //   wordCount x long level bits, ceil(wordCount / 8) x long rank samples,
+    //   keyCount x fingerprint (1, 2 or 4 bytes each)
+
+    static final int MAGIC = 0x58495750; // "PWIX"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int WORDS_PER_RANK = 8;
+
+    private static final long FINGERPRINT_SEED = 0x6A09E667F3BCC909L;
+
+    private final MappedRegion region;
+    private final long keyCount;
+    private final int fingerprintBits;
+    private final int fingerprintBytes;
+    private final long fingerprintMask;
+    private final long[] levelOffsets;
+    private final long[] levelSizes;
+    private final long wordsOffset;
+    private final long ranksOffset;
+    private final long fingerprintsOffset;
+
+    private MappedPasswordIndex(MappedRegion region) throws IOException {
+        this.region = region;
+        if (region.size() < HEADER_SIZE || region.getInt(0) != MAGIC) {
+            throw new IOException("Not a password index file");
+        }
+        if (region.getInt(4) != VERSION) {
+            throw new IOException("Unsupported password index version " + region.getInt(4));
+        }
+        keyCount = region.getLong(8);
+        fingerprintBits = region.getInt(16);
+        int levelCount = region.getInt(20);
+        long wordCount = region.getLong(24);
+
+        fingerprintBytes = fingerprintBits / 8;
+        fingerprintMask = fingerprintBits == 64 ? -1L : (1L << fingerprintBits) - 1;
+        levelOffsets = new long[levelCount];
+        levelSizes = new long[levelCount];
+        for (int i = 0; i < levelCount; i++) {
+            levelOffsets[i] = region.getLong(HEADER_SIZE + 16L * i);
+            levelSizes[i] = region.getLong(HEADER_SIZE + 16L * i + 8);
+        }
+        wordsOffset = HEADER_SIZE + 16L * levelCount;
+        ranksOffset = wordsOffset + 8 * wordCount;
+        fingerprintsOffset = ranksOffset + 8 * rankCount(wordCount);
+        if (fingerprintsOffset + keyCount * fingerprintBytes > region.size()) {
+            throw new IOException("Password index file is truncated");
+        }
+    }
+
+    // Method to open an index file written by PasswordIndexBuilder
+    public static MappedPasswordIndex open(Path file) throws IOException {
+        return new MappedPasswordIndex(MappedRegion.map(file));
+    }
+
+    @Override
+    public boolean contains(CharSequence lowerPassword) {
+        return containsHash(PasswordHash.hash64(lowerPassword));
+    }
+
+    @Override
+    public boolean contains(CharSequence lowerPassword, long hash) {
+        return containsHash(hash);
+    }
+
+    // Method to look up a password by its PasswordHash.hash64 value
+    public boolean containsHash(long key) {
+        for (int level = 0; level < levelOffsets.length; level++) {
+            long bit = levelOffsets[level] + PasswordHash.reduce(levelHash(key, level), levelSizes[level]);
+            long word = region.getLong(wordsOffset + 8 * (bit >>> 6));
+            if ((word & (1L << bit)) != 0) {
+                long slot = rank(bit);
+                return fingerprintAt(slot) == fingerprint(key, fingerprintMask);
+            }
+        }
+        return false;
+    }
+
+    // Method to get the number of passwords in the index
+    public long size() {
+        return keyCount;
+    }
+
+    public int getFingerprintBits() {
+        return fingerprintBits;
+    }
+
+    private long rank(long bit) {
+        long wordIndex = bit >>> 6;
+        long block = wordIndex / WORDS_PER_RANK;
+        long count = region.getLong(ranksOffset + 8 * block);
+        for (long w = block * WORDS_PER_RANK; w < wordIndex; w++) {
+            count += Long.bitCount(region.getLong(wordsOffset + 8 * w));
+        }
+        long word = region.getLong(wordsOffset + 8 * wordIndex);
+        return count + Long.bitCount(word & ((1L << bit) - 1));
+    }
+
+    private long fingerprintAt(long slot) {
+        long position = fingerprintsOffset + slot * fingerprintBytes;
+        switch (fingerprintBytes) {
+            case 1: return region.getByte(position) & 0xFFL;
+            case 2: return region.getShort(position) & 0xFFFFL;
+            default: return region.getInt(position) & 0xFFFFFFFFL;
+        }
+    }
+
+    static long levelHash(long key, int level) {
+        return PasswordHash.mix(key + (level + 1) * 0x9E3779B97F4A7C15L);
+    }
+
+    static long fingerprint(long key, long mask) {
+        return PasswordHash.mix(key ^ FINGERPRINT_SEED) & mask;
+    }
+
+    static long rankCount(long wordCount) {
+        return (wordCount + WORDS_PER_RANK - 1) / WORDS_PER_RANK;
+    }
+}
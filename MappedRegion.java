@@ -0,0 +1,78 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public final class MappedRegion {
+    // This class memory-maps a read-only file that may be larger than 2GB
+    // The file is mapped in 1GB chunks; values must be aligned to their own size
+    // so that no value ever straddles two chunks
+
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final MappedByteBuffer[] chunks;
+    private final long size;
+
+    private MappedRegion(MappedByteBuffer[] chunks, long size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    // Method to map a whole file; the channel is closed again once mapped
+    public static MappedRegion map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int chunkCount = (int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT);
+            MappedByteBuffer[] chunks = new MappedByteBuffer[Math.max(1, chunkCount)];
+            for (int i = 0; i < chunks.length; i++) {
+                long start = (long) i << CHUNK_SHIFT;
+                long length = Math.min(CHUNK_MASK + 1, size - start);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0, length));
+                chunks[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new MappedRegion(chunks, size);
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public byte getByte(long position) {
+        return chunks[(int) (position >>> CHUNK_SHIFT)].get((int) (position & CHUNK_MASK));
+    }
+
+    public short getShort(long position) {
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getShort((int) (position & CHUNK_MASK));
+    }
+
+    public int getInt(long position) {
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getInt((int) (position & CHUNK_MASK));
+    }
+
+    public long getLong(long position) {
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getLong((int) (position & CHUNK_MASK));
+    }
+
+    // Method to get bytes [position, position + length) as a buffer: a view of the
+    // mapping, or a copy when the range crosses from one chunk into the next
+    public ByteBuffer slice(long position, int length) {
+        int chunk = (int) (position >>> CHUNK_SHIFT);
+        int offset = (int) (position & CHUNK_MASK);
+        if (offset + (long) length <= chunks[chunk].capacity()) {
+            return chunks[chunk].slice(offset, length).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        ByteBuffer copy = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (copy.hasRemaining()) {
+            int n = Math.min(copy.remaining(), chunks[chunk].capacity() - offset);
+            copy.put(chunks[chunk].slice(offset, n));
+            chunk++;
+            offset = 0;
+        }
+        return copy.flip();
+    }
+}
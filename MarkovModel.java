@@ -0,0 +1,147 @@
+import java.io.IOException;
+import java.nio.file.Path;
+
+public final class MarkovModel {
+    // This class scores passwords with a character n-gram Markov model read from a
+    // memory-mapped file built by MarkovModelBuilder. The probability of a password is
+    // the product of P(next char | previous order - 1 chars) over its chars and the
+    // end of the password; the file stores each of these as a one-byte cost,
+    // -log2(P) in eighths of a bit, so scoring is one table lookup and one add per char.
+    // Guess numbers come from the Monte Carlo method of Dell'Amico and Filippone
+    // (2015): passwords sampled from the model at build time tell how many passwords
+    // an attacker guessing in probability order tries first. The file keeps the
+    // result for every total cost up to the rarest sample, so it is one lookup too.
+    //
+    // File layout (little-endian):
+    //   int magic, int version, int order, int symbolCount, int costScale,
+    //   int guessCount, long tableSize, long passwordCount,
+    //   guessCount x float log10 guesses for a password of that total cost,
+    //   tableSize x byte cost, indexed by context * symbolCount + symbol
+
+    static final int MAGIC = 0x4B4D5750; // "PWMK"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 40;
+
+    // Symbols: 0 is the boundary (before the first char, and the end of the password),
+    // 1..95 are printable ASCII, 96 stands for every other char
+    static final int SYMBOLS = 97;
+    static final int OTHER_SYMBOL = 96;
+
+    // Costs are stored in eighths of a bit; 255 (about 32 bits) is the most a char can cost
+    static final int COST_SCALE = 8;
+    static final int MAX_COST = 255;
+
+    public static final int MIN_ORDER = 2;
+    public static final int MAX_ORDER = 4;
+
+    private static final double LOG10_2 = Math.log10(2);
+
+    private final MappedRegion region;
+    private final int order;
+    private final int guessCount;
+    private final long passwordCount;
+    private final long tableOffset;
+    // Weight of the symbol that leaves the context on the next step: SYMBOLS^(order - 2)
+    private final int oldestWeight;
+
+    private MarkovModel(MappedRegion region) throws IOException {
+        this.region = region;
+        if (region.size() < HEADER_SIZE || region.getInt(0) != MAGIC) {
+            throw new IOException("Not a Markov model file");
+        }
+        if (region.getInt(4) != VERSION) {
+            throw new IOException("Unsupported Markov model version " + region.getInt(4));
+        }
+        order = region.getInt(8);
+        if (order < MIN_ORDER || order > MAX_ORDER || region.getInt(12) != SYMBOLS
+                || region.getInt(16) != COST_SCALE) {
+            throw new IOException("Unsupported Markov model shape");
+        }
+        guessCount = region.getInt(20);
+        long tableSize = region.getLong(24);
+        if (guessCount < 1 || tableSize != tableSize(order)) {
+            throw new IOException("Markov model tables have the wrong size");
+        }
+        passwordCount = region.getLong(32);
+        tableOffset = HEADER_SIZE + 4L * guessCount;
+        if (tableOffset + tableSize > region.size()) {
+            throw new IOException("Markov model file is truncated");
+        }
+        oldestWeight = (int) Math.pow(SYMBOLS, order - 2);
+    }
+
+    // Method to open a model file written by MarkovModelBuilder
+    public static MarkovModel open(Path file) throws IOException {
+        return new MarkovModel(MappedRegion.map(file));
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    // Number of passwords the model was trained on
+    public long getPasswordCount() {
+        return passwordCount;
+    }
+
+    // Number of costs in the table of a model of this order
+    static long tableSize(int order) {
+        return (long) Math.pow(SYMBOLS, order);
+    }
+
+    static int symbol(char c) {
+        return c >= ' ' && c <= '~' ? c - ' ' + 1 : OTHER_SYMBOL;
+    }
+
+    // Method to get -log2 of the probability of a password, in COST_SCALE units
+    public int cost(CharSequence password) {
+        int length = password.length();
+        int context = 0;
+        int cost = 0;
+        for (int i = 0; i < length; i++) {
+            int symbol = symbol(password.charAt(i));
+            cost += region.getByte(tableOffset + (long) context * SYMBOLS + symbol) & 0xFF;
+            // Drop the oldest symbol of the context and append this one
+            int oldest = i >= order - 1 ? symbol(password.charAt(i - order + 1)) : 0;
+            context = (context - oldest * oldestWeight) * SYMBOLS + symbol;
+        }
+        return cost + (region.getByte(tableOffset + (long) context * SYMBOLS) & 0xFF);
+    }
+
+    public int cost(char[] password, int offset, int length) {
+        int context = 0;
+        int cost = 0;
+        for (int i = 0; i < length; i++) {
+            int symbol = symbol(password[offset + i]);
+            cost += region.getByte(tableOffset + (long) context * SYMBOLS + symbol) & 0xFF;
+            int oldest = i >= order - 1 ? symbol(password[offset + i - order + 1]) : 0;
+            context = (context - oldest * oldestWeight) * SYMBOLS + symbol;
+        }
+        return cost + (region.getByte(tableOffset + (long) context * SYMBOLS) & 0xFF);
+    }
+
+    // Method to get -log2 of the probability of a password under the model
+    public double bits(CharSequence password) {
+        return (double) cost(password) / COST_SCALE;
+    }
+
+    // Method to estimate how many guesses an attacker who guesses in the model's
+    // probability order needs for a password
+    public GuessEstimate estimate(CharSequence password) {
+        return new GuessEstimate(log10Guesses(cost(password)));
+    }
+
+    public GuessEstimate estimate(char[] password, int offset, int length) {
+        return new GuessEstimate(log10Guesses(cost(password, offset, length)));
+    }
+
+    // Method to turn a cost into log10 guesses; past the rarest sample the estimate
+    // cannot be better than 1 / probability
+    double log10Guesses(int cost) {
+        if (cost < guessCount) {
+            return Float.intBitsToFloat(region.getInt(HEADER_SIZE + 4L * cost));
+        }
+        double last = Float.intBitsToFloat(region.getInt(HEADER_SIZE + 4L * (guessCount - 1)));
+        return Math.max(last, (double) cost / COST_SCALE * LOG10_2);
+    }
+}
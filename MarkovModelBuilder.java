@@ -0,0 +1,201 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class MarkovModelBuilder {
+    // This class counts the character n-grams of a password corpus (one password per
+    // line) and writes the smoothed, quantized model read by MarkovModel
+    // Files are counted in parallel by MarkovTrainer; a stream is read line by line.
+
+    public static final int DEFAULT_ORDER = 3;
+
+    // Passwords sampled from the model to turn probabilities into guess numbers;
+    // the estimate's relative error shrinks with the square root of this
+    public static final int DEFAULT_SAMPLES = 100_000;
+
+    // Sampled passwords are cut off here
+    private static final int MAX_SAMPLE_LENGTH = 64;
+
+    private static final double LOG10_2 = Math.log10(2);
+
+    // Method to build a model file from a corpus on all cores and return the number
+    // of passwords
+    public static long build(Path corpus, Path model, int order) throws IOException {
+        return build(corpus, model, order, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static long build(Path corpus, Path model, int order, int threads) throws IOException {
+        MarkovTrainer trainer = new MarkovTrainer(order, threads);
+        trainer.count(corpus);
+        write(trainer.getCounts(), order, trainer.getPasswords(), model);
+        return trainer.getPasswords();
+    }
+
+    // Method to build a model from a stream, such as a corpus decompressed into stdin
+    public static long build(InputStream corpus, Path model, int order) throws IOException {
+        long[] counts = new long[tableSize(order)];
+        long passwords = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(corpus, StandardCharsets.UTF_8), 1 << 16);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isEmpty()) {
+                count(line, order, counts);
+                passwords++;
+            }
+        }
+        write(counts, order, passwords, model);
+        return passwords;
+    }
+
+    static int tableSize(int order) {
+        if (order < MarkovModel.MIN_ORDER || order > MarkovModel.MAX_ORDER) {
+            throw new IllegalArgumentException("Order must be between " + MarkovModel.MIN_ORDER
+                    + " and " + MarkovModel.MAX_ORDER);
+        }
+        return (int) MarkovModel.tableSize(order);
+    }
+
+    // Method to count every transition of one password, including the one to its end
+    static void count(CharSequence password, int order, long[] counts) {
+        int symbols = MarkovModel.SYMBOLS;
+        int oldestWeight = (int) Math.pow(symbols, order - 2);
+        int context = 0;
+        for (int i = 0; i < password.length(); i++) {
+            int symbol = MarkovModel.symbol(password.charAt(i));
+            counts[context * symbols + symbol]++;
+            int oldest = i >= order - 1 ? MarkovModel.symbol(password.charAt(i - order + 1)) : 0;
+            context = (context - oldest * oldestWeight) * symbols + symbol;
+        }
+        counts[context * symbols]++;
+    }
+
+    // Method to smooth and quantize the counts and write the model file
+    static void write(long[] counts, int order, long passwords, Path model) throws IOException {
+        byte[] costs = quantize(counts);
+        int[] sampleCosts = sample(costs, order, DEFAULT_SAMPLES, new SplittableRandom(0x4D61726BL));
+        float[] log10Guesses = guessesByCost(sampleCosts);
+        try (BinaryWriter out = new BinaryWriter(model)) {
+            out.putInt(MarkovModel.MAGIC).putInt(MarkovModel.VERSION)
+               .putInt(order).putInt(MarkovModel.SYMBOLS).putInt(MarkovModel.COST_SCALE)
+               .putInt(log10Guesses.length).putLong(costs.length).putLong(passwords);
+            for (float guesses : log10Guesses) {
+                out.putInt(Float.floatToIntBits(guesses));
+            }
+            out.putBytes(costs, 0, costs.length);
+        }
+    }
+
+    // Method to turn counts into costs
+    // Each context is interpolated with the overall symbol frequencies (Witten-Bell):
+    // P(s | c) = (count(c, s) + T(c) * P(s)) / (count(c) + T(c)), where T(c) is the
+    // number of different symbols seen after c, so a context seen with many different
+    // followers leaves more room for unseen ones. P(s) is add-one smoothed, so no
+    // symbol ever has probability zero.
+    static byte[] quantize(long[] counts) {
+        int symbols = MarkovModel.SYMBOLS;
+        long[] totals = new long[symbols];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            totals[i % symbols] += counts[i];
+            total += counts[i];
+        }
+        double[] background = new double[symbols];
+        for (int s = 0; s < symbols; s++) {
+            background[s] = (totals[s] + 1.0) / (total + symbols);
+        }
+
+        byte[] costs = new byte[counts.length];
+        for (int base = 0; base < counts.length; base += symbols) {
+            long seen = 0;
+            int followers = 0;
+            for (int s = 0; s < symbols; s++) {
+                seen += counts[base + s];
+                if (counts[base + s] != 0) {
+                    followers++;
+                }
+            }
+            for (int s = 0; s < symbols; s++) {
+                double p = seen == 0
+                        ? background[s]
+                        : (counts[base + s] + followers * background[s]) / (seen + followers);
+                long cost = Math.round(-Math.log(p) / Math.log(2) * MarkovModel.COST_SCALE);
+                costs[base + s] = (byte) Math.min(MarkovModel.MAX_COST, Math.max(0, cost));
+            }
+        }
+        return costs;
+    }
+
+    // Method to sample passwords from the quantized model and return their costs,
+    // sorted ascending
+    static int[] sample(byte[] costs, int order, int samples, SplittableRandom random) {
+        int symbols = MarkovModel.SYMBOLS;
+        int oldestWeight = (int) Math.pow(symbols, order - 2);
+        double[] weightOf = new double[MarkovModel.MAX_COST + 1];
+        for (int c = 0; c <= MarkovModel.MAX_COST; c++) {
+            weightOf[c] = Math.pow(2, -(double) c / MarkovModel.COST_SCALE);
+        }
+        int[] history = new int[MAX_SAMPLE_LENGTH];
+        int[] result = new int[samples];
+        for (int n = 0; n < samples; n++) {
+            int context = 0;
+            int cost = 0;
+            for (int i = 0; ; i++) {
+                int base = context * symbols;
+                // Past the length limit only the end may follow
+                int symbol = i == MAX_SAMPLE_LENGTH ? 0 : draw(costs, base, weightOf, random);
+                cost += costs[base + symbol] & 0xFF;
+                if (symbol == 0) {
+                    break;
+                }
+                history[i] = symbol;
+                int oldest = i >= order - 1 ? history[i - order + 1] : 0;
+                context = (context - oldest * oldestWeight) * symbols + symbol;
+            }
+            result[n] = cost;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static int draw(byte[] costs, int base, double[] weightOf, SplittableRandom random) {
+        double sum = 0;
+        for (int s = 0; s < MarkovModel.SYMBOLS; s++) {
+            sum += weightOf[costs[base + s] & 0xFF];
+        }
+        double target = random.nextDouble() * sum;
+        for (int s = 0; s < MarkovModel.SYMBOLS; s++) {
+            target -= weightOf[costs[base + s] & 0xFF];
+            if (target < 0) {
+                return s;
+            }
+        }
+        return MarkovModel.SYMBOLS - 1;
+    }
+
+    // Method to compute log10 guesses for every total cost up to the rarest sample:
+    // each sample that is more probable stands for 1 / (samples * its probability)
+    // passwords guessed first. sampleCosts must be sorted.
+    static float[] guessesByCost(int[] sampleCosts) {
+        int maxCost = sampleCosts[sampleCosts.length - 1];
+        float[] log10Guesses = new float[maxCost + 2];
+        double log10Samples = Math.log10(sampleCosts.length);
+        double sum = Double.NEGATIVE_INFINITY;
+        int next = 0;
+        for (int cost = 0; cost < log10Guesses.length; cost++) {
+            log10Guesses[cost] = (float) Math.max(0, sum);
+            while (next < sampleCosts.length && sampleCosts[next] == cost) {
+                double term = (double) cost / MarkovModel.COST_SCALE * LOG10_2 - log10Samples;
+                // log10(10^sum + 10^term) without leaving the log domain
+                double high = Math.max(sum, term);
+                sum = high + Math.log10(Math.pow(10, sum - high) + Math.pow(10, term - high));
+                next++;
+            }
+        }
+        return log10Guesses;
+    }
+}
@@ -0,0 +1,245 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+final class MarkovTrainer {
+    // This class counts the character n-grams of a corpus file for MarkovModelBuilder
+    // on several threads. The file is memory-mapped a window at a time and cut into
+    // slices at line ends; slices are counted by fork-join tasks, each into an int
+    // table owned by its worker thread, straight from the UTF-8 bytes. At the end the
+    // thread tables are summed into one long table, again split up fork-join style
+    // by table range. Nothing but the tables is ever held in memory.
+    //
+    // Bytes become the same symbols MarkovModel gives chars: printable ASCII maps to
+    // itself, any other ASCII byte and every multi-byte sequence to the other symbol
+    // (twice for a 4-byte sequence, which Java holds as a surrogate pair). Lines end
+    // at \n, \r or \r\n as with BufferedReader; empty lines are skipped.
+
+    // Bytes mapped at a time; a single line may not be longer
+    private static final long WINDOW_SIZE = 1L << 30;
+
+    // Bytes per slice: enough work to outweigh a task, and few enough that a thread's
+    // counts stay far from overflowing an int between spills
+    private static final int SLICE_SIZE = 16 << 20;
+
+    // Table entries summed by one merge task
+    private static final int MERGE_RANGE = 1 << 16;
+
+    private final int order;
+    private final int oldestWeight;
+    private final long[] counts;
+    private final LongAdder passwords = new LongAdder();
+    private final ForkJoinPool pool;
+
+    // One table per thread that counted a slice; owned by the trainer rather than a
+    // ThreadLocal so the tables go away with it
+    private final Map<Thread, ThreadCounts> threadCounts = new ConcurrentHashMap<>();
+
+    MarkovTrainer(int order, int threads) {
+        this.order = order;
+        this.oldestWeight = (int) Math.pow(MarkovModel.SYMBOLS, order - 2);
+        this.counts = new long[MarkovModelBuilder.tableSize(order)];
+        this.pool = new ForkJoinPool(affordableThreads(threads, counts.length));
+    }
+
+    // Method to count every password of a file into the table
+    void count(Path corpus) throws IOException {
+        try (FileChannel channel = FileChannel.open(corpus, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long length = Math.min(WINDOW_SIZE, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = (int) length;
+                if (position + length < size) {
+                    end = BatchAuditor.lastLineEnd(window, end);
+                    if (end < 0) {
+                        throw new IOException("Line longer than " + WINDOW_SIZE + " bytes at offset " + position);
+                    }
+                }
+                pool.invoke(new SliceTask(window, slices(window, end), 0, -1));
+                position += end;
+            }
+            pool.invoke(new MergeTask(0, counts.length));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Method to cap the thread count so every thread's table fits in the heap next to
+    // the totals and the cost table written from them (an order-4 table is 354 MB),
+    // keeping a quarter of the heap spare for the collector; one thread always counts
+    private static int affordableThreads(int threads, int tableSize) {
+        long free = Runtime.getRuntime().maxMemory() / 4 * 3 - 9L * tableSize;
+        return (int) Math.max(1, Math.min(threads, free / (4L * tableSize)));
+    }
+
+    long[] getCounts() {
+        return counts;
+    }
+
+    long getPasswords() {
+        return passwords.sum();
+    }
+
+    // Method to cut a window into slices of about SLICE_SIZE bytes that end after a
+    // \n (or at the end of the window); returns their end offsets
+    private static int[] slices(ByteBuffer window, int end) {
+        int[] ends = new int[end / SLICE_SIZE + 1];
+        int count = 0;
+        int start = 0;
+        while (start < end) {
+            int cut = (int) Math.min((long) start + SLICE_SIZE, end);
+            while (cut < end && window.get(cut - 1) != '\n') {
+                cut++;
+            }
+            if (count == ends.length) {
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            ends[count++] = cut;
+            start = cut;
+        }
+        return Arrays.copyOf(ends, count);
+    }
+
+    // Counts slices [from, to) of a window, splitting the range until one is left
+    private final class SliceTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer window;
+        private final int[] ends;
+        private final int from;
+        private final int to;
+
+        SliceTask(ByteBuffer window, int[] ends, int from, int to) {
+            this.window = window;
+            this.ends = ends;
+            this.from = from;
+            this.to = to < 0 ? ends.length : to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SliceTask(window, ends, from, middle), new SliceTask(window, ends, middle, to));
+            } else if (to > from) {
+                int start = from == 0 ? 0 : ends[from - 1];
+                threadCounts.computeIfAbsent(Thread.currentThread(), thread -> new ThreadCounts(counts.length))
+                        .count(window, start, ends[from]);
+            }
+        }
+    }
+
+    // Adds every thread's counts for table entries [from, to) into the totals
+    private final class MergeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        MergeTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > MERGE_RANGE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new MergeTask(from, middle), new MergeTask(middle, to));
+                return;
+            }
+            for (ThreadCounts table : threadCounts.values()) {
+                int[] values = table.values;
+                for (int i = from; i < to; i++) {
+                    counts[i] += values[i];
+                }
+            }
+        }
+    }
+
+    // The counts of one worker thread
+    private final class ThreadCounts {
+        final int[] values;
+        // Increments since the table was last emptied; no entry can be larger
+        private long pending;
+        private final int[] history = new int[4];
+
+        ThreadCounts(int size) {
+            values = new int[size];
+        }
+
+        void count(ByteBuffer window, int start, int end) {
+            // A slice adds at most one count per byte, plus the end of its last line
+            if (pending + (end - start) + 1 > Integer.MAX_VALUE) {
+                spill();
+            }
+            pending += end - start + 1;
+
+            int symbols = MarkovModel.SYMBOLS;
+            int[] table = values;
+            int context = 0;
+            int length = 0;
+            long lines = 0;
+            for (int i = start; i < end; i++) {
+                int b = window.get(i);
+                int symbol;
+                if (b == '\n' || b == '\r') {
+                    if (length > 0) {
+                        table[context * symbols]++;
+                        lines++;
+                        context = 0;
+                        length = 0;
+                    }
+                    continue;
+                } else if (b >= ' ' && b <= '~') {
+                    symbol = b - ' ' + 1;
+                } else if (b >= 0 || (b & 0xC0) == 0xC0) {
+                    symbol = MarkovModel.OTHER_SYMBOL;
+                } else {
+                    continue; // continuation byte of a multi-byte sequence
+                }
+                context = add(table, context, length++, symbol);
+                if ((b & 0xF8) == 0xF0) {
+                    // Four bytes: a supplementary code point is two chars
+                    context = add(table, context, length++, symbol);
+                }
+            }
+            if (length > 0) {
+                table[context * symbols]++;
+                lines++;
+            }
+            passwords.add(lines);
+        }
+
+        // Counts symbol after context as char number position of its line and
+        // returns the next context
+        private int add(int[] table, int context, int position, int symbol) {
+            table[context * MarkovModel.SYMBOLS + symbol]++;
+            history[position & 3] = symbol;
+            int oldest = position >= order - 1 ? history[(position - order + 1) & 3] : 0;
+            return (context - oldest * oldestWeight) * MarkovModel.SYMBOLS + symbol;
+        }
+
+        // Moves the counts into the shared totals so the ints start again from zero
+        private void spill() {
+            synchronized (counts) {
+                for (int i = 0; i < values.length; i++) {
+                    counts[i] += values[i];
+                }
+            }
+            Arrays.fill(values, 0);
+            pending = 0;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+public final class PasswordAnalysis {
+    // This class holds the result of analyzing one password in a single pass
+    // It is immutable so it can be shared between the policy, the CLI and the GUI
+
+    // Bits used in the character class mask
+    public static final int UPPERCASE = 1;
+    public static final int LOWERCASE = 2;
+    public static final int DIGIT = 4;
+    public static final int SPECIAL = 8;
+
+    private final int length;
+    private final int uppercaseCount;
+    private final int lowercaseCount;
+    private final int digitCount;
+    private final int specialCount;
+    private final int classMask;
+    private final boolean commonPassword;
+    private final int score;
+
+    public PasswordAnalysis(int length, int uppercaseCount, int lowercaseCount, int digitCount,
+                            int specialCount, boolean commonPassword) {
+        this.length = length;
+        this.uppercaseCount = uppercaseCount;
+        this.lowercaseCount = lowercaseCount;
+        this.digitCount = digitCount;
+        this.specialCount = specialCount;
+        this.commonPassword = commonPassword;
+
+        int mask = 0;
+        if (uppercaseCount > 0) mask |= UPPERCASE;
+        if (lowercaseCount > 0) mask |= LOWERCASE;
+        if (digitCount > 0) mask |= DIGIT;
+        if (specialCount > 0) mask |= SPECIAL;
+        this.classMask = mask;
+        this.score = calculateScore(length, mask, commonPassword);
+    }
+
+    // Method to calculate the strength score from the collected facts
+    // Uses the same point system as PasswordAnalyzer has always used
+    static int calculateScore(int length, int classMask, boolean commonPassword) {
+        int score = 0;
+
+        // Add points for each requirement met
+        if (length >= 8) score += 20;
+        score += 20 * Integer.bitCount(classMask);
+
+        // Subtract points for common passwords
+        if (commonPassword) score -= 50;
+
+        // Bonus points for longer passwords
+        if (length >= 12) score += 10;
+        if (length >= 16) score += 10;
+
+        return Math.max(0, score); // Ensure score is never negative
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getUppercaseCount() {
+        return uppercaseCount;
+    }
+
+    public int getLowercaseCount() {
+        return lowercaseCount;
+    }
+
+    public int getDigitCount() {
+        return digitCount;
+    }
+
+    public int getSpecialCount() {
+        return specialCount;
+    }
+
+    public int getClassMask() {
+        return classMask;
+    }
+
+    public boolean isCommonPassword() {
+        return commonPassword;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public String getStrengthLevel() {
+        return PasswordAnalyzer.strengthLevelFor(score);
+    }
+
+    public boolean meetsMinimumLength(int minLength) {
+        return length >= minLength;
+    }
+
+    public boolean hasUppercase() {
+        return (classMask & UPPERCASE) != 0;
+    }
+
+    public boolean hasLowercase() {
+        return (classMask & LOWERCASE) != 0;
+    }
+
+    public boolean hasNumbers() {
+        return (classMask & DIGIT) != 0;
+    }
+
+    public boolean hasSpecialCharacters() {
+        return (classMask & SPECIAL) != 0;
+    }
+}
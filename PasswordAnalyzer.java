@@ -1,6 +1,170 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 public class PasswordAnalyzer {
     // This class contains all the logic to check password strength
-    
+
+    // Character class codes stored in the lookup tables
+    private static final byte OTHER = CharacterClasses.OTHER;
+    private static final byte UPPERCASE = CharacterClasses.UPPERCASE;
+    private static final byte LOWERCASE = CharacterClasses.LOWERCASE;
+    private static final byte DIGIT = CharacterClasses.DIGIT;
+    private static final byte SPECIAL = CharacterClasses.SPECIAL;
+    private static final byte SURROGATE = CharacterClasses.SURROGATE;
+
+    // The class codes above map onto PasswordAnalysis bits as 1 << (code - 1)
+    private static final int ALL_CLASSES = PasswordAnalysis.UPPERCASE | PasswordAnalysis.LOWERCASE
+            | PasswordAnalysis.DIGIT | PasswordAnalysis.SPECIAL;
+
+    // Highest score PasswordAnalysis gives: 20 for length, 20 per class, two bonuses of 10
+    static final int MAX_SCORE = 120;
+
+    // Number of strength levels a score maps to (see strengthLevelIndex)
+    static final int STRENGTH_LEVELS = 4;
+    private static final String[] STRENGTH_LEVEL_NAMES = {"STRONG", "MODERATE", "WEAK", "VERY WEAK"};
+
+    // Listed passwords are assumed to be among the first 10,000 guesses an attacker tries
+    private static final double COMMON_PASSWORD_LOG10_GUESSES = 4;
+
+    // Reused per thread so dictionary lookups do not allocate a lowercased copy
+    private static final ThreadLocal<LowerCaseView> LOWER_CASE = ThreadLocal.withInitial(LowerCaseView::new);
+
+    // List of common passwords, the built-in one unless an index is supplied
+    private final PasswordDictionary dictionary;
+    private final GuessEstimator estimator = new GuessEstimator();
+    // Character n-gram model for a second guess estimate; null when none is loaded
+    private final MarkovModel markov;
+
+    // Which class each code point is in; the BMP table is kept in a field of its
+    // own so the hot loops index it directly and never call Character.isXxx
+    private final CharacterClasses classes;
+    private final byte[] table;
+
+    public PasswordAnalyzer() {
+        this(new DefaultPasswordDictionary());
+    }
+
+    public PasswordAnalyzer(PasswordDictionary dictionary) {
+        this(dictionary, CharacterClasses.DEFAULT);
+    }
+
+    public PasswordAnalyzer(PasswordDictionary dictionary, CharacterClasses classes) {
+        this(dictionary, classes, null);
+    }
+
+    public PasswordAnalyzer(PasswordDictionary dictionary, CharacterClasses classes, MarkovModel markov) {
+        this.dictionary = dictionary;
+        this.classes = classes;
+        this.table = classes.bmp;
+        this.markov = markov;
+    }
+
+    public CharacterClasses getCharacterClasses() {
+        return classes;
+    }
+
+    // Method to classify a surrogate char: a high surrogate followed by a low one
+    // takes the class of their code point, the low half and unpaired surrogates are OTHER
+    private int surrogateClass(char c, int next) {
+        if (Character.isHighSurrogate(c) && Character.isLowSurrogate((char) next)) {
+            return classes.classOf(Character.toCodePoint(c, (char) next));
+        }
+        return OTHER;
+    }
+
+    // Method to analyze a password in one pass over its characters
+    public PasswordAnalysis analyze(String password) {
+        return analyze((CharSequence) password);
+    }
+
+    // The CharSequence and char[] overloads below allocate nothing but the result,
+    // so callers can analyze a reusable buffer and zero it afterwards
+    public PasswordAnalysis analyze(CharSequence password) {
+        long start = AnalyzerMetrics.start();
+        int uppercase = 0;
+        int lowercase = 0;
+        int digits = 0;
+        int special = 0;
+
+        byte[] table = this.table;
+        int length = password.length();
+        for (int i = 0; i < length; i++) {
+            char c = password.charAt(i);
+            int charClass = table[c];
+            if (charClass == SURROGATE) {
+                charClass = surrogateClass(c, i + 1 < length ? password.charAt(i + 1) : 0);
+            }
+            switch (charClass) {
+                case UPPERCASE: uppercase++; break;
+                case LOWERCASE: lowercase++; break;
+                case DIGIT: digits++; break;
+                case SPECIAL: special++; break;
+                default: break;
+            }
+        }
+
+        PasswordAnalysis analysis = new PasswordAnalysis(length, uppercase, lowercase, digits, special,
+                isCommonPassword(password));
+        AnalyzerMetrics.stop(AnalyzerMetrics.ANALYZE, start);
+        return analysis;
+    }
+
+    public PasswordAnalysis analyze(char[] password, int offset, int length) {
+        long start = AnalyzerMetrics.start();
+        int uppercase = 0;
+        int lowercase = 0;
+        int digits = 0;
+        int special = 0;
+
+        byte[] table = this.table;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            char c = password[i];
+            int charClass = table[c];
+            if (charClass == SURROGATE) {
+                charClass = surrogateClass(c, i + 1 < end ? password[i + 1] : 0);
+            }
+            switch (charClass) {
+                case UPPERCASE: uppercase++; break;
+                case LOWERCASE: lowercase++; break;
+                case DIGIT: digits++; break;
+                case SPECIAL: special++; break;
+                default: break;
+            }
+        }
+
+        PasswordAnalysis analysis = new PasswordAnalysis(length, uppercase, lowercase, digits, special,
+                isCommonPassword(password, offset, length));
+        AnalyzerMetrics.stop(AnalyzerMetrics.ANALYZE, start);
+        return analysis;
+    }
+
+    // Method to analyze a record of UTF-8 bytes that are all ASCII, straight from
+    // a (mapped) buffer: every byte is one char, so nothing needs decoding
+    public PasswordAnalysis analyzeAscii(ByteBuffer bytes, int offset, int length) {
+        long start = AnalyzerMetrics.start();
+        int uppercase = 0;
+        int lowercase = 0;
+        int digits = 0;
+        int special = 0;
+
+        byte[] table = this.table;
+        for (int i = offset; i < offset + length; i++) {
+            switch (table[bytes.get(i)]) {
+                case UPPERCASE: uppercase++; break;
+                case LOWERCASE: lowercase++; break;
+                case DIGIT: digits++; break;
+                case SPECIAL: special++; break;
+                default: break;
+            }
+        }
+
+        PasswordAnalysis analysis = new PasswordAnalysis(length, uppercase, lowercase, digits, special,
+                isCommonAscii(bytes, offset, length));
+        AnalyzerMetrics.stop(AnalyzerMetrics.ANALYZE, start);
+        return analysis;
+    }
+
     // Method to check if password meets minimum length requirement
     public boolean checkMinimumLength(String password, int minLength) {
         return password.length() >= minLength;
@@ -8,39 +172,73 @@ public class PasswordAnalyzer {
     
     // Method to check if password contains uppercase letters
     public boolean hasUppercase(String password) {
-        for (int i = 0; i < password.length(); i++) {
-            if (Character.isUpperCase(password.charAt(i))) {
-                return true;
-            }
-        }
-        return false;
+        return containsClass(password, UPPERCASE);
     }
     
     // Method to check if password contains lowercase letters
     public boolean hasLowercase(String password) {
-        for (int i = 0; i < password.length(); i++) {
-            if (Character.isLowerCase(password.charAt(i))) {
-                return true;
-            }
-        }
-        return false;
+        return containsClass(password, LOWERCASE);
     }
     
     // Method to check if password contains numbers
     public boolean hasNumbers(String password) {
-        for (int i = 0; i < password.length(); i++) {
-            if (Character.isDigit(password.charAt(i))) {
-                return true;
-            }
-        }
-        return false;
+        return containsClass(password, DIGIT);
     }
     
     // Method to check if password contains special characters
     public boolean hasSpecialCharacters(String password) {
-        String specialChars = "!@#$%^&*()_+-=[]{}|;:,.<>?";
-        for (int i = 0; i < password.length(); i++) {
-            if (specialChars.contains(String.valueOf(password.charAt(i)))) {
+        return containsClass(password, SPECIAL);
+    }
+
+    // Method to get the character classes of a password as PasswordAnalysis bits
+    // Stops scanning as soon as all four classes have been seen
+    public int characterClasses(String password) {
+        return characterClasses((CharSequence) password);
+    }
+
+    public int characterClasses(CharSequence password) {
+        byte[] table = this.table;
+        int length = password.length();
+        int mask = 0;
+        for (int i = 0; i < length && mask != ALL_CLASSES; i++) {
+            char c = password.charAt(i);
+            int charClass = table[c];
+            if (charClass == SURROGATE) {
+                charClass = surrogateClass(c, i + 1 < length ? password.charAt(i + 1) : 0);
+            }
+            if (charClass != OTHER) {
+                mask |= 1 << (charClass - 1);
+            }
+        }
+        return mask;
+    }
+
+    public int characterClasses(char[] password, int offset, int length) {
+        byte[] table = this.table;
+        int end = offset + length;
+        int mask = 0;
+        for (int i = offset; i < end && mask != ALL_CLASSES; i++) {
+            char c = password[i];
+            int charClass = table[c];
+            if (charClass == SURROGATE) {
+                charClass = surrogateClass(c, i + 1 < end ? password[i + 1] : 0);
+            }
+            if (charClass != OTHER) {
+                mask |= 1 << (charClass - 1);
+            }
+        }
+        return mask;
+    }
+
+    private boolean containsClass(String password, byte wanted) {
+        int length = password.length();
+        for (int i = 0; i < length; i++) {
+            char c = password.charAt(i);
+            int charClass = table[c];
+            if (charClass == SURROGATE) {
+                charClass = surrogateClass(c, i + 1 < length ? password.charAt(i + 1) : 0);
+            }
+            if (charClass == wanted) {
                 return true;
             }
         }
@@ -49,46 +247,124 @@ public class PasswordAnalyzer {
     
     // Method to check for common weak passwords
     public boolean isCommonPassword(String password) {
-        String[] commonPasswords = {
-            "password", "123456", "password123", "admin", "qwerty",
-            "letmein", "welcome", "monkey", "dragon", "master"
-        };
-        
-        String lowerPassword = password.toLowerCase();
-        for (String common : commonPasswords) {
-            if (lowerPassword.equals(common)) {
-                return true;
+        return isCommonPassword((CharSequence) password);
+    }
+
+    // The password is folded to lower case on the fly; only the rare cases that
+    // String.toLowerCase() handles specially fall back to a lowercased copy
+    public boolean isCommonPassword(CharSequence password) {
+        LowerCaseView lower = LOWER_CASE.get();
+        try {
+            if (!lower.reset(password)) {
+                return dictionary.contains(password.toString().toLowerCase());
             }
+            return dictionary.contains(lower);
+        } finally {
+            lower.release();
+        }
+    }
+
+    public boolean isCommonPassword(char[] password, int offset, int length) {
+        LowerCaseView lower = LOWER_CASE.get();
+        try {
+            if (!lower.reset(password, offset, length)) {
+                return dictionary.contains(new String(password, offset, length).toLowerCase());
+            }
+            return dictionary.contains(lower);
+        } finally {
+            lower.release();
         }
-        return false;
     }
     
+    // Method to check a record of ASCII bytes in a buffer, without decoding it
+    boolean isCommonAscii(ByteBuffer bytes, int offset, int length) {
+        LowerCaseView lower = LOWER_CASE.get();
+        try {
+            if (!lower.resetAscii(bytes, offset, length)) {
+                byte[] copy = new byte[length];
+                bytes.get(offset, copy);
+                return dictionary.contains(new String(copy, StandardCharsets.US_ASCII).toLowerCase());
+            }
+            return dictionary.contains(lower);
+        } finally {
+            lower.release();
+        }
+    }
+
     // Method to calculate overall password strength score
     public int calculateStrengthScore(String password) {
-        int score = 0;
-        
-        // Add points for each requirement met
-        if (checkMinimumLength(password, 8)) score += 20;
-        if (hasUppercase(password)) score += 20;
-        if (hasLowercase(password)) score += 20;
-        if (hasNumbers(password)) score += 20;
-        if (hasSpecialCharacters(password)) score += 20;
-        
-        // Subtract points for common passwords
-        if (isCommonPassword(password)) score -= 50;
-        
-        // Bonus points for longer passwords
-        if (password.length() >= 12) score += 10;
-        if (password.length() >= 16) score += 10;
-        
-        return Math.max(0, score); // Ensure score is never negative
+        return calculateStrengthScore((CharSequence) password);
+    }
+
+    public int calculateStrengthScore(CharSequence password) {
+        long start = AnalyzerMetrics.start();
+        int score = PasswordAnalysis.calculateScore(password.length(), characterClasses(password),
+                isCommonPassword(password));
+        AnalyzerMetrics.stop(AnalyzerMetrics.SCORE, start);
+        return score;
+    }
+
+    public int calculateStrengthScore(char[] password, int offset, int length) {
+        long start = AnalyzerMetrics.start();
+        int score = PasswordAnalysis.calculateScore(length, characterClasses(password, offset, length),
+                isCommonPassword(password, offset, length));
+        AnalyzerMetrics.stop(AnalyzerMetrics.SCORE, start);
+        return score;
     }
     
+    // Method to estimate how many guesses an attacker needs (keyboard walks, sequences, ...)
+    public GuessEstimate estimateGuesses(String password) {
+        if (isCommonPassword(password)) {
+            return new GuessEstimate(COMMON_PASSWORD_LOG10_GUESSES);
+        }
+        return estimator.estimate(password);
+    }
+
+    // Method to estimate how many guesses an attacker who guesses in order of
+    // probability under the Markov model needs; null if no model was loaded
+    public GuessEstimate estimateMarkovGuesses(CharSequence password) {
+        return markov == null ? null : markov.estimate(password);
+    }
+
+    // Method to get the generation of the common-password list (see PasswordDictionary)
+    public long getDictionaryGeneration() {
+        return dictionary.generation();
+    }
+
+    public MarkovModel getMarkovModel() {
+        return markov;
+    }
+
     // Method to get strength level description
     public String getStrengthLevel(int score) {
-        if (score >= 80) return "STRONG";
-        else if (score >= 60) return "MODERATE";
-        else if (score >= 40) return "WEAK";
+        return strengthLevelFor(score);
+    }
+
+    // Method to get strength level description from a guess estimate
+    // Same bands as zxcvbn: below 10^6 guesses is very weak, 10^10 and up is strong
+    public String getStrengthLevel(GuessEstimate estimate) {
+        double log10 = estimate.getLog10Guesses();
+        if (log10 >= 10) return "STRONG";
+        else if (log10 >= 8) return "MODERATE";
+        else if (log10 >= 6) return "WEAK";
         else return "VERY WEAK";
     }
+
+    static String strengthLevelFor(int score) {
+        return STRENGTH_LEVEL_NAMES[strengthLevelIndex(score)];
+    }
+
+    // Method to get the level of a score as an index, 0 (STRONG) to STRENGTH_LEVELS - 1
+    // (VERY WEAK), the order reports list the levels in
+    static int strengthLevelIndex(int score) {
+        if (score >= 80) return 0;
+        else if (score >= 60) return 1;
+        else if (score >= 40) return 2;
+        else return 3;
+    }
+
+    // Method to get the name of a level index from strengthLevelIndex
+    static String strengthLevelName(int index) {
+        return STRENGTH_LEVEL_NAMES[index];
+    }
 }
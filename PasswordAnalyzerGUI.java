@@ -3,16 +3,33 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import javax.swing.border.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
 import java.awt.geom.RoundRectangle2D;
+import java.util.concurrent.ExecutionException;
 
 public class PasswordAnalyzerGUI extends JFrame {
     private PasswordAnalyzer analyzer;
     private SecurityPolicy policy;
+    private AnalysisCache cache;
+    private PasswordGenerator generator;
     private JTextField passwordField;
     private JTextArea resultArea;
+    // Reused for every report; only touched on the event dispatch thread
+    private final StringBuilder report = new StringBuilder(2048);
     private JProgressBar strengthBar;
     private JLabel strengthLabel;
 
+    // Live analysis while typing: the counter follows every edit on the EDT, the
+    // dictionary lookup and full report wait until typing pauses and run on a
+    // SwingWorker. Results from an older generation are dropped.
+    private static final int TYPING_DELAY_MS = 250;
+    private CharacterClassCounter liveCounter;
+    private Timer typingTimer;
+    private SwingWorker<?, Void> pendingAnalysis;
+    private long analysisGeneration;
+
     // Modern color scheme
     private static final Color PRIMARY_COLOR = new Color(64, 128, 255);
     private static final Color SECONDARY_COLOR = new Color(245, 247, 250);
@@ -24,9 +41,16 @@ public class PasswordAnalyzerGUI extends JFrame {
     private static final Color BORDER_COLOR = new Color(229, 231, 235);
 
     public PasswordAnalyzerGUI() {
-        // Initialize analyzer and policy
-        analyzer = new PasswordAnalyzer();
-        policy = new SecurityPolicy();
+        this(new PasswordAnalyzer(), new SecurityPolicy(), null);
+    }
+
+    public PasswordAnalyzerGUI(PasswordAnalyzer analyzer, SecurityPolicy policy, AnalysisCache cache) {
+        // Initialize analyzer, policy and the optional result cache
+        this.analyzer = analyzer;
+        this.policy = policy;
+        this.cache = cache;
+        this.generator = new PasswordGenerator(analyzer, policy);
+        this.liveCounter = new CharacterClassCounter(analyzer.getCharacterClasses());
 
         // Set up the frame with modern styling
         setTitle("Password Security Analyzer");
@@ -285,6 +309,64 @@ public class PasswordAnalyzerGUI extends JFrame {
 
         // Add Enter key listener to password field
         passwordField.addActionListener(e -> analyzePassword());
+
+        // Give live feedback as the user types
+        typingTimer = new Timer(TYPING_DELAY_MS, e -> startAnalysis(false));
+        typingTimer.setRepeats(false);
+        passwordField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                try {
+                    liveCounter.insert(e.getOffset(), e.getDocument().getText(e.getOffset(), e.getLength()));
+                } catch (BadLocationException ex) {
+                    resyncCounter();
+                }
+                passwordEdited();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                liveCounter.remove(e.getOffset(), e.getLength());
+                passwordEdited();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // Attribute changes only, the text is the same
+            }
+        });
+    }
+
+    private void resyncCounter() {
+        liveCounter.clear();
+        liveCounter.insert(0, passwordField.getText());
+    }
+
+    // Method called on every edit: update the meter from the running counts right
+    // away and restart the delay before the full analysis
+    private void passwordEdited() {
+        cancelPendingAnalysis();
+        if (liveCounter.getLength() == 0) {
+            strengthBar.setValue(0);
+            strengthLabel.setText("Password Strength: Not Analyzed");
+            strengthLabel.setForeground(LIGHT_TEXT);
+            return;
+        }
+        int score = liveCounter.getScoreBeforeDictionary();
+        showStrength(score, " - checking...");
+        typingTimer.restart();
+    }
+
+    // Method to stop any debounced or running analysis from updating the display
+    private void cancelPendingAnalysis() {
+        analysisGeneration++;
+        if (typingTimer != null) {
+            typingTimer.stop();
+        }
+        if (pendingAnalysis != null) {
+            pendingAnalysis.cancel(false);
+            pendingAnalysis = null;
+        }
     }
 
     private Component[] getAllComponents(Container container) {
@@ -302,17 +384,69 @@ public class PasswordAnalyzerGUI extends JFrame {
     }
 
     private void analyzePassword() {
+        if (passwordField.getText().isEmpty()) {
+            cancelPendingAnalysis();
+            resultArea.setText("⚠️ Please enter a password to analyze.");
+            return;
+        }
+        startAnalysis(true);
+    }
+
+    // The outcome of one background analysis
+    private static final class AnalysisResult {
+        final PasswordAnalysis analysis;
+        final boolean compliant;
+
+        AnalysisResult(PasswordAnalysis analysis, boolean compliant) {
+            this.analysis = analysis;
+            this.compliant = compliant;
+        }
+    }
+
+    // Method to run the full analysis off the EDT and show it if nothing changed meanwhile
+    // The dictionary can be a large index, so it is never consulted on the EDT
+    private void startAnalysis(boolean requested) {
         String password = passwordField.getText();
         if (password.isEmpty()) {
-            resultArea.setText("⚠️ Please enter a password to analyze.");
             return;
         }
+        cancelPendingAnalysis();
+        long generation = analysisGeneration;
+        if (requested) {
+            strengthLabel.setText("Password Strength: analyzing...");
+        }
 
-        // Calculate strength score
-        int score = analyzer.calculateStrengthScore(password);
-        String level = analyzer.getStrengthLevel(score);
-        boolean compliant = policy.isCompliant(password, analyzer);
+        pendingAnalysis = new SwingWorker<AnalysisResult, Void>() {
+            @Override
+            protected AnalysisResult doInBackground() {
+                if (cache != null) {
+                    AnalysisCache.Result cached = cache.analyze(password);
+                    return new AnalysisResult(cached.getAnalysis(), cached.isCompliant());
+                }
+                PasswordAnalysis analysis = analyzer.analyze(password);
+                return new AnalysisResult(analysis, policy.isCompliant(analysis));
+            }
 
+            @Override
+            protected void done() {
+                // Drop the result if the password was edited or another view was opened
+                if (isCancelled() || generation != analysisGeneration) {
+                    return;
+                }
+                pendingAnalysis = null;
+                try {
+                    AnalysisResult result = get();
+                    showReport(password, result.analysis, result.compliant);
+                } catch (Exception e) {
+                    resultArea.setText("⚠️ Analysis failed: " + e.getCause());
+                }
+            }
+        };
+        pendingAnalysis.execute();
+    }
+
+    // Method to set the strength bar and label for a score
+    private void showStrength(int score, String suffix) {
         // Update strength bar with modern colors
         strengthBar.setValue(score);
 
@@ -321,22 +455,29 @@ public class PasswordAnalyzerGUI extends JFrame {
         if (score < 40) {
             barColor = DANGER_COLOR;
             emoji = "🔴";
-            strengthLabel.setText(emoji + " Password Strength: WEAK (" + score + "/100)");
+            strengthLabel.setText(emoji + " Password Strength: WEAK (" + score + "/100)" + suffix);
         } else if (score < 70) {
             barColor = WARNING_COLOR;
             emoji = "🟡";
-            strengthLabel.setText(emoji + " Password Strength: MODERATE (" + score + "/100)");
+            strengthLabel.setText(emoji + " Password Strength: MODERATE (" + score + "/100)" + suffix);
         } else {
             barColor = SUCCESS_COLOR;
             emoji = "🟢";
-            strengthLabel.setText(emoji + " Password Strength: STRONG (" + score + "/100)");
+            strengthLabel.setText(emoji + " Password Strength: STRONG (" + score + "/100)" + suffix);
         }
 
         strengthBar.setForeground(barColor);
         strengthLabel.setForeground(barColor);
+    }
+
+    private void showReport(String password, PasswordAnalysis analysis, boolean compliant) {
+        int score = analysis.getScore();
+        String level = analysis.getStrengthLevel();
+        int minimumLength = policy.current().getMinimumLength();
+        showStrength(score, "");
 
         // Generate enhanced report
-        StringBuilder report = new StringBuilder();
+        report.setLength(0);
         report.append("🔐 PASSWORD ANALYSIS REPORT\n");
         report.append("═══════════════════════════════════════════════════════════════\n\n");
         report.append("📝 Password: ").append(password).append("\n");
@@ -346,40 +487,40 @@ public class PasswordAnalyzerGUI extends JFrame {
 
         report.append("🔍 DETAILED ANALYSIS\n");
         report.append("─────────────────────────────────────────────────────────────\n");
-        report.append("📏 Length: ").append(password.length()).append(" characters ")
-                .append(analyzer.checkMinimumLength(password, SecurityPolicy.MINIMUM_LENGTH) ? "✅" : "❌").append("\n");
+        report.append("📏 Length: ").append(analysis.getLength()).append(" characters ")
+                .append(analysis.meetsMinimumLength(minimumLength) ? "✅" : "❌").append("\n");
         report.append("🔤 Uppercase letters: ")
-                .append(analyzer.hasUppercase(password) ? "✅" : "❌").append("\n");
+                .append(analysis.hasUppercase() ? "✅" : "❌").append("\n");
         report.append("🔡 Lowercase letters: ")
-                .append(analyzer.hasLowercase(password) ? "✅" : "❌").append("\n");
+                .append(analysis.hasLowercase() ? "✅" : "❌").append("\n");
         report.append("🔢 Numbers: ")
-                .append(analyzer.hasNumbers(password) ? "✅" : "❌").append("\n");
+                .append(analysis.hasNumbers() ? "✅" : "❌").append("\n");
         report.append("🔣 Special characters: ")
-                .append(analyzer.hasSpecialCharacters(password) ? "✅" : "❌").append("\n");
+                .append(analysis.hasSpecialCharacters() ? "✅" : "❌").append("\n");
         report.append("🚫 Common password: ")
-                .append(analyzer.isCommonPassword(password) ? "YES ❌" : "NO ✅").append("\n");
+                .append(analysis.isCommonPassword() ? "YES ❌" : "NO ✅").append("\n");
 
         // Add recommendations if not compliant
         if (!compliant) {
             report.append("\n💡 RECOMMENDATIONS FOR IMPROVEMENT\n");
             report.append("─────────────────────────────────────────────────────────────\n");
-            if (!analyzer.checkMinimumLength(password, SecurityPolicy.MINIMUM_LENGTH)) {
+            if (!analysis.meetsMinimumLength(minimumLength)) {
                 report.append("• 📏 Increase password length to at least ")
-                        .append(SecurityPolicy.MINIMUM_LENGTH).append(" characters\n");
+                        .append(minimumLength).append(" characters\n");
             }
-            if (!analyzer.hasUppercase(password)) {
+            if (!analysis.hasUppercase()) {
                 report.append("• 🔤 Add uppercase letters (A-Z)\n");
             }
-            if (!analyzer.hasLowercase(password)) {
+            if (!analysis.hasLowercase()) {
                 report.append("• 🔡 Add lowercase letters (a-z)\n");
             }
-            if (!analyzer.hasNumbers(password)) {
+            if (!analysis.hasNumbers()) {
                 report.append("• 🔢 Add numbers (0-9)\n");
             }
-            if (!analyzer.hasSpecialCharacters(password)) {
+            if (!analysis.hasSpecialCharacters()) {
                 report.append("• 🔣 Add special characters (!@#$%^&*...)\n");
             }
-            if (analyzer.isCommonPassword(password)) {
+            if (analysis.isCommonPassword()) {
                 report.append("• 🚫 Avoid common passwords - use something unique\n");
             }
         } else {
@@ -391,9 +532,11 @@ public class PasswordAnalyzerGUI extends JFrame {
     }
 
     private void displaySecurityPolicy() {
+        cancelPendingAnalysis();
         strengthBar.setValue(0);
         strengthLabel.setText("📋 Security Policy Display Mode");
         strengthLabel.setForeground(PRIMARY_COLOR);
+        CompiledPolicy rules = this.policy.current();
 
         StringBuilder policy = new StringBuilder();
         policy.append("📋 ORGANIZATIONAL SECURITY POLICY\n");
@@ -403,28 +546,62 @@ public class PasswordAnalyzerGUI extends JFrame {
 
         policy.append("📜 PASSWORD REQUIREMENTS:\n");
         policy.append("─────────────────────────────────────────────────────────────\n");
-        policy.append("• 📏 Minimum length: ").append(SecurityPolicy.MINIMUM_LENGTH).append(" characters\n");
+        policy.append("• 📏 Minimum length: ").append(rules.getMinimumLength()).append(" characters\n");
         policy.append("• 🔤 Must contain uppercase letters: ")
-                .append(SecurityPolicy.REQUIRE_UPPERCASE ? "✅ YES" : "❌ NO").append("\n");
+                .append(rules.requiresUppercase() ? "✅ YES" : "❌ NO").append("\n");
         policy.append("• 🔡 Must contain lowercase letters: ")
-                .append(SecurityPolicy.REQUIRE_LOWERCASE ? "✅ YES" : "❌ NO").append("\n");
+                .append(rules.requiresLowercase() ? "✅ YES" : "❌ NO").append("\n");
         policy.append("• 🔢 Must contain numbers: ")
-                .append(SecurityPolicy.REQUIRE_NUMBERS ? "✅ YES" : "❌ NO").append("\n");
+                .append(rules.requiresNumbers() ? "✅ YES" : "❌ NO").append("\n");
         policy.append("• 🔣 Must contain special characters: ")
-                .append(SecurityPolicy.REQUIRE_SPECIAL_CHARS ? "✅ YES" : "❌ NO").append("\n");
+                .append(rules.requiresSpecialChars() ? "✅ YES" : "❌ NO").append("\n");
         policy.append("• 📊 Minimum security score required: ")
-                .append(SecurityPolicy.MINIMUM_SCORE_REQUIRED).append("/100\n");
-        policy.append("• 🚫 Cannot be a common/weak password\n");
+                .append(rules.getMinimumScore()).append("/100\n");
+        policy.append("• 🚫 Cannot be a common/weak password: ")
+                .append(rules.rejectsCommon() ? "✅ YES" : "❌ NO").append("\n");
+        ContextSimilarity similarity = rules.getSimilarity();
+        policy.append("• 👤 Cannot be close to username, email or old password: ")
+                .append(similarity == null ? "❌ NO" : "✅ YES (within " + similarity.getMaxDistance() + " edits)")
+                .append("\n");
 
         resultArea.setText(policy.toString());
         resultArea.setCaretPosition(0);
     }
 
+    // Method to analyze the sample passwords off the EDT, like startAnalysis
     private void testSamplePasswords() {
+        cancelPendingAnalysis();
+        long generation = analysisGeneration;
         strengthBar.setValue(0);
         strengthLabel.setText("🧪 Sample Testing Mode");
         strengthLabel.setForeground(new Color(168, 85, 247));
+        resultArea.setText("🧪 Analyzing sample passwords...");
+
+        pendingAnalysis = new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() {
+                return sampleReport();
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled() || generation != analysisGeneration) {
+                    return;
+                }
+                pendingAnalysis = null;
+                try {
+                    resultArea.setText(get());
+                    resultArea.setCaretPosition(0);
+                } catch (Exception e) {
+                    resultArea.setText("⚠️ Analysis failed: " + e.getCause());
+                }
+            }
+        };
+        pendingAnalysis.execute();
+    }
 
+    // Method to analyze the sample passwords into a report; called off the EDT
+    private String sampleReport() {
         String[] testPasswords = {
                 "password",           // Very weak
                 "Password123",        // Moderate
@@ -441,56 +618,72 @@ public class PasswordAnalyzerGUI extends JFrame {
         results.append("───────────────────────────────────────────────────────────────\n");
 
         for (String pwd : testPasswords) {
-            int score = analyzer.calculateStrengthScore(pwd);
-            String level = analyzer.getStrengthLevel(score);
-            boolean compliant = policy.isCompliant(pwd, analyzer);
+            PasswordAnalysis analysis = analyzer.analyze(pwd);
+            boolean compliant = policy.isCompliant(analysis);
             String status = compliant ? "✅ YES" : "❌ NO";
 
             results.append(String.format("%-20s | %3d/100  | %-12s | %s\n",
-                    pwd, score, level, status));
+                    pwd, analysis.getScore(), analysis.getStrengthLevel(), status));
         }
 
         results.append("\n💡 This demonstrates how the analyzer evaluates different password strengths.\n");
         results.append("🔍 Try analyzing these passwords individually for detailed breakdowns!");
+        return results.toString();
+    }
 
-        resultArea.setText(results.toString());
-        resultArea.setCaretPosition(0);
+    // A generated password and its score
+    private static final class GeneratedPassword {
+        final String password;
+        final int score;
+
+        GeneratedPassword(String password, int score) {
+            this.password = password;
+            this.score = score;
+        }
     }
 
+    // Method to generate a password off the EDT: every candidate is checked against
+    // the policy, and so against the dictionary, which can be a large index
     private void generatePassword() {
-        // Simple password generator
-        StringBuilder password = new StringBuilder();
-        String upper = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
-        String lower = "abcdefghijklmnopqrstuvwxyz";
-        String digits = "0123456789";
-        String special = "!@#$%^&*()-_=+[]{}|;:,.<>?";
-        String all = upper + lower + digits + special;
-
-        // Add at least one of each required character type
-        password.append(upper.charAt((int)(Math.random() * upper.length())));
-        password.append(lower.charAt((int)(Math.random() * lower.length())));
-        password.append(digits.charAt((int)(Math.random() * digits.length())));
-        password.append(special.charAt((int)(Math.random() * special.length())));
-
-        // Add random characters to reach minimum length
-        while (password.length() < 12) {
-            password.append(all.charAt((int)(Math.random() * all.length())));
-        }
+        cancelPendingAnalysis();
+        long generation = analysisGeneration;
+        strengthLabel.setText("Password Strength: generating...");
 
-        // Shuffle the password
-        char[] chars = password.toString().toCharArray();
-        for (int i = 0; i < chars.length; i++) {
-            int j = (int)(Math.random() * chars.length);
-            char temp = chars[i];
-            chars[i] = chars[j];
-            chars[j] = temp;
-        }
+        pendingAnalysis = new SwingWorker<GeneratedPassword, Void>() {
+            @Override
+            protected GeneratedPassword doInBackground() {
+                // Secure random password that already meets the current policy
+                String password = generator.generate();
+                return new GeneratedPassword(password, analyzer.calculateStrengthScore(password));
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled() || generation != analysisGeneration) {
+                    return;
+                }
+                pendingAnalysis = null;
+                try {
+                    showGenerated(get());
+                } catch (ExecutionException e) {
+                    strengthLabel.setText("Password Strength: Not Analyzed");
+                    resultArea.setText("⚠️ " + (e.getCause() instanceof IllegalStateException
+                            ? e.getCause().getMessage() : "Generation failed: " + e.getCause()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        pendingAnalysis.execute();
+    }
 
-        String generatedPassword = new String(chars);
+    private void showGenerated(GeneratedPassword generated) {
+        String generatedPassword = generated.password;
         passwordField.setText(generatedPassword);
+        cancelPendingAnalysis();
 
         // Update strength meter
-        int score = analyzer.calculateStrengthScore(generatedPassword);
+        int score = generated.score;
         strengthBar.setValue(score);
         strengthBar.setForeground(SUCCESS_COLOR);
 
@@ -503,7 +696,7 @@ public class PasswordAnalyzerGUI extends JFrame {
         result.append("═══════════════════════════════════════════════════════════════\n\n");
         result.append("🔑 Generated Password: ").append(generatedPassword).append("\n\n");
         result.append("✅ This password meets all security requirements:\n");
-        result.append("• 📏 Sufficient length (12+ characters)\n");
+        result.append("• 📏 Sufficient length (").append(generatedPassword.length()).append(" characters)\n");
         result.append("• 🔤 Contains uppercase letters\n");
         result.append("• 🔡 Contains lowercase letters\n");
         result.append("• 🔢 Contains numbers\n");
@@ -526,9 +719,17 @@ public class PasswordAnalyzerGUI extends JFrame {
             e.printStackTrace();
         }
 
+        // Use a common-password index or policy file if passed with --index / --policy
+        PasswordAnalyzer analyzer = Main.createAnalyzer(args);
+        SecurityPolicy policy = Main.createPolicy(args);
+        if (analyzer == null || policy == null) {
+            return;
+        }
+
         // Launch the application
         SwingUtilities.invokeLater(() -> {
-            PasswordAnalyzerGUI app = new PasswordAnalyzerGUI();
+            PasswordAnalyzerGUI app = new PasswordAnalyzerGUI(analyzer, policy,
+                    Main.createCache(args, analyzer, policy));
             app.setVisible(true);
         });
     }
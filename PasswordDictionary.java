@@ -0,0 +1,18 @@
+public interface PasswordDictionary {
+    // This interface lets PasswordAnalyzer check against any list of common passwords
+
+    // Method to check a password that has already been folded with toLowerCase()
+    // The sequence may be a reused view over the caller's buffer: read it, never keep it
+    boolean contains(CharSequence lowerPassword);
+
+    // Method to check a password whose PasswordHash.hash64 value is already known
+    default boolean contains(CharSequence lowerPassword, long hash) {
+        return contains(lowerPassword);
+    }
+
+    // Method to get a number that changes whenever the list does, so cached answers
+    // can tell they are stale; lists that never change keep it at 0
+    default long generation() {
+        return 0;
+    }
+}
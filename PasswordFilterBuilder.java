@@ -0,0 +1,174 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class PasswordFilterBuilder {
+    // This class builds the binary fuse filter read by MappedPasswordFilter
+    // from the same wordlists that PasswordIndexBuilder accepts
+
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 1.0 / 256;
+
+    private static final int ARITY = 3;
+    private static final int MAX_ATTEMPTS = 100;
+
+    // Method to build a filter file from a wordlist and return the number of passwords
+    public static long build(Path wordlist, Path filter, double falsePositiveRate) throws IOException {
+        long[] keys = PasswordIndexBuilder.readKeys(wordlist);
+        write(keys, filter, fingerprintBitsFor(falsePositiveRate));
+        return keys.length;
+    }
+
+    // Method to pick the smallest supported fingerprint that meets a false-positive rate
+    static int fingerprintBitsFor(double falsePositiveRate) {
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False-positive rate must be between 0 and 1");
+        }
+        if (falsePositiveRate >= 1.0 / (1 << 8)) return 8;
+        if (falsePositiveRate >= 1.0 / (1 << 16)) return 16;
+        return 32;
+    }
+
+    // Method to write the filter for a set of unique password hashes
+    static void write(long[] keys, Path filter, int fingerprintBits) throws IOException {
+        int size = keys.length;
+        int segmentLength = segmentLength(size);
+        double sizeFactor = size <= 1 ? 0 : Math.max(1.125, 0.875 + 0.25 * Math.log(1_000_000) / Math.log(size));
+        long capacity = size <= 1 ? 0 : Math.round(size * sizeFactor);
+        long segmentCount = Math.max(1, (capacity + segmentLength - 1) / segmentLength - (ARITY - 1));
+        long arrayLength = (segmentCount + ARITY - 1) * segmentLength;
+        long segmentCountLength = segmentCount * segmentLength;
+        int length = Math.toIntExact(arrayLength);
+        long segmentLengthMask = segmentLength - 1;
+        long mask = (1L << fingerprintBits) - 1;
+
+        long[] reverseOrder = new long[size];
+        byte[] reverseH = new byte[size];
+        int[] alone = new int[length];
+        byte[] t2count = new byte[length];
+        long[] t2hash = new long[length];
+        long[] h012 = new long[5];
+        SplittableRandom random = new SplittableRandom(0x5EEDL ^ size);
+
+        long seed = 0;
+        int stackSize = 0;
+        for (int attempt = 0; stackSize < size; attempt++) {
+            if (attempt == MAX_ATTEMPTS) {
+                throw new IllegalStateException("Could not build the filter; are the passwords unique?");
+            }
+            Arrays.fill(t2count, (byte) 0);
+            Arrays.fill(t2hash, 0);
+            seed = random.nextLong();
+
+            // Count how many keys touch every slot, and xor their hashes together
+            boolean overflow = false;
+            for (long key : keys) {
+                long hash = PasswordHash.mix(key + seed);
+                positions(hash, segmentCountLength, segmentLength, segmentLengthMask, h012);
+                for (int i = 0; i < ARITY; i++) {
+                    int index = (int) h012[i];
+                    int count = (t2count[index] & 0xFF) + 4;
+                    overflow |= count > 0xFF;
+                    t2count[index] = (byte) (count ^ i);
+                    t2hash[index] ^= hash;
+                }
+            }
+            if (overflow) {
+                stackSize = 0;
+                continue;
+            }
+
+            // Peel slots that only one key touches until no such slot is left
+            int queueSize = 0;
+            for (int i = 0; i < length; i++) {
+                alone[queueSize] = i;
+                queueSize += ((t2count[i] & 0xFF) >> 2) == 1 ? 1 : 0;
+            }
+            stackSize = 0;
+            while (queueSize > 0) {
+                int index = alone[--queueSize];
+                if (((t2count[index] & 0xFF) >> 2) != 1) {
+                    continue;
+                }
+                long hash = t2hash[index];
+                int found = t2count[index] & 3;
+                reverseH[stackSize] = (byte) found;
+                reverseOrder[stackSize] = hash;
+                stackSize++;
+                positions(hash, segmentCountLength, segmentLength, segmentLengthMask, h012);
+                for (int k = 1; k < ARITY; k++) {
+                    int other = (int) h012[found + k];
+                    int otherSlot = (found + k) % ARITY;
+                    alone[queueSize] = other;
+                    queueSize += ((t2count[other] & 0xFF) >> 2) == 2 ? 1 : 0;
+                    t2count[other] = (byte) (((t2count[other] & 0xFF) - 4) ^ otherSlot);
+                    t2hash[other] ^= hash;
+                }
+            }
+        }
+
+        // Assign fingerprints in reverse peeling order
+        long[] fingerprints = new long[length];
+        for (int i = stackSize - 1; i >= 0; i--) {
+            long hash = reverseOrder[i];
+            int found = reverseH[i];
+            positions(hash, segmentCountLength, segmentLength, segmentLengthMask, h012);
+            int target = (int) h012[found];
+            fingerprints[target] = MappedPasswordFilter.fingerprint(hash, mask)
+                    ^ fingerprints[(int) h012[found + 1]] ^ fingerprints[(int) h012[found + 2]];
+        }
+
+        try (BinaryWriter out = new BinaryWriter(filter)) {
+            out.putInt(MappedPasswordFilter.MAGIC)
+               .putInt(MappedPasswordFilter.VERSION)
+               .putInt(fingerprintBits)
+               .putInt(segmentLength)
+               .putLong(seed)
+               .putLong(size)
+               .putLong(segmentCountLength)
+               .putLong(arrayLength);
+            for (long fingerprint : fingerprints) {
+                switch (fingerprintBits) {
+                    case 8: out.putByte((int) fingerprint); break;
+                    case 16: out.putShort((int) fingerprint); break;
+                    default: out.putInt((int) fingerprint); break;
+                }
+            }
+            out.align(8);
+        }
+    }
+
+    private static int segmentLength(int size) {
+        if (size <= 1) {
+            return 4;
+        }
+        int length = 1 << (int) Math.floor(Math.log(size) / Math.log(3.33) + 2.25);
+        return Math.min(length, 1 << 18);
+    }
+
+    // Fills h012 with the three slots of a hash, repeating the first two at the end
+    private static void positions(long hash, long segmentCountLength, int segmentLength,
+                                  long segmentLengthMask, long[] h012) {
+        long h0 = MappedPasswordFilter.position0(hash, segmentCountLength);
+        long h1 = h0 + segmentLength;
+        long h2 = h1 + segmentLength;
+        h1 ^= (hash >>> 18) & segmentLengthMask;
+        h2 ^= hash & segmentLengthMask;
+        h012[0] = h0;
+        h012[1] = h1;
+        h012[2] = h2;
+        h012[3] = h0;
+        h012[4] = h1;
+    }
+
+    // Usage: java PasswordFilterBuilder <wordlist> <filter> [falsePositiveRate]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java PasswordFilterBuilder <wordlist> <filter> [falsePositiveRate]");
+            return;
+        }
+        double rate = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_FALSE_POSITIVE_RATE;
+        long count = build(Path.of(args[0]), Path.of(args[1]), rate);
+        System.out.println("Filtered " + count + " passwords into " + args[1]);
+    }
+}
@@ -0,0 +1,204 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class PasswordGenerator {
+    // This class generates random passwords that comply with the current SecurityPolicy
+    // Randomness comes from a SecureRandom per thread, read in blocks, and every
+    // character and shuffle position is drawn by rejection sampling so no symbol is
+    // more likely than another. Each password is checked against the policy before
+    // it is returned.
+
+    public static final int DEFAULT_LENGTH = 16;
+
+    private static final String UPPERCASE = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final String LOWERCASE = "abcdefghijklmnopqrstuvwxyz";
+    private static final String DIGITS = "0123456789";
+
+    // A policy that cannot be met (e.g. a minimum score above the maximum) would loop forever
+    private static final int MAX_ATTEMPTS = 1000;
+
+    // Passwords per write in bulk mode
+    private static final int BATCH_SIZE = 8192;
+
+    private static final ThreadLocal<RandomSource> RANDOM = ThreadLocal.withInitial(RandomSource::new);
+
+    private final PasswordAnalyzer analyzer;
+    private final SecurityPolicy policy;
+    private final int length;
+
+    // Specials are the ASCII characters the analyzer is configured to count as special
+    private final String specials;
+    private final String alphabet;
+
+    public PasswordGenerator(PasswordAnalyzer analyzer, SecurityPolicy policy) {
+        this(analyzer, policy, DEFAULT_LENGTH);
+    }
+
+    // The policy minimum length wins if it is longer than the requested length
+    public PasswordGenerator(PasswordAnalyzer analyzer, SecurityPolicy policy, int length) {
+        this.analyzer = analyzer;
+        this.policy = policy;
+        this.length = length;
+        this.specials = analyzer.getCharacterClasses().getAsciiSpecials();
+        this.alphabet = UPPERCASE + LOWERCASE + DIGITS + specials;
+    }
+
+    // Method to generate one password that complies with the current policy
+    public String generate() {
+        CompiledPolicy rules = policy.current();
+        char[] password = new char[Math.max(length, Math.max(rules.getMinimumLength(), 4))];
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            fill(password, rules, RANDOM.get());
+            String candidate = new String(password);
+            if (rules.firstFailure(candidate, analyzer) == 0) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("Could not generate a password that meets the security policy");
+    }
+
+    // One character from every class the policy requires, the rest from all classes,
+    // then a Fisher-Yates shuffle so the required characters are not always in front
+    private void fill(char[] password, CompiledPolicy rules, RandomSource random) {
+        int next = 0;
+        if (rules.requiresUppercase()) password[next++] = pick(UPPERCASE, random);
+        if (rules.requiresLowercase()) password[next++] = pick(LOWERCASE, random);
+        if (rules.requiresNumbers()) password[next++] = pick(DIGITS, random);
+        if (rules.requiresSpecialChars() && !specials.isEmpty()) password[next++] = pick(specials, random);
+        while (next < password.length) {
+            password[next++] = pick(alphabet, random);
+        }
+        for (int i = password.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            char temp = password[i];
+            password[i] = password[j];
+            password[j] = temp;
+        }
+    }
+
+    private static char pick(String alphabet, RandomSource random) {
+        return alphabet.charAt(random.nextInt(alphabet.length()));
+    }
+
+    // Method to generate count passwords into a file, one per line
+    public long generate(long count, Path output, int threads) throws IOException {
+        try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return generate(count, out, threads);
+        }
+    }
+
+    // Method to generate count passwords on all threads into a channel, one per line
+    // Each worker fills its own buffer and writes whole batches, so lines never interleave
+    public long generate(long count, WritableByteChannel out, int threads) throws IOException {
+        threads = Math.max(1, threads);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long share = count / threads + (t < count % threads ? 1 : 0);
+                results.add(workers.submit(() -> generateInto(share, out)));
+            }
+            long written = 0;
+            for (Future<Long> result : results) {
+                written += result.get();
+            }
+            return written;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Generation was interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Generation failed: " + cause, cause);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private long generateInto(long count, WritableByteChannel out) throws IOException {
+        ByteBuffer buffer = null;
+        long written = 0;
+        while (written < count) {
+            int batch = (int) Math.min(BATCH_SIZE, count - written);
+            for (int i = 0; i < batch; i++) {
+                // Generated passwords are ASCII, so one byte per char
+                String password = generate();
+                if (buffer == null || buffer.remaining() < password.length() + 1) {
+                    buffer = flush(buffer, out, BATCH_SIZE * (password.length() + 1));
+                }
+                for (int c = 0; c < password.length(); c++) {
+                    buffer.put((byte) password.charAt(c));
+                }
+                buffer.put((byte) '\n');
+            }
+            buffer = flush(buffer, out, buffer.capacity());
+            written += batch;
+        }
+        return written;
+    }
+
+    private static ByteBuffer flush(ByteBuffer buffer, WritableByteChannel out, int capacity) throws IOException {
+        if (buffer != null && buffer.position() > 0) {
+            buffer.flip();
+            synchronized (out) {
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+            }
+        }
+        if (buffer == null || buffer.capacity() < capacity) {
+            return ByteBuffer.allocate(capacity);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    // Random numbers from a SecureRandom, fetched a block of bytes at a time
+    private static final class RandomSource {
+        private final SecureRandom random = new SecureRandom();
+        private final byte[] block = new byte[512];
+        private int position = block.length;
+
+        private int nextByte() {
+            if (position == block.length) {
+                random.nextBytes(block);
+                position = 0;
+            }
+            return block[position++] & 0xFF;
+        }
+
+        // Method to get a uniform value in [0, bound)
+        // Values from the incomplete last cycle are rejected instead of wrapped,
+        // which is what makes plain modulo biased
+        int nextInt(int bound) {
+            if (bound <= 256) {
+                int limit = 256 - 256 % bound;
+                int value;
+                do {
+                    value = nextByte();
+                } while (value >= limit);
+                return value % bound;
+            }
+            long limit = (1L << 32) - (1L << 32) % bound;
+            long value;
+            do {
+                value = ((long) nextByte() << 24 | nextByte() << 16 | nextByte() << 8 | nextByte()) & 0xFFFFFFFFL;
+            } while (value >= limit);
+            return (int) (value % bound);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+public final class PasswordHash {
+    // This class holds the 64-bit hash shared by the password index builder and readers
+    // The hash runs over UTF-16 code units so ASCII bytes hash the same as their chars
+
+    private static final long SEED = 0x2545F4914F6CDD1DL;
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private PasswordHash() {
+    }
+
+    // Method to hash a password (callers fold the case first)
+    public static long hash64(CharSequence password) {
+        long h = SEED ^ (password.length() * MULTIPLIER);
+        for (int i = 0; i < password.length(); i++) {
+            h = step(h, password.charAt(i));
+        }
+        return mix(h);
+    }
+
+    static long step(long h, int c) {
+        h = (h ^ c) * MULTIPLIER;
+        return h ^ (h >>> 29);
+    }
+
+    // Method to scramble a 64-bit value (murmur3 finalizer)
+    public static long mix(long z) {
+        z ^= z >>> 33;
+        z *= 0xFF51AFD7ED558CCDL;
+        z ^= z >>> 33;
+        z *= 0xC4CEB9FE1A85EC53L;
+        z ^= z >>> 33;
+        return z;
+    }
+
+    // Method to map a hash onto [0, range) without a division (range must be below 2^32)
+    public static long reduce(long hash, long range) {
+        return ((hash >>> 32) * range) >>> 32;
+    }
+}
@@ -0,0 +1,189 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class PasswordIndexBuilder {
+    // This class turns a plain wordlist (one password per line) into the binary
+    // index read by MappedPasswordIndex
+
+    public static final int DEFAULT_FINGERPRINT_BITS = 16;
+
+    // Bits per remaining key on each level; 2 keeps the index near 3.7 bits per key
+    private static final double GAMMA = 2.0;
+    private static final int MAX_LEVELS = 64;
+
+    // Method to build an index file from a wordlist and return the number of passwords
+    public static long build(Path wordlist, Path index, int fingerprintBits) throws IOException {
+        long[] keys = readKeys(wordlist);
+        write(keys, index, fingerprintBits);
+        return keys.length;
+    }
+
+    // Method to read a wordlist into sorted, de-duplicated password hashes
+    static long[] readKeys(Path wordlist) throws IOException {
+        long[] keys = new long[1024];
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(wordlist, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (count == keys.length) {
+                    keys = Arrays.copyOf(keys, keys.length * 2);
+                }
+                keys[count++] = PasswordHash.hash64(line.toLowerCase());
+            }
+        }
+        return sortUnique(keys, count);
+    }
+
+    static long[] sortUnique(long[] keys, int count) {
+        Arrays.sort(keys, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || keys[i] != keys[unique - 1]) {
+                keys[unique++] = keys[i];
+            }
+        }
+        return Arrays.copyOf(keys, unique);
+    }
+
+    // Method to write the index for a set of unique password hashes
+    // The array is reordered in place but keeps all of its keys
+    static void write(long[] keys, Path index, int fingerprintBits) throws IOException {
+        if (fingerprintBits != 8 && fingerprintBits != 16 && fingerprintBits != 32) {
+            throw new IllegalArgumentException("Fingerprint bits must be 8, 16 or 32");
+        }
+        int fingerprintBytes = fingerprintBits / 8;
+        if ((long) keys.length * fingerprintBytes > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many passwords for " + fingerprintBits + "-bit fingerprints");
+        }
+
+        // Place keys level by level; keys that collide move on to the next level
+        List<long[]> levelBits = new ArrayList<>();
+        int remaining = keys.length;
+        while (remaining > 0) {
+            if (levelBits.size() == MAX_LEVELS) {
+                throw new IllegalStateException("Could not place all passwords in " + MAX_LEVELS + " levels");
+            }
+            int level = levelBits.size();
+            long size = Math.max(64, ((long) Math.ceil(GAMMA * remaining) + 63) & ~63L);
+            long[] seen = new long[(int) (size >>> 6)];
+            long[] collided = new long[seen.length];
+            for (int i = 0; i < remaining; i++) {
+                long bit = PasswordHash.reduce(MappedPasswordIndex.levelHash(keys[i], level), size);
+                int w = (int) (bit >>> 6);
+                if ((seen[w] & (1L << bit)) != 0) {
+                    collided[w] |= 1L << bit;
+                } else {
+                    seen[w] |= 1L << bit;
+                }
+            }
+            int next = 0;
+            for (int i = 0; i < remaining; i++) {
+                long bit = PasswordHash.reduce(MappedPasswordIndex.levelHash(keys[i], level), size);
+                if ((collided[(int) (bit >>> 6)] & (1L << bit)) != 0) {
+                    long tmp = keys[next];
+                    keys[next++] = keys[i];
+                    keys[i] = tmp;
+                }
+            }
+            for (int w = 0; w < seen.length; w++) {
+                seen[w] &= ~collided[w];
+            }
+            levelBits.add(seen);
+            remaining = next;
+        }
+
+        // Concatenate the levels into one bit array and sample its ranks
+        long wordCount = 0;
+        for (long[] bits : levelBits) {
+            wordCount += bits.length;
+        }
+        long[] words = new long[Math.toIntExact(wordCount)];
+        long[] levelOffsets = new long[levelBits.size()];
+        long[] levelSizes = new long[levelBits.size()];
+        int offset = 0;
+        for (int level = 0; level < levelBits.size(); level++) {
+            long[] bits = levelBits.get(level);
+            System.arraycopy(bits, 0, words, offset, bits.length);
+            levelOffsets[level] = 64L * offset;
+            levelSizes[level] = 64L * bits.length;
+            offset += bits.length;
+        }
+        levelBits.clear();
+        long[] ranks = new long[(int) MappedPasswordIndex.rankCount(wordCount)];
+        long running = 0;
+        for (int w = 0; w < words.length; w++) {
+            if (w % MappedPasswordIndex.WORDS_PER_RANK == 0) {
+                ranks[w / MappedPasswordIndex.WORDS_PER_RANK] = running;
+            }
+            running += Long.bitCount(words[w]);
+        }
+
+        // Store each key's fingerprint in the slot its hash maps to
+        long mask = (1L << fingerprintBits) - 1;
+        byte[] fingerprints = new byte[keys.length * fingerprintBytes];
+        for (long key : keys) {
+            long slot = slotOf(key, words, ranks, levelOffsets, levelSizes);
+            long fingerprint = MappedPasswordIndex.fingerprint(key, mask);
+            int position = (int) slot * fingerprintBytes;
+            for (int b = 0; b < fingerprintBytes; b++) {
+                fingerprints[position + b] = (byte) (fingerprint >>> (8 * b));
+            }
+        }
+
+        try (BinaryWriter out = new BinaryWriter(index)) {
+            out.putInt(MappedPasswordIndex.MAGIC)
+               .putInt(MappedPasswordIndex.VERSION)
+               .putLong(keys.length)
+               .putInt(fingerprintBits)
+               .putInt(levelOffsets.length)
+               .putLong(wordCount);
+            for (int level = 0; level < levelOffsets.length; level++) {
+                out.putLong(levelOffsets[level]).putLong(levelSizes[level]);
+            }
+            for (long word : words) {
+                out.putLong(word);
+            }
+            for (long rank : ranks) {
+                out.putLong(rank);
+            }
+            out.putBytes(fingerprints, 0, fingerprints.length);
+            out.align(8);
+        }
+    }
+
+    private static long slotOf(long key, long[] words, long[] ranks, long[] levelOffsets, long[] levelSizes) {
+        for (int level = 0; level < levelOffsets.length; level++) {
+            long bit = levelOffsets[level] + PasswordHash.reduce(MappedPasswordIndex.levelHash(key, level), levelSizes[level]);
+            int wordIndex = (int) (bit >>> 6);
+            if ((words[wordIndex] & (1L << bit)) != 0) {
+                int block = wordIndex / MappedPasswordIndex.WORDS_PER_RANK;
+                long count = ranks[block];
+                for (int w = block * MappedPasswordIndex.WORDS_PER_RANK; w < wordIndex; w++) {
+                    count += Long.bitCount(words[w]);
+                }
+                return count + Long.bitCount(words[wordIndex] & ((1L << bit) - 1));
+            }
+        }
+        throw new IllegalStateException("Password hash was not placed in the index");
+    }
+
+    // Usage: java PasswordIndexBuilder <wordlist> <index> [fingerprintBits]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java PasswordIndexBuilder <wordlist> <index> [fingerprintBits]");
+            return;
+        }
+        int bits = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_FINGERPRINT_BITS;
+        long count = build(Path.of(args[0]), Path.of(args[1]), bits);
+        System.out.println("Indexed " + count + " passwords into " + args[1]);
+    }
+}
@@ -0,0 +1,375 @@
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public final class ReportWriter implements Flushable, Closeable {
+    // This class writes compliance reports record by record, as CSV, as JSON Lines or
+    // in the text format of SecurityPolicy.generateComplianceReport. Numbers and fixed
+    // strings are appended straight to the output, so writing a record creates no
+    // Strings. A writer over a channel encodes to UTF-8 through buffers taken from a
+    // shared pool and handed back on close.
+    // Every record is also counted (per score and compliant or not) for the footer.
+
+    public enum Format { CSV, JSONL, TEXT }
+
+    // CSV footer column names of the strength levels, in PasswordAnalyzer.strengthLevelIndex order
+    private static final String[] LEVEL_KEYS = {"strong", "moderate", "weak", "very_weak"};
+
+    // Channel buffers, reused by every writer that is opened on a channel
+    private static final ConcurrentLinkedQueue<ChannelOutput> CHANNEL_BUFFERS = new ConcurrentLinkedQueue<>();
+
+    private final Appendable out;
+    private final Format format;
+    private final CompiledPolicy policy;
+    private final ChannelOutput channel;
+    private final Totals totals;
+
+    // Digits of one number, written from the end
+    private final char[] digits = new char[20];
+    private final CharBuffer digitView = CharBuffer.wrap(digits);
+
+    public ReportWriter(Appendable out, Format format, CompiledPolicy policy) {
+        this(out, format, policy, new Totals());
+    }
+
+    // Records are counted into the given totals, which may be shared by several writers
+    // on the same thread (e.g. one per batch)
+    public ReportWriter(Appendable out, Format format, CompiledPolicy policy, Totals totals) {
+        this(out, format, policy, totals, null);
+    }
+
+    private ReportWriter(Appendable out, Format format, CompiledPolicy policy, Totals totals, ChannelOutput channel) {
+        this.out = out;
+        this.format = format;
+        this.policy = policy;
+        this.totals = totals;
+        this.channel = channel;
+    }
+
+    // Method to open a writer that encodes straight into a channel; close() flushes it
+    // and returns the buffers to the pool, but leaves the channel open
+    public static ReportWriter open(WritableByteChannel channel, Format format, CompiledPolicy policy) {
+        ChannelOutput output = CHANNEL_BUFFERS.poll();
+        if (output == null) {
+            output = new ChannelOutput();
+        }
+        output.attach(channel);
+        return new ReportWriter(output, format, policy, new Totals(), output);
+    }
+
+    // Method to pick the format from a --format value or the output file name
+    // Throws IllegalArgumentException for a --format value that names no format
+    public static Format formatFor(String formatOption, String output) {
+        if (formatOption != null) {
+            return Format.valueOf(formatOption.toUpperCase());
+        }
+        if (output.endsWith(".jsonl") || output.endsWith(".json")) {
+            return Format.JSONL;
+        }
+        return output.endsWith(".txt") ? Format.TEXT : Format.CSV;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public Totals getTotals() {
+        return totals;
+    }
+
+    // Method to write what comes before the first record (the CSV column names)
+    public void writeHeader() throws IOException {
+        if (format == Format.CSV) {
+            out.append("record,score,level,compliant\n");
+        }
+    }
+
+    // Method to write one record from an analysis; record numbers start at 1, and 0
+    // leaves the number out of a text report (a report on a single password)
+    public void write(long record, PasswordAnalysis analysis, boolean compliant) throws IOException {
+        write(record, analysis.getLength(), analysis.getClassMask(), analysis.isCommonPassword(),
+                analysis.getScore(), compliant);
+    }
+
+    // Method to write one record known by its length, character classes (PasswordAnalysis
+    // bits), dictionary result and score, as batch audits scan it
+    public void write(long record, int length, int classMask, boolean common, int score, boolean compliant)
+            throws IOException {
+        totals.add(score, compliant);
+        String level = PasswordAnalyzer.strengthLevelFor(score);
+        if (format == Format.CSV) {
+            appendNumber(record).append(',');
+            appendNumber(score).append(',');
+            out.append(level).append(',').append(compliant ? "YES" : "NO").append('\n');
+        } else if (format == Format.JSONL) {
+            out.append("{\"record\":");
+            appendNumber(record).append(",\"score\":");
+            appendNumber(score).append(",\"level\":\"").append(level)
+               .append("\",\"compliant\":").append(compliant ? "true" : "false").append("}\n");
+        } else {
+            writeText(record, length, classMask, common, score, level, compliant);
+        }
+    }
+
+    private void writeText(long record, int length, int classMask, boolean common, int score, String level,
+                           boolean compliant) throws IOException {
+        if (record > 1) {
+            out.append('\n');
+        }
+        out.append("=== SECURITY POLICY COMPLIANCE REPORT ===\n");
+        if (record > 0) {
+            out.append("Record: ");
+            appendNumber(record).append('\n');
+        }
+        out.append("Password: ");
+        for (int i = 0; i < length; i++) {
+            out.append('*');
+        }
+        out.append("\n\n");
+
+        out.append("Policy Requirements:\n");
+        out.append("✓ Minimum length (");
+        appendNumber(policy.getMinimumLength()).append("): ");
+        passOrFail(length >= policy.getMinimumLength());
+        out.append("✓ Uppercase letters: ");
+        passOrFail((classMask & PasswordAnalysis.UPPERCASE) != 0);
+        out.append("✓ Lowercase letters: ");
+        passOrFail((classMask & PasswordAnalysis.LOWERCASE) != 0);
+        out.append("✓ Numbers: ");
+        passOrFail((classMask & PasswordAnalysis.DIGIT) != 0);
+        out.append("✓ Special characters: ");
+        passOrFail((classMask & PasswordAnalysis.SPECIAL) != 0);
+        out.append("✓ Not common password: ");
+        passOrFail(!common);
+
+        out.append("\nStrength Score: ");
+        appendNumber(score).append("/100\n");
+        out.append("Strength Level: ").append(level).append('\n');
+        out.append("Policy Compliance: ").append(compliant ? "COMPLIANT" : "NON-COMPLIANT").append('\n');
+    }
+
+    private void passOrFail(boolean pass) throws IOException {
+        out.append(pass ? "PASS\n" : "FAIL\n");
+    }
+
+    // Method to append text that is already formatted, such as a batch written by
+    // another writer; it is not counted
+    public void writeFormatted(CharSequence text) throws IOException {
+        out.append(text);
+    }
+
+    // Method to write the totals of every record written so far
+    public void writeFooter() throws IOException {
+        writeFooter(totals);
+    }
+
+    // Method to write the footer for totals gathered elsewhere, e.g. merged from the
+    // writers of several threads
+    // CSV readers that do not skip # comment lines should be given no footer
+    public void writeFooter(Totals summary) throws IOException {
+        long[] levels = summary.getLevelCounts();
+        long records = summary.getRecords();
+        // Locale.ROOT keeps the decimal point a dot, which CSV and JSON readers expect
+        String rate = String.format(Locale.ROOT, "%.4f", summary.getComplianceRate());
+        if (format == Format.CSV) {
+            out.append("# records,compliant,compliance_rate");
+            for (String key : LEVEL_KEYS) {
+                out.append(',').append(key);
+            }
+            out.append("\n# ");
+            appendNumber(records).append(',');
+            appendNumber(summary.getCompliant()).append(',').append(rate);
+            for (long count : levels) {
+                out.append(',');
+                appendNumber(count);
+            }
+            out.append('\n');
+        } else if (format == Format.JSONL) {
+            out.append("{\"summary\":{\"records\":");
+            appendNumber(records).append(",\"compliant\":");
+            appendNumber(summary.getCompliant()).append(",\"complianceRate\":").append(rate)
+               .append(",\"levels\":{");
+            for (int i = 0; i < levels.length; i++) {
+                out.append(i == 0 ? "\"" : ",\"").append(PasswordAnalyzer.strengthLevelName(i)).append("\":");
+                appendNumber(levels[i]);
+            }
+            out.append("}}}\n");
+        } else {
+            out.append("\n=== REPORT SUMMARY ===\n");
+            out.append("Passwords: ");
+            appendNumber(records).append('\n');
+            out.append("Compliant: ");
+            appendNumber(summary.getCompliant())
+               .append(String.format(Locale.ROOT, " (%.1f%%)", summary.getComplianceRate() * 100)).append('\n');
+            for (int i = 0; i < levels.length; i++) {
+                out.append(PasswordAnalyzer.strengthLevelName(i)).append(": ");
+                appendNumber(levels[i]).append('\n');
+            }
+        }
+    }
+
+    // Method to append a non-negative number without creating a String
+    private Appendable appendNumber(long value) throws IOException {
+        int start = digits.length;
+        do {
+            digits[--start] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        return out.append(digitView, start, digits.length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (channel != null) {
+            channel.flush();
+        } else if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel == null) {
+            flush();
+            return;
+        }
+        try {
+            channel.flush();
+        } finally {
+            channel.attach(null);
+            CHANNEL_BUFFERS.offer(channel);
+        }
+    }
+
+    // Running counts of the records written, mergeable across threads
+    public static final class Totals {
+        private final long[] scores = new long[PasswordAnalyzer.MAX_SCORE + 1];
+        private long compliant;
+
+        public void add(int score, boolean isCompliant) {
+            scores[score]++;
+            if (isCompliant) {
+                compliant++;
+            }
+        }
+
+        public void merge(Totals other) {
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] += other.scores[i];
+            }
+            compliant += other.compliant;
+        }
+
+        public long getRecords() {
+            long records = 0;
+            for (long count : scores) {
+                records += count;
+            }
+            return records;
+        }
+
+        public long getCompliant() {
+            return compliant;
+        }
+
+        public double getComplianceRate() {
+            long records = getRecords();
+            return records == 0 ? 0 : (double) compliant / records;
+        }
+
+        // Method to get the number of records per strength level, strongest first
+        public long[] getLevelCounts() {
+            long[] levels = new long[PasswordAnalyzer.STRENGTH_LEVELS];
+            for (int score = 0; score < scores.length; score++) {
+                levels[PasswordAnalyzer.strengthLevelIndex(score)] += scores[score];
+            }
+            return levels;
+        }
+    }
+
+    // An Appendable that encodes chars to UTF-8 in fixed buffers and writes full
+    // buffers to a channel
+    private static final class ChannelOutput implements Appendable {
+        private final CharBuffer chars = CharBuffer.allocate(8192);
+        private final ByteBuffer bytes = ByteBuffer.allocate(8192 * 3);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private WritableByteChannel channel;
+
+        void attach(WritableByteChannel channel) {
+            this.channel = channel;
+            chars.clear();
+            bytes.clear();
+            encoder.reset();
+        }
+
+        @Override
+        public Appendable append(CharSequence text) throws IOException {
+            return append(text, 0, text.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence text, int start, int end) throws IOException {
+            while (start < end) {
+                if (!chars.hasRemaining()) {
+                    drain(false);
+                }
+                int n = Math.min(end - start, chars.remaining());
+                if (text instanceof String) {
+                    // Copies without going through charAt
+                    chars.put((String) text, start, start + n);
+                } else {
+                    for (int i = start; i < start + n; i++) {
+                        chars.put(text.charAt(i));
+                    }
+                }
+                start += n;
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            if (!chars.hasRemaining()) {
+                drain(false);
+            }
+            chars.put(c);
+            return this;
+        }
+
+        // Encodes the buffered chars; a high surrogate at the end waits for its pair
+        // unless this is the final flush
+        private void drain(boolean endOfInput) throws IOException {
+            chars.flip();
+            CoderResult result = encoder.encode(chars, bytes, false);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (endOfInput && chars.hasRemaining()) {
+                // A lone high surrogate at the very end is malformed
+                result = encoder.encode(chars, bytes, true);
+                if (result.isError()) {
+                    result.throwException();
+                }
+            }
+            chars.compact();
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            bytes.clear();
+        }
+
+        void flush() throws IOException {
+            drain(true);
+            encoder.reset();
+        }
+    }
+}
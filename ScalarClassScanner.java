@@ -0,0 +1,35 @@
+import java.nio.ByteBuffer;
+
+public final class ScalarClassScanner implements ClassScanner {
+    // This class is the plain ClassScanner: one table lookup per byte
+    // It runs on every JVM and is what VectorClassScanner is checked against
+
+    // PasswordAnalysis class bit of each ASCII byte, 0 for OTHER
+    private final byte[] bits = new byte[128];
+
+    public ScalarClassScanner(CharacterClasses classes) {
+        for (int c = 0; c < 128; c++) {
+            int code = classes.bmp[c];
+            bits[c] = (byte) (code == CharacterClasses.OTHER ? 0 : 1 << (code - 1));
+        }
+    }
+
+    @Override
+    public void scan(ByteBuffer buffer, int[] lines, int count, int[] masks) {
+        byte[] bits = this.bits;
+        for (int i = 0; i < count; i++) {
+            int start = lines[i * 2];
+            int end = start + lines[i * 2 + 1];
+            int mask = 0;
+            for (int j = start; j < end; j++) {
+                byte b = buffer.get(j);
+                if (b < 0) {
+                    mask = NOT_ASCII;
+                    break;
+                }
+                mask |= bits[b];
+            }
+            masks[i] = mask;
+        }
+    }
+}
@@ -1,54 +1,174 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
 public class SecurityPolicy {
     // This class represents GCS policies - the rules that must be followed
+    // The rules can be loaded from a properties file and reloaded while running;
+    // a reload swaps in a whole new CompiledPolicy, so readers never lock and
+    // never see half of an old policy and half of a new one
     
-    // ISO 22301 inspired password policy requirements
+    // ISO 22301 inspired password policy requirements (the defaults)
     public static final int MINIMUM_LENGTH = 8;
     public static final boolean REQUIRE_UPPERCASE = true;
     public static final boolean REQUIRE_LOWERCASE = true;
     public static final boolean REQUIRE_NUMBERS = true;
     public static final boolean REQUIRE_SPECIAL_CHARS = true;
     public static final int MINIMUM_SCORE_REQUIRED = 60;
+
+    private volatile CompiledPolicy current;
+
+    public SecurityPolicy() {
+        this(new CompiledPolicy(MINIMUM_LENGTH, REQUIRE_UPPERCASE, REQUIRE_LOWERCASE, REQUIRE_NUMBERS,
+                REQUIRE_SPECIAL_CHARS, true, MINIMUM_SCORE_REQUIRED));
+    }
+
+    public SecurityPolicy(CompiledPolicy policy) {
+        this.current = policy;
+    }
+
+    // Method to create a policy from a properties file
+    public static SecurityPolicy load(Path file) throws IOException {
+        return new SecurityPolicy(CompiledPolicy.load(file));
+    }
+
+    // Method to get the policy currently in force
+    public CompiledPolicy current() {
+        return current;
+    }
+
+    // Method to replace the policy; checks already running finish with the old one
+    public void update(CompiledPolicy policy) {
+        current = policy;
+    }
+
+    // Method to reload the policy from a file; on error the old policy stays in force
+    public void reload(Path file) throws IOException {
+        update(CompiledPolicy.load(file));
+    }
+
+    // Method to reload the policy whenever the file changes, on a background thread
+    public void watch(Path file) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        Path directory = absolute.getParent();
+        WatchService watcher = FileSystems.getDefault().newWatchService();
+        directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = watcher.take();
+                    boolean changed = false;
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (absolute.getFileName().equals(event.context())) {
+                            changed = true;
+                        }
+                    }
+                    key.reset();
+                    if (changed) {
+                        try {
+                            reload(absolute);
+                            System.err.println("Security policy reloaded from " + absolute);
+                        } catch (IOException | RuntimeException e) {
+                            System.err.println("Keeping previous security policy: " + e.getMessage());
+                        }
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // Watching stopped
+            }
+        }, "policy-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
     
     // Method to check if password complies with organizational policy
-    public boolean isCompliant(String password, PasswordAnalyzer analyzer) {
-        // Check all policy requirements
-        boolean lengthOk = analyzer.checkMinimumLength(password, MINIMUM_LENGTH);
-        boolean uppercaseOk = !REQUIRE_UPPERCASE || analyzer.hasUppercase(password);
-        boolean lowercaseOk = !REQUIRE_LOWERCASE || analyzer.hasLowercase(password);
-        boolean numbersOk = !REQUIRE_NUMBERS || analyzer.hasNumbers(password);
-        boolean specialOk = !REQUIRE_SPECIAL_CHARS || analyzer.hasSpecialCharacters(password);
-        boolean notCommon = !analyzer.isCommonPassword(password);
-        boolean scoreOk = analyzer.calculateStrengthScore(password) >= MINIMUM_SCORE_REQUIRED;
-        
-        return lengthOk && uppercaseOk && lowercaseOk && numbersOk && specialOk && notCommon && scoreOk;
+    public boolean isCompliant(CharSequence password, PasswordAnalyzer analyzer) {
+        long start = AnalyzerMetrics.start();
+        CompiledPolicy policy = current;
+        return record(policy, policy.firstFailure(password, analyzer), start);
+    }
+
+    // Method to check a new password against the policy and against what the user is
+    // known by (username, email address, the password being replaced), e.g. when a
+    // password is changed. Null entries are skipped.
+    public boolean isCompliant(CharSequence password, PasswordAnalyzer analyzer, CharSequence... context) {
+        long start = AnalyzerMetrics.start();
+        CompiledPolicy policy = current;
+        return record(policy, policy.firstFailure(password, analyzer, context), start);
+    }
+
+    // Method to check part of a reusable char buffer without copying it into a String
+    public boolean isCompliant(char[] password, int offset, int length, PasswordAnalyzer analyzer) {
+        long start = AnalyzerMetrics.start();
+        CompiledPolicy policy = current;
+        return record(policy, policy.firstFailure(password, offset, length, analyzer), start);
+    }
+
+    // Method to check an already computed analysis against the policy
+    public boolean isCompliant(PasswordAnalysis analysis) {
+        long start = AnalyzerMetrics.start();
+        CompiledPolicy policy = current;
+        return record(policy, policy.firstFailure(analysis), start);
+    }
+
+    // Method to check a password known only by its length, character classes
+    // (PasswordAnalysis bits) and whether it is common, as batch audits scan it
+    public boolean isCompliant(int length, int classMask, boolean commonPassword) {
+        long start = AnalyzerMetrics.start();
+        CompiledPolicy policy = current;
+        return record(policy, policy.firstFailure(length, classMask, commonPassword), start);
+    }
+
+    // Method to count a check that a batch audit made itself, against a snapshot it took
+    // with current(), given every rule the password fails; the first of them in
+    // evaluation order is counted as the failure, as isCompliant would have
+    static boolean recordFailures(CompiledPolicy policy, int failures, long start) {
+        int failure = 0;
+        for (int rule : policy.chain()) {
+            if ((failures & rule) != 0) {
+                failure = rule;
+                break;
+            }
+        }
+        return record(policy, failure, start);
+    }
+
+    // Method to count a compliance check in AnalyzerMetrics (free when metrics are off)
+    private static boolean record(CompiledPolicy policy, int failure, long start) {
+        AnalyzerMetrics.recordOutcome(policy.chain(), failure);
+        AnalyzerMetrics.stop(AnalyzerMetrics.COMPLIANCE, start);
+        return failure == 0;
     }
     
     // Method to generate policy compliance report
     public String generateComplianceReport(String password, PasswordAnalyzer analyzer) {
-        StringBuilder report = new StringBuilder();
-        report.append("=== SECURITY POLICY COMPLIANCE REPORT ===\n");
-        report.append("Password: ").append("*".repeat(password.length())).append("\n\n");
-        
-        // Check each requirement
-        report.append("Policy Requirements:\n");
-        report.append("✓ Minimum length (").append(MINIMUM_LENGTH).append("): ")
-               .append(analyzer.checkMinimumLength(password, MINIMUM_LENGTH) ? "PASS" : "FAIL").append("\n");
-        report.append("✓ Uppercase letters: ")
-               .append(analyzer.hasUppercase(password) ? "PASS" : "FAIL").append("\n");
-        report.append("✓ Lowercase letters: ")
-               .append(analyzer.hasLowercase(password) ? "PASS" : "FAIL").append("\n");
-        report.append("✓ Numbers: ")
-               .append(analyzer.hasNumbers(password) ? "PASS" : "FAIL").append("\n");
-        report.append("✓ Special characters: ")
-               .append(analyzer.hasSpecialCharacters(password) ? "PASS" : "FAIL").append("\n");
-        report.append("✓ Not common password: ")
-               .append(!analyzer.isCommonPassword(password) ? "PASS" : "FAIL").append("\n");
-        
-        int score = analyzer.calculateStrengthScore(password);
-        report.append("\nStrength Score: ").append(score).append("/100\n");
-        report.append("Strength Level: ").append(analyzer.getStrengthLevel(score)).append("\n");
-        report.append("Policy Compliance: ").append(isCompliant(password, analyzer) ? "COMPLIANT" : "NON-COMPLIANT").append("\n");
-        
+        return generateComplianceReport(analyzer.analyze(password));
+    }
+
+    // Method to generate the report from an already computed analysis
+    public String generateComplianceReport(PasswordAnalysis analysis) {
+        StringBuilder report = new StringBuilder(512);
+        try {
+            writeComplianceReport(analysis, report);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // a StringBuilder never throws
+        }
         return report.toString();
     }
-}
\ No newline at end of file
+
+    // Method to write the report to any Appendable (a console, a buffer, a file writer)
+    // without building it as a String first
+    public void writeComplianceReport(PasswordAnalysis analysis, Appendable out) throws IOException {
+        long start = AnalyzerMetrics.start();
+        CompiledPolicy policy = current;
+        ReportWriter writer = new ReportWriter(out, ReportWriter.Format.TEXT, policy);
+        writer.write(0, analysis, policy.firstFailure(analysis) == 0);
+        AnalyzerMetrics.stop(AnalyzerMetrics.REPORT, start);
+    }
+}
@@ -0,0 +1,431 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public final class SegmentedPasswordIndex implements PasswordDictionary, Closeable {
+    // This class is a common-password index that grows without being rebuilt: a
+    // directory holding one large immutable base segment and small delta segments
+    // appended on top of it.
+    //
+    //   base-<n>.idx     MappedPasswordIndex of every password in deltas 1..n
+    //   base-<n>.keys    the same passwords as a MappedKeySegment, read by compaction only
+    //   delta-<n>.keys   the passwords of update n, as a MappedKeySegment
+    //
+    // Every file is written under a temporary name and renamed into place, so a file
+    // that can be seen is complete. A lookup checks the base and every delta newer
+    // than it. Compaction merges the deltas into base-<newest delta>, then deletes the
+    // files it replaced. Processes that still map those files keep reading them until
+    // they switch, because a deleted file stays readable while it is mapped.
+    //
+    // Readers take no locks. The open segments are one immutable Segments object in a
+    // volatile field, and it is replaced as a whole when a delta appears or a new base
+    // is swapped in. A lookup that started on the old object simply finishes on it.
+    // Writers in any process serialize on a lock file while they pick a sequence
+    // number. Other processes notice new files through a WatchService.
+
+    public static final int DEFAULT_MAX_DELTAS = 8;
+
+    private static final String LOCK_FILE = ".lock";
+    private static final String COMPACT_LOCK_FILE = ".compact.lock";
+    private static final String BASE_PREFIX = "base-";
+    private static final String DELTA_PREFIX = "delta-";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String KEYS_SUFFIX = ".keys";
+
+    // A listed file can be deleted by another process's compaction before it is opened
+    private static final int REFRESH_ATTEMPTS = 5;
+
+    private final Path directory;
+    private final int maxDeltas;
+    private volatile Segments current = new Segments(0, null, null, new long[0], new MappedKeySegment[0]);
+    private volatile long generation;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private ExecutorService compactor;
+    private WatchService watcher;
+
+    private SegmentedPasswordIndex(Path directory, int maxDeltas) {
+        this.directory = directory;
+        this.maxDeltas = maxDeltas;
+    }
+
+    // Method to open (or create) an index directory; with maxDeltas > 0, compaction
+    // starts on a background thread whenever that many deltas have piled up
+    public static SegmentedPasswordIndex open(Path directory, int maxDeltas) throws IOException {
+        Files.createDirectories(directory);
+        SegmentedPasswordIndex index = new SegmentedPasswordIndex(directory, maxDeltas);
+        index.refresh();
+        return index;
+    }
+
+    @Override
+    public boolean contains(CharSequence lowerPassword) {
+        return containsHash(PasswordHash.hash64(lowerPassword));
+    }
+
+    @Override
+    public boolean contains(CharSequence lowerPassword, long hash) {
+        return containsHash(hash);
+    }
+
+    // Method to look up a password by its PasswordHash.hash64 value
+    public boolean containsHash(long hash) {
+        Segments segments = current;
+        if (segments.base != null && segments.base.containsHash(hash)) {
+            return true;
+        }
+        for (MappedKeySegment delta : segments.deltas) {
+            if (delta.containsHash(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Method to get the number of passwords in the base (deltas may repeat some)
+    public long baseSize() {
+        Segments segments = current;
+        return segments.base == null ? 0 : segments.base.size();
+    }
+
+    public int deltaCount() {
+        return current.deltas.length;
+    }
+
+    // Method to get a number that goes up every time a delta or a new base is switched to
+    @Override
+    public long generation() {
+        return generation;
+    }
+
+    // Method to add the passwords of a wordlist (one per line) as a new delta segment;
+    // lookups in this process see them on return, other processes moments later.
+    // Returns the number of unique passwords in the delta.
+    public long add(Path wordlist) throws IOException {
+        long[] keys = PasswordIndexBuilder.readKeys(wordlist);
+        Path temporary = Files.createTempFile(directory, DELTA_PREFIX, ".tmp");
+        try {
+            MappedKeySegment.write(keys, keys.length, temporary);
+            try (FileChannel lock = FileChannel.open(directory.resolve(LOCK_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock held = lock.lock();
+                try {
+                    long sequence = highestSequence() + 1;
+                    Files.move(temporary, directory.resolve(DELTA_PREFIX + sequence + KEYS_SUFFIX),
+                            StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    held.release();
+                }
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        refresh();
+        return keys.length;
+    }
+
+    // Method to merge every delta into a new base and swap it in; returns false if
+    // there was nothing to merge or a compaction is already running here or in
+    // another process. Lookups go on against the old segments the whole time. The
+    // merged key list is held in memory while the new base is built (8 bytes per
+    // password).
+    public boolean compact() throws IOException {
+        // A file lock keeps other processes out, but not other threads of this one
+        if (!compacting.compareAndSet(false, true)) {
+            return false;
+        }
+        try (FileChannel lock = FileChannel.open(directory.resolve(COMPACT_LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock held = lock.tryLock()) {
+            if (held == null) {
+                return false;
+            }
+            refresh();
+            Segments segments = current;
+            if (segments.deltas.length == 0) {
+                return false;
+            }
+            long sequence = segments.deltaSequences[segments.deltaSequences.length - 1];
+            long[] keys = merge(segments);
+            int fingerprintBits = segments.base == null
+                    ? PasswordIndexBuilder.DEFAULT_FINGERPRINT_BITS : segments.base.getFingerprintBits();
+
+            // The key file goes first: a base counts only once its index exists too
+            publish(temporary -> MappedKeySegment.write(keys, keys.length, temporary),
+                    BASE_PREFIX + sequence + KEYS_SUFFIX);
+            publish(temporary -> PasswordIndexBuilder.write(keys, temporary, fingerprintBits),
+                    BASE_PREFIX + sequence + INDEX_SUFFIX);
+            refresh();
+            deleteReplaced(sequence);
+            return true;
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    // Method to start compact() on the background thread unless it is already running
+    public void compactInBackground() {
+        if (compacting.get()) {
+            return;
+        }
+        synchronized (this) {
+            if (compactor == null) {
+                compactor = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "index-compactor");
+                    thread.setDaemon(true);
+                    // Lookups matter more than how soon the new base is ready
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+            }
+            compactor.execute(() -> {
+                try {
+                    compact();
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Password index compaction failed: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    // Method to pick up segments that other processes have added, on a background thread
+    // (files renamed into the directory are reported as created)
+    public synchronized void watch() throws IOException {
+        if (watcher != null) {
+            return;
+        }
+        watcher = FileSystems.getDefault().newWatchService();
+        directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+        WatchService service = watcher;
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = service.take();
+                    key.pollEvents();
+                    key.reset();
+                    try {
+                        refresh();
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println("Keeping previous password index segments: " + e.getMessage());
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // Watching stopped
+            }
+        }, "index-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Method to reopen the directory's current segments; files already open are reused
+    public synchronized void refresh() throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Segments next = scan(current);
+                if (next != current) {
+                    current = next;
+                    // Only this synchronized method writes it
+                    generation++;
+                }
+                break;
+            } catch (NoSuchFileException e) {
+                if (attempt == REFRESH_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+        if (maxDeltas > 0 && current.deltas.length >= maxDeltas) {
+            compactInBackground();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+        }
+        if (compactor != null) {
+            compactor.shutdown();
+        }
+    }
+
+    private Segments scan(Segments previous) throws IOException {
+        long baseSequence = 0;
+        List<Long> deltaSequences = new ArrayList<>();
+        List<Long> indexes = new ArrayList<>();
+        List<Long> keyLists = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long deltaSequence = sequenceOf(name, DELTA_PREFIX, KEYS_SUFFIX);
+                if (deltaSequence > 0) {
+                    deltaSequences.add(deltaSequence);
+                }
+                long indexSequence = sequenceOf(name, BASE_PREFIX, INDEX_SUFFIX);
+                if (indexSequence > 0) {
+                    indexes.add(indexSequence);
+                }
+                long keysSequence = sequenceOf(name, BASE_PREFIX, KEYS_SUFFIX);
+                if (keysSequence > 0) {
+                    keyLists.add(keysSequence);
+                }
+            }
+        }
+        for (long sequence : indexes) {
+            if (keyLists.contains(sequence)) {
+                baseSequence = Math.max(baseSequence, sequence);
+            }
+        }
+        long newestBase = baseSequence;
+        deltaSequences.removeIf(sequence -> sequence <= newestBase);
+        long[] sequences = deltaSequences.stream().mapToLong(Long::longValue).sorted().toArray();
+        if (baseSequence == previous.baseSequence && Arrays.equals(sequences, previous.deltaSequences)) {
+            return previous;
+        }
+
+        MappedPasswordIndex base = previous.base;
+        MappedKeySegment baseKeys = previous.baseKeys;
+        if (baseSequence != previous.baseSequence) {
+            base = MappedPasswordIndex.open(directory.resolve(BASE_PREFIX + baseSequence + INDEX_SUFFIX));
+            baseKeys = MappedKeySegment.openKeys(directory.resolve(BASE_PREFIX + baseSequence + KEYS_SUFFIX));
+        }
+        // Opening a delta builds its lookup directory here, before the new Segments is
+        // published, so the first lookup against it is no slower than the rest
+        MappedKeySegment[] deltas = new MappedKeySegment[sequences.length];
+        for (int i = 0; i < sequences.length; i++) {
+            int known = Arrays.binarySearch(previous.deltaSequences, sequences[i]);
+            deltas[i] = known >= 0
+                    ? previous.deltas[known]
+                    : MappedKeySegment.open(directory.resolve(DELTA_PREFIX + sequences[i] + KEYS_SUFFIX));
+        }
+        return new Segments(baseSequence, base, baseKeys, sequences, deltas);
+    }
+
+    // Method to get the highest sequence number in use, merged or not
+    private long highestSequence() throws IOException {
+        long highest = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                highest = Math.max(highest, sequenceOf(name, DELTA_PREFIX, KEYS_SUFFIX));
+                highest = Math.max(highest, sequenceOf(name, BASE_PREFIX, KEYS_SUFFIX));
+            }
+        }
+        return highest;
+    }
+
+    // Method to parse the sequence number of a segment file name, or return 0
+    private static long sequenceOf(String name, String prefix, String suffix) {
+        if (!name.startsWith(prefix) || !name.endsWith(suffix)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // Method to merge the sorted keys of the base and every delta into one sorted,
+    // unique array
+    private static long[] merge(Segments segments) {
+        List<MappedKeySegment> inputs = new ArrayList<>(Arrays.asList(segments.deltas));
+        if (segments.baseKeys != null) {
+            inputs.add(segments.baseKeys);
+        }
+        long total = 0;
+        for (MappedKeySegment input : inputs) {
+            total += input.size();
+        }
+        long[] keys = new long[Math.toIntExact(total)];
+        long[] positions = new long[inputs.size()];
+        int count = 0;
+        while (true) {
+            // Few inputs, so the smallest head is found by looking at each of them
+            int smallest = -1;
+            long smallestKey = 0;
+            for (int i = 0; i < positions.length; i++) {
+                if (positions[i] < inputs.get(i).size()) {
+                    long key = inputs.get(i).keyAt(positions[i]);
+                    if (smallest < 0 || key < smallestKey) {
+                        smallest = i;
+                        smallestKey = key;
+                    }
+                }
+            }
+            if (smallest < 0) {
+                break;
+            }
+            positions[smallest]++;
+            if (count == 0 || keys[count - 1] != smallestKey) {
+                keys[count++] = smallestKey;
+            }
+        }
+        return Arrays.copyOf(keys, count);
+    }
+
+    private interface FileWriter {
+        void write(Path temporary) throws IOException;
+    }
+
+    // Method to write a file under a temporary name and rename it into place
+    private void publish(FileWriter writer, String name) throws IOException {
+        Path temporary = Files.createTempFile(directory, name, ".tmp");
+        try {
+            writer.write(temporary);
+            Files.move(temporary, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    // Method to delete the bases and deltas that base-<sequence> replaces
+    private void deleteReplaced(long sequence) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long delta = sequenceOf(name, DELTA_PREFIX, KEYS_SUFFIX);
+                long base = Math.max(sequenceOf(name, BASE_PREFIX, INDEX_SUFFIX),
+                        sequenceOf(name, BASE_PREFIX, KEYS_SUFFIX));
+                if ((delta > 0 && delta <= sequence) || (base > 0 && base < sequence)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // One consistent set of open segments
+    private static final class Segments {
+        final long baseSequence;
+        final MappedPasswordIndex base;
+        final MappedKeySegment baseKeys;
+        final long[] deltaSequences;
+        final MappedKeySegment[] deltas;
+
+        Segments(long baseSequence, MappedPasswordIndex base, MappedKeySegment baseKeys,
+                 long[] deltaSequences, MappedKeySegment[] deltas) {
+            this.baseSequence = baseSequence;
+            this.base = base;
+            this.baseKeys = baseKeys;
+            this.deltaSequences = deltaSequences;
+            this.deltas = deltas;
+        }
+    }
+}
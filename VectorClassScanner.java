@@ -0,0 +1,123 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+public final class VectorClassScanner implements ClassScanner {
+    // This class is the SIMD ClassScanner, built on the jdk.incubator.vector module.
+    // The whole span of a batch is first classified a block at a time (64 bytes with
+    // AVX-512, 32 with AVX2) with no branches, giving each byte its class bit in a
+    // scratch array of longs. Each record is then answered by OR-ing the words it
+    // covers, eight bytes at a time, instead of looking up every byte.
+    // Only ClassScanner.create loads this class, so the JVM runs without the module.
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    // Constant, so the loop over the tables is unrolled and its vectors stay in registers
+    private static final int TABLE_COUNT = 128 / Math.max(16, SPECIES.length());
+
+    // Bit set on a byte that is not ASCII, next to the PasswordAnalysis class bits
+    private static final int NON_ASCII_BIT = 16;
+
+    // Class bytes of the batch being scanned, one array per thread
+    private static final ThreadLocal<long[][]> WORDS = ThreadLocal.withInitial(() -> new long[1][1024]);
+
+    // The class bit of each ASCII byte, as 128 / lanes vectors of one lane per byte, so
+    // a block is classified with one table lookup (a byte permute) per vector
+    private final ByteVector[] tables;
+
+    public VectorClassScanner(CharacterClasses classes) {
+        // Narrower vectors are emulated or barely beat the table lookup
+        if (SPECIES.length() < 16) {
+            throw new UnsupportedOperationException("Vectors of " + SPECIES.vectorBitSize() + " bits are too narrow");
+        }
+        byte[] bits = new byte[128];
+        for (int c = 0; c < 128; c++) {
+            int code = classes.bmp[c];
+            bits[c] = (byte) (code == CharacterClasses.OTHER ? 0 : 1 << (code - 1));
+        }
+        tables = new ByteVector[TABLE_COUNT];
+        for (int t = 0; t < TABLE_COUNT; t++) {
+            tables[t] = ByteVector.fromArray(SPECIES, bits, t * SPECIES.length());
+        }
+    }
+
+    @Override
+    public void scan(ByteBuffer buffer, int[] lines, int count, int[] masks) {
+        if (count == 0) {
+            return;
+        }
+        int lanes = SPECIES.length();
+        int from = lines[0];
+        int to = lines[count * 2 - 2] + lines[count * 2 - 1];
+        long[] words = words((to - from + lanes - 1) / lanes * (lanes / 8));
+
+        // Bytes past the last record are classified too, but never read
+        int position = from;
+        int w = 0;
+        int fullBlocks = Math.min(to, buffer.limit() - lanes + 1);
+        for (; position < fullBlocks; position += lanes, w += lanes / 8) {
+            ByteVector block = ByteVector.fromByteBuffer(SPECIES, buffer, position, ByteOrder.nativeOrder());
+            classify(block).reinterpretAsLongs().intoArray(words, w);
+        }
+        if (position < to) {
+            // The last block would run past the end of the buffer
+            ByteVector block = ByteVector.fromByteBuffer(SPECIES, buffer, position, ByteOrder.nativeOrder(),
+                    SPECIES.indexInRange(position, buffer.limit()));
+            classify(block).reinterpretAsLongs().intoArray(words, w);
+        }
+
+        for (int i = 0; i < count; i++) {
+            int start = lines[i * 2] - from;
+            int length = lines[i * 2 + 1];
+            int bits = length == 0 ? 0 : classBits(words, start, start + length);
+            masks[i] = (bits & NON_ASCII_BIT) != 0 ? NOT_ASCII : bits;
+        }
+    }
+
+    private static long[] words(int length) {
+        long[][] holder = WORDS.get();
+        if (holder[0].length < length) {
+            holder[0] = new long[Math.max(length, holder[0].length * 2)];
+        }
+        return holder[0];
+    }
+
+    // Method to get the PasswordAnalysis class bit of every byte, or NON_ASCII_BIT
+    // Each table covers the bytes from t * lanes up, so a later table overrides an
+    // earlier one for the bytes it covers; negative (non-ASCII) bytes come last
+    private ByteVector classify(ByteVector block) {
+        ByteVector index = block.and((byte) (SPECIES.length() - 1));
+        ByteVector classBits = index.selectFrom(tables[0]);
+        for (int t = 1; t < TABLE_COUNT; t++) {
+            VectorMask<Byte> covered = block.compare(VectorOperators.GE, (byte) (t * SPECIES.length()));
+            classBits = classBits.blend(index.selectFrom(tables[t]), covered);
+        }
+        return classBits.blend((byte) NON_ASCII_BIT, block.compare(VectorOperators.LT, (byte) 0));
+    }
+
+    // Method to OR together the class bytes from..to-1 of the scratch array
+    // Bytes are in little-endian order within each long, as reinterpretAsLongs puts them
+    private static int classBits(long[] words, int from, int to) {
+        int first = from >>> 3;
+        int last = (to - 1) >>> 3;
+        long head = -1L << ((from & 7) * 8);
+        long tail = -1L >>> ((7 - ((to - 1) & 7)) * 8);
+        long bits;
+        if (first == last) {
+            bits = words[first] & head & tail;
+        } else {
+            bits = (words[first] & head) | (words[last] & tail);
+            for (int w = first + 1; w < last; w++) {
+                bits |= words[w];
+            }
+        }
+        bits |= bits >>> 32;
+        bits |= bits >>> 16;
+        bits |= bits >>> 8;
+        return (int) bits & 0xFF;
+    }
+}
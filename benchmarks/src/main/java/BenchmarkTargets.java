@@ -0,0 +1,130 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import bench.AnalyzerTargets;
+
+public class BenchmarkTargets implements AnalyzerTargets {
+    // This class forwards benchmark calls to the real analyzer and policy
+
+    private final PasswordAnalyzer analyzer = new PasswordAnalyzer();
+    private final SecurityPolicy policy = new SecurityPolicy();
+    private final GuessEstimator estimator = new GuessEstimator();
+    private final ClassScanner scalarScanner = new ScalarClassScanner(analyzer.getCharacterClasses());
+    private ClassScanner vectorScanner;
+    private final StringBuilder reportBuffer = new StringBuilder(1024);
+    private final Map<String, ReportWriter> reportWriters = new HashMap<>();
+    private MarkovModel markov;
+
+    @Override
+    public int calculateStrengthScore(String password) {
+        return analyzer.calculateStrengthScore(password);
+    }
+
+    @Override
+    public int calculateStrengthScore(char[] password, int offset, int length) {
+        return analyzer.calculateStrengthScore(password, offset, length);
+    }
+
+    @Override
+    public boolean isCompliant(String password) {
+        return policy.isCompliant(password, analyzer);
+    }
+
+    @Override
+    public boolean isCompliant(char[] password, int offset, int length) {
+        return policy.isCompliant(password, offset, length, analyzer);
+    }
+
+    @Override
+    public boolean isCompliant(String password, String username, String email, String oldPassword) {
+        return policy.isCompliant(password, analyzer, username, email, oldPassword);
+    }
+
+    @Override
+    public boolean isSimilar(String password, String username, String email, String oldPassword) {
+        return policy.current().getSimilarity().isSimilar(password, username, email, oldPassword);
+    }
+
+    @Override
+    public String generateComplianceReport(String password) {
+        return policy.generateComplianceReport(password, analyzer);
+    }
+
+    @Override
+    public int writeReport(String password, String format) {
+        ReportWriter writer = reportWriters.computeIfAbsent(format, f -> new ReportWriter(reportBuffer,
+                ReportWriter.Format.valueOf(f.toUpperCase()), policy.current()));
+        reportBuffer.setLength(0);
+        PasswordAnalysis analysis = analyzer.analyze(password);
+        try {
+            writer.write(1, analysis, policy.isCompliant(analysis));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return reportBuffer.length();
+    }
+
+    @Override
+    public double estimateLog10Guesses(String password) {
+        return estimator.estimateLog10Guesses(password);
+    }
+
+    @Override
+    public double estimateMarkovLog10Guesses(String password) {
+        if (markov == null) {
+            markov = trainMarkovModel();
+        }
+        return markov.estimate(password).getLog10Guesses();
+    }
+
+    // Scoring time does not depend on what the model was trained on, only on its order
+    private static MarkovModel trainMarkovModel() {
+        String alphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789!@#$%&*";
+        SplittableRandom random = new SplittableRandom(42);
+        try {
+            Path corpus = Files.createTempFile("markov-corpus", ".txt");
+            Path model = Files.createTempFile("markov-model", ".bin");
+            try {
+                try (Writer out = Files.newBufferedWriter(corpus)) {
+                    for (int i = 0; i < 200_000; i++) {
+                        int length = 6 + random.nextInt(10);
+                        for (int j = 0; j < length; j++) {
+                            out.write(alphabet.charAt(random.nextInt(alphabet.length())));
+                        }
+                        out.write('\n');
+                    }
+                }
+                MarkovModelBuilder.build(corpus, model, MarkovModelBuilder.DEFAULT_ORDER);
+                // The mapping stays valid after the file is deleted
+                return MarkovModel.open(model);
+            } finally {
+                Files.deleteIfExists(corpus);
+                Files.deleteIfExists(model);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void scanClasses(boolean vector, ByteBuffer packed, int[] lines, int count, int[] masks) {
+        if (!vector) {
+            scalarScanner.scan(packed, lines, count, masks);
+            return;
+        }
+        if (vectorScanner == null) {
+            vectorScanner = ClassScanner.create(analyzer.getCharacterClasses());
+            if (!(vectorScanner instanceof VectorClassScanner)) {
+                throw new IllegalStateException("Vector API not available; run with --add-modules jdk.incubator.vector");
+            }
+        }
+        vectorScanner.scan(packed, lines, count, masks);
+    }
+}
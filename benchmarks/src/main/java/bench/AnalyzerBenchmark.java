@@ -0,0 +1,119 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AnalyzerBenchmark {
+    // Single-threaded cost of the analyzer hot paths, one password per call
+
+    @Param({"leaked", "policy", "passphrase"})
+    public String lengths;
+
+    @Param({"0.0", "0.2"})
+    public double commonShare;
+
+    private AnalyzerTargets targets;
+    private String[] samples;
+    private char[] buffer;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        targets = AnalyzerTargets.load();
+        samples = PasswordSamples.generate(lengths, commonShare, 42);
+        buffer = new char[256];
+    }
+
+    private String nextPassword() {
+        String password = samples[next];
+        next = (next + 1) & (PasswordSamples.SAMPLE_COUNT - 1);
+        return password;
+    }
+
+    @Benchmark
+    public int calculateStrengthScore() {
+        return targets.calculateStrengthScore(nextPassword());
+    }
+
+    // Copies the sample into a reused buffer first, as a batch reader would
+    private int nextIntoBuffer() {
+        String password = nextPassword();
+        password.getChars(0, password.length(), buffer, 0);
+        return password.length();
+    }
+
+    @Benchmark
+    public int calculateStrengthScoreChars() {
+        return targets.calculateStrengthScore(buffer, 0, nextIntoBuffer());
+    }
+
+    @Benchmark
+    public boolean isCompliant() {
+        return targets.isCompliant(nextPassword());
+    }
+
+    @Benchmark
+    public boolean isCompliantChars() {
+        return targets.isCompliant(buffer, 0, nextIntoBuffer());
+    }
+
+    // Password change: the context is a fixed username and email, and the previous
+    // sample stands in for the password being replaced
+    private static final String USERNAME = "jsmith";
+    private static final String EMAIL = "john.smith@example.com";
+
+    @Benchmark
+    public boolean isCompliantWithContext() {
+        String oldPassword = samples[(next - 1) & (PasswordSamples.SAMPLE_COUNT - 1)];
+        return targets.isCompliant(nextPassword(), USERNAME, EMAIL, oldPassword);
+    }
+
+    @Benchmark
+    public boolean isSimilar() {
+        String oldPassword = samples[(next - 1) & (PasswordSamples.SAMPLE_COUNT - 1)];
+        return targets.isSimilar(nextPassword(), USERNAME, EMAIL, oldPassword);
+    }
+
+    @Benchmark
+    public String generateComplianceReport() {
+        return targets.generateComplianceReport(nextPassword());
+    }
+
+    // The same report through ReportWriter into a reused buffer, and a CSV row
+    @Benchmark
+    public int writeTextReport() {
+        return targets.writeReport(nextPassword(), "text");
+    }
+
+    @Benchmark
+    public int writeCsvReport() {
+        return targets.writeReport(nextPassword(), "csv");
+    }
+
+    @Benchmark
+    public double estimateLog10Guesses() {
+        return targets.estimateLog10Guesses(nextPassword());
+    }
+
+    @Benchmark
+    public double estimateMarkovLog10Guesses() {
+        return targets.estimateMarkovLog10Guesses(nextPassword());
+    }
+}
@@ -0,0 +1,49 @@
+package bench;
+
+import java.nio.ByteBuffer;
+
+public interface AnalyzerTargets {
+    // This interface is how the benchmarks reach the analyzer classes
+    // JMH needs benchmarks in a named package, but the analyzer lives in the
+    // default package, which a named package cannot import. BenchmarkTargets
+    // (default package) implements this interface and is loaded by name once.
+
+    int calculateStrengthScore(String password);
+
+    // Same score from part of a reusable char buffer
+    int calculateStrengthScore(char[] password, int offset, int length);
+
+    boolean isCompliant(String password);
+
+    boolean isCompliant(char[] password, int offset, int length);
+
+    // Compliance at password change time, with the similarity rule checking the context
+    boolean isCompliant(String password, String username, String email, String oldPassword);
+
+    // The similarity rule on its own
+    boolean isSimilar(String password, String username, String email, String oldPassword);
+
+    String generateComplianceReport(String password);
+
+    // One report record written into a reused buffer ("csv", "jsonl" or "text");
+    // returns the number of chars written
+    int writeReport(String password, String format);
+
+    double estimateLog10Guesses(String password);
+
+    // Guess estimate from a small Markov model trained on random strings when first used
+    double estimateMarkovLog10Guesses(String password);
+
+    // Class masks of count records packed into one buffer as (start, length) pairs;
+    // vector picks the Vector API scanner, which needs --add-modules jdk.incubator.vector
+    void scanClasses(boolean vector, ByteBuffer packed, int[] lines, int count, int[] masks);
+
+    // Method to load the default-package implementation
+    static AnalyzerTargets load() {
+        try {
+            return (AnalyzerTargets) Class.forName("BenchmarkTargets").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not load BenchmarkTargets", e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package bench;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@OperationsPerInvocation(PasswordSamples.SAMPLE_COUNT)
+@State(Scope.Thread)
+public class ClassScanBenchmark {
+    // Character-class scan of a whole batch of newline-separated passwords packed
+    // into one direct buffer, the way BatchAuditor sees a mapped file. Scores are
+    // per password. Both scanners run in a JVM that has the Vector API module, so
+    // the only difference is the scanner.
+
+    @Param({"leaked", "policy", "passphrase"})
+    public String lengths;
+
+    @Param({"scalar", "vector"})
+    public String scanner;
+
+    private AnalyzerTargets targets;
+    private boolean vector;
+    private ByteBuffer packed;
+    private int[] lines;
+    private int[] masks;
+
+    @Setup
+    public void setUp() {
+        targets = AnalyzerTargets.load();
+        vector = scanner.equals("vector");
+        String[] samples = PasswordSamples.generate(lengths, 0.2, 42);
+        lines = new int[samples.length * 2];
+        masks = new int[samples.length];
+        int size = 0;
+        for (String sample : samples) {
+            size += sample.length() + 1;
+        }
+        packed = ByteBuffer.allocateDirect(size);
+        for (int i = 0; i < samples.length; i++) {
+            lines[i * 2] = packed.position();
+            lines[i * 2 + 1] = samples[i].length();
+            packed.put(samples[i].getBytes(StandardCharsets.US_ASCII)).put((byte) '\n');
+        }
+        packed.clear();
+        // Fails here rather than measuring the scalar scanner twice
+        targets.scanClasses(vector, packed, lines, samples.length, masks);
+    }
+
+    @Benchmark
+    public int[] scan() {
+        targets.scanClasses(vector, packed, lines, masks.length, masks);
+        return masks;
+    }
+}
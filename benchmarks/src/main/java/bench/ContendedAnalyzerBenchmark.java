@@ -0,0 +1,71 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class ContendedAnalyzerBenchmark {
+    // The same hot paths with one analyzer and policy shared by every core,
+    // the way the batch audit uses them
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        @Param({"leaked", "policy"})
+        public String lengths;
+
+        @Param({"0.0", "0.2"})
+        public double commonShare;
+
+        AnalyzerTargets targets;
+        String[] samples;
+
+        @Setup
+        public void setUp() {
+            targets = AnalyzerTargets.load();
+            samples = PasswordSamples.generate(lengths, commonShare, 42);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        String nextPassword(Shared shared) {
+            String password = shared.samples[next];
+            next = (next + 1) & (PasswordSamples.SAMPLE_COUNT - 1);
+            return password;
+        }
+    }
+
+    @Benchmark
+    public int calculateStrengthScore(Shared shared, Cursor cursor) {
+        return shared.targets.calculateStrengthScore(cursor.nextPassword(shared));
+    }
+
+    @Benchmark
+    public boolean isCompliant(Shared shared, Cursor cursor) {
+        return shared.targets.isCompliant(cursor.nextPassword(shared));
+    }
+
+    @Benchmark
+    public String generateComplianceReport(Shared shared, Cursor cursor) {
+        return shared.targets.generateComplianceReport(cursor.nextPassword(shared));
+    }
+}
@@ -0,0 +1,65 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class MetricsOverheadBenchmark {
+    // Cost of the AnalyzerMetrics instrumentation: the same calls in a JVM with
+    // metrics off (the default) and one started with -Dpassword.metrics=true.
+    // The "off" numbers should match AnalyzerBenchmark.
+
+    private AnalyzerTargets targets;
+    private String[] samples;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        targets = AnalyzerTargets.load();
+        samples = PasswordSamples.generate("policy", 0.2, 42);
+    }
+
+    private String nextPassword() {
+        String password = samples[next];
+        next = (next + 1) & (PasswordSamples.SAMPLE_COUNT - 1);
+        return password;
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dpassword.metrics=false")
+    public int scoreMetricsOff() {
+        return targets.calculateStrengthScore(nextPassword());
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dpassword.metrics=true")
+    public int scoreMetricsOn() {
+        return targets.calculateStrengthScore(nextPassword());
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dpassword.metrics=false")
+    public boolean isCompliantMetricsOff() {
+        return targets.isCompliant(nextPassword());
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dpassword.metrics=true")
+    public boolean isCompliantMetricsOn() {
+        return targets.isCompliant(nextPassword());
+    }
+}
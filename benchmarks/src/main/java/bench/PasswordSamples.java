@@ -0,0 +1,57 @@
+package bench;
+
+import java.util.SplittableRandom;
+
+public final class PasswordSamples {
+    // This class generates the password sets the benchmarks run over
+    // Lengths follow a few realistic shapes and a share of the passwords are
+    // taken from the analyzer's built-in common list so the dictionary path is hit
+
+    public static final int SAMPLE_COUNT = 4096;
+
+    private static final String[] COMMON = {
+        "password", "123456", "password123", "admin", "qwerty",
+        "letmein", "welcome", "monkey", "dragon", "master"
+    };
+    private static final String ALPHABET =
+        "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789!@#$%^&*()_+-=[]{}|;:,.<>?";
+
+    private PasswordSamples() {
+    }
+
+    // Method to build a sample set
+    // lengths: "leaked" (mostly 6-10, like breach corpora), "policy" (8-16), "passphrase" (16-40)
+    public static String[] generate(String lengths, double commonShare, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        String[] samples = new String[SAMPLE_COUNT];
+        for (int i = 0; i < samples.length; i++) {
+            if (random.nextDouble() < commonShare) {
+                String common = COMMON[random.nextInt(COMMON.length)];
+                samples[i] = random.nextBoolean() ? common : common.toUpperCase();
+                continue;
+            }
+            int length = length(lengths, random);
+            StringBuilder password = new StringBuilder(length);
+            for (int c = 0; c < length; c++) {
+                password.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            samples[i] = password.toString();
+        }
+        return samples;
+    }
+
+    private static int length(String lengths, SplittableRandom random) {
+        switch (lengths) {
+            case "leaked":
+                // Roughly the shape of public breach corpora: peak at 8, long tail to 16
+                int length = 6 + (int) Math.round(Math.abs(random.nextGaussian()) * 2.5);
+                return Math.min(length, 16);
+            case "policy":
+                return 8 + random.nextInt(9);
+            case "passphrase":
+                return 16 + random.nextInt(25);
+            default:
+                throw new IllegalArgumentException("Unknown length distribution: " + lengths);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchAuditorTest {
+    // Audits generated files both ways, memory-mapped and decoded line by line through
+    // a Reader, and checks the reports are identical byte for byte. Small windows make
+    // many lines (and \r\n pairs) straddle two mappings.
+
+    private static final int LINES = 50_000;
+    private static final long[] WINDOW_SIZES = {257, 1000, 4096, 1 << 20};
+
+    // Line endings to pick from; old Mac files end lines with \r alone
+    private static final String[] MIXED_ENDINGS = {"\n", "\n", "\n", "\r\n", "\r\n", "\r"};
+    private static final String[] CR_ENDINGS = {"\r", "\r", "\r", "\r", "\r", "\r", "\r\n"};
+
+    private static final String[] NON_ASCII = {"é", "ß", "Ωmega", "пароль", "密码", "😀", "ñandú"};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void mappedAndReaderAuditsMatch() throws IOException {
+        for (long seed = 1; seed <= 3; seed++) {
+            checkBothWays(generateCorpus(new Random(seed), LINES, MIXED_ENDINGS), "seed " + seed);
+        }
+    }
+
+    // Windows without any \n have to be cut after a \r that is not the last byte
+    @Test
+    void carriageReturnLinesMatch() throws IOException {
+        checkBothWays(generateCorpus(new Random(7), LINES, CR_ENDINGS), "\\r lines");
+    }
+
+    @Test
+    void lastLineWithoutTerminatorIsAudited() throws IOException {
+        for (String ending : new String[] {"", "\r", "\n", "\r\n"}) {
+            byte[] corpus = ("Password1!\r\n\r\nshort\rlast" + ending).getBytes(StandardCharsets.UTF_8);
+            Path input = Files.write(directory.resolve("ending.txt"), corpus);
+            assertArrayEquals(auditThroughReader(corpus, ReportWriter.Format.CSV),
+                    auditMapped(input, ReportWriter.Format.CSV, 16), "ending " + ending.replace("\r", "\\r"));
+        }
+    }
+
+    @Test
+    void lineLongerThanWindowFails() throws IOException {
+        Path input = Files.writeString(directory.resolve("long.txt"), "a".repeat(300) + "\nb\nc\n");
+        assertThrows(IOException.class, () -> auditMapped(input, ReportWriter.Format.CSV, 64));
+    }
+
+    @Test
+    void everyLineGetsOneRecord() throws IOException {
+        byte[] corpus = generateCorpus(new Random(42), 10_000, MIXED_ENDINGS);
+        long lines = new BufferedReader(new StringReader(new String(corpus, StandardCharsets.UTF_8))).lines().count();
+        BatchAuditor auditor = new BatchAuditor(new PasswordAnalyzer(), new SecurityPolicy(), 4);
+        Path input = Files.write(directory.resolve("count.txt"), corpus);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(lines, auditor.audit(input, Channels.newChannel(out), ReportWriter.Format.CSV));
+    }
+
+    // A German default locale would write the compliance rate as 0,5000
+    @Test
+    void footerIgnoresDefaultLocale() throws IOException {
+        Locale previous = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+        try {
+            byte[] corpus = "password\nXy7!kLm#2024qq\n".getBytes(StandardCharsets.US_ASCII);
+            String csv = new String(auditThroughReader(corpus, ReportWriter.Format.CSV), StandardCharsets.UTF_8);
+            assertTrue(csv.endsWith("# 2,1,0.5000,1,0,0,1\n"), csv);
+            String jsonl = new String(auditThroughReader(corpus, ReportWriter.Format.JSONL), StandardCharsets.UTF_8);
+            assertTrue(jsonl.contains("\"complianceRate\":0.5000,"), jsonl);
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+
+    private void checkBothWays(byte[] corpus, String name) throws IOException {
+        Path input = Files.write(directory.resolve("corpus.txt"), corpus);
+        for (ReportWriter.Format format : ReportWriter.Format.values()) {
+            byte[] expected = auditThroughReader(corpus, format);
+            for (long windowSize : WINDOW_SIZES) {
+                assertArrayEquals(expected, auditMapped(input, format, windowSize),
+                        name + ", " + format + ", window " + windowSize);
+            }
+        }
+    }
+
+    private static byte[] auditThroughReader(byte[] corpus, ReportWriter.Format format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        newAuditor().audit(Channels.newChannel(new ByteArrayInputStream(corpus)), Channels.newChannel(out), format);
+        return out.toByteArray();
+    }
+
+    private static byte[] auditMapped(Path input, ReportWriter.Format format, long windowSize) throws IOException {
+        BatchAuditor auditor = newAuditor();
+        auditor.setWindowSize(windowSize);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        auditor.audit(input, Channels.newChannel(out), format);
+        return out.toByteArray();
+    }
+
+    private static BatchAuditor newAuditor() {
+        BatchAuditor auditor = new BatchAuditor(new PasswordAnalyzer(), new SecurityPolicy(), 4);
+        auditor.setFooter(true);
+        return auditor;
+    }
+
+    // Lines of printable ASCII (some of them common passwords), empty lines and lines
+    // with non-ASCII characters, each ended by one of the given line endings at random
+    private static byte[] generateCorpus(Random random, int lines, String[] endings) {
+        StringBuilder text = new StringBuilder();
+        String[] common = {"password", "123456", "qwerty", "admin", "letmein"};
+        for (int i = 0; i < lines; i++) {
+            int kind = random.nextInt(100);
+            if (kind < 5) {
+                // empty line
+            } else if (kind < 15) {
+                text.append(common[random.nextInt(common.length)]);
+            } else if (kind < 30) {
+                appendAscii(text, random, 1 + random.nextInt(12));
+                text.append(NON_ASCII[random.nextInt(NON_ASCII.length)]);
+                appendAscii(text, random, random.nextInt(6));
+            } else {
+                appendAscii(text, random, 1 + random.nextInt(kind < 35 ? 200 : 24));
+            }
+            text.append(endings[random.nextInt(endings.length)]);
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendAscii(StringBuilder text, Random random, int length) {
+        for (int i = 0; i < length; i++) {
+            text.append((char) (32 + random.nextInt(95)));
+        }
+    }
+}
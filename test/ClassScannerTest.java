@@ -0,0 +1,102 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ClassScannerTest {
+    // Randomized differential tests: the scalar scanner against PasswordAnalyzer's own
+    // class bits, and the scanner ClassScanner.create picks (the Vector API one when
+    // surefire adds jdk.incubator.vector and the CPU has wide vectors) against the scalar one.
+
+    private static final CharacterClasses[] CLASSES = {
+        CharacterClasses.DEFAULT,
+        new CharacterClasses("#$ ~", "P")
+    };
+
+    @Test
+    void scalarScannerMatchesAnalyzer() {
+        for (CharacterClasses classes : CLASSES) {
+            PasswordAnalyzer analyzer = new PasswordAnalyzer(new DefaultPasswordDictionary(), classes);
+            ClassScanner scanner = new ScalarClassScanner(classes);
+            for (long seed = 1; seed <= 20; seed++) {
+                Records records = new Records(new Random(seed), 5_000);
+                int[] expected = new int[records.count];
+                for (int i = 0; i < records.count; i++) {
+                    expected[i] = records.isAscii(i)
+                            ? analyzer.analyze(records.text(i)).getClassMask()
+                            : ClassScanner.NOT_ASCII;
+                }
+                assertArrayEquals(expected, records.scan(scanner), "seed " + seed);
+            }
+        }
+    }
+
+    @Test
+    void createdScannerMatchesScalar() {
+        for (CharacterClasses classes : CLASSES) {
+            ClassScanner scanner = ClassScanner.create(classes);
+            assumeFalse(scanner instanceof ScalarClassScanner, "no Vector API scanner on this JVM");
+            ClassScanner scalar = new ScalarClassScanner(classes);
+            for (int round = 0; round < 200; round++) {
+                // Varying the count moves where the records end relative to the vector blocks
+                Records records = new Records(new Random(round), 2_000 - round);
+                assertArrayEquals(records.scan(scalar), records.scan(scanner), "round " + round);
+            }
+        }
+    }
+
+    // Records of 0 to 40 bytes, mostly printable ASCII with some control and non-ASCII
+    // bytes, packed with one or two terminator bytes between them. The last record
+    // ends right at the buffer's limit, with no terminator after it.
+    private static final class Records {
+        final int count;
+        final int[] lines;
+        final ByteBuffer buffer;
+
+        Records(Random random, int count) {
+            this.count = count;
+            lines = new int[count * 2];
+            byte[] data = new byte[count * 42];
+            int position = 0;
+            for (int i = 0; i < count; i++) {
+                int length = random.nextInt(41);
+                lines[i * 2] = position;
+                lines[i * 2 + 1] = length;
+                for (int j = 0; j < length; j++) {
+                    int kind = random.nextInt(100);
+                    data[position++] = kind < 90 ? (byte) (32 + random.nextInt(95))
+                            : kind < 95 ? (byte) random.nextInt(32)
+                            : (byte) (128 + random.nextInt(128));
+                }
+                data[position++] = '\n';
+                if (random.nextInt(4) == 0) {
+                    data[position++] = '\r';
+                }
+            }
+            buffer = ByteBuffer.wrap(data, 0, position - 1);
+        }
+
+        int[] scan(ClassScanner scanner) {
+            int[] masks = new int[count];
+            scanner.scan(buffer, lines, count, masks);
+            return masks;
+        }
+
+        boolean isAscii(int record) {
+            for (int i = lines[record * 2]; i < lines[record * 2] + lines[record * 2 + 1]; i++) {
+                if (buffer.get(i) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String text(int record) {
+            return new String(buffer.array(), lines[record * 2], lines[record * 2 + 1], StandardCharsets.US_ASCII);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SegmentedPasswordIndexTest {
+    // Adds deltas, compacts, and checks that every added password is still found, both
+    // by the instance that compacted and by one opened afterwards. Wordlists overlap so
+    // the merge has duplicates to drop.
+
+    @TempDir
+    Path directory;
+
+    private int wordlists;
+
+    @Test
+    void compactionKeepsEveryPassword() throws IOException {
+        Path index = directory.resolve("index");
+        Set<String> added = new HashSet<>();
+        try (SegmentedPasswordIndex segmented = SegmentedPasswordIndex.open(index, 0)) {
+            for (int delta = 0; delta < 5; delta++) {
+                // Each list repeats half of the one before it
+                segmented.add(wordlist(added, delta * 500, 1_000));
+            }
+            assertEquals(5, segmented.deltaCount());
+            assertFound(segmented, added);
+
+            assertTrue(segmented.compact());
+            assertEquals(0, segmented.deltaCount());
+            assertEquals(added.size(), segmented.baseSize());
+            assertFound(segmented, added);
+            assertFalse(segmented.compact(), "nothing left to compact");
+        }
+        try (SegmentedPasswordIndex reopened = SegmentedPasswordIndex.open(index, 0)) {
+            assertEquals(added.size(), reopened.baseSize());
+            assertFound(reopened, added);
+        }
+        // The replaced deltas are deleted; one base (index and key list) is left
+        assertEquals(Set.of("base-5.idx", "base-5.keys"), segmentFiles(index));
+    }
+
+    @Test
+    void deltasAddedAfterCompactionSurviveTheNext() throws IOException {
+        Path index = directory.resolve("index");
+        Set<String> added = new HashSet<>();
+        try (SegmentedPasswordIndex segmented = SegmentedPasswordIndex.open(index, 0)) {
+            segmented.add(wordlist(added, 0, 2_000));
+            segmented.add(wordlist(added, 1_000, 2_000));
+            assertTrue(segmented.compact());
+
+            segmented.add(wordlist(added, 2_500, 1_000));
+            assertEquals(1, segmented.deltaCount());
+            assertFound(segmented, added);
+
+            assertTrue(segmented.compact());
+            assertEquals(added.size(), segmented.baseSize());
+            assertFound(segmented, added);
+        }
+        try (SegmentedPasswordIndex reopened = SegmentedPasswordIndex.open(index, 0)) {
+            assertFound(reopened, added);
+        }
+    }
+
+    // Another process keeps adding deltas while this one compacts; deltas newer than
+    // the ones merged must neither be lost nor deleted
+    @Test
+    void deltasAddedDuringCompactionSurvive() throws Exception {
+        Path index = directory.resolve("index");
+        Set<String> added = new HashSet<>();
+        try (SegmentedPasswordIndex compacting = SegmentedPasswordIndex.open(index, 0);
+             SegmentedPasswordIndex adding = SegmentedPasswordIndex.open(index, 0)) {
+            // A large first delta makes the compaction take a while
+            compacting.add(wordlist(added, 0, 300_000));
+            compacting.add(wordlist(added, 299_000, 2_000));
+
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Future<Boolean> compaction = executor.submit(compacting::compact);
+                int next = 400_000;
+                do {
+                    adding.add(wordlist(added, next, 100));
+                    next += 100;
+                } while (!compaction.isDone());
+                assertTrue(compaction.get());
+            } finally {
+                executor.shutdown();
+            }
+
+            compacting.refresh();
+            assertFound(compacting, added);
+            adding.refresh();
+            assertFound(adding, added);
+            assertTrue(compacting.compact());
+            assertEquals(added.size(), compacting.baseSize());
+        }
+        try (SegmentedPasswordIndex reopened = SegmentedPasswordIndex.open(index, 0)) {
+            assertFound(reopened, added);
+        }
+    }
+
+    // Two writers pick sequence numbers under the lock file, so no delta replaces another
+    @Test
+    void concurrentWritersGetTheirOwnDeltas() throws Exception {
+        Path index = directory.resolve("index");
+        List<Path> lists = new ArrayList<>();
+        Set<String> added = new HashSet<>();
+        for (int delta = 0; delta < 20; delta++) {
+            lists.add(wordlist(added, delta * 50, 50));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Void>> writers = new ArrayList<>();
+            for (int writer = 0; writer < 2; writer++) {
+                List<Path> share = lists.subList(writer * 10, writer * 10 + 10);
+                writers.add(executor.submit(() -> {
+                    try (SegmentedPasswordIndex segmented = SegmentedPasswordIndex.open(index, 0)) {
+                        for (Path list : share) {
+                            segmented.add(list);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        try (SegmentedPasswordIndex reopened = SegmentedPasswordIndex.open(index, 0)) {
+            assertEquals(20, reopened.deltaCount());
+            assertFound(reopened, added);
+        }
+    }
+
+    // Method to write passwords first .. first + count - 1 as a new wordlist file
+    private Path wordlist(Set<String> added, int first, int count) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = first; i < first + count; i++) {
+            String password = "pw" + i + "x" + (i * 7919 % 1000);
+            added.add(password);
+            text.append(password).append('\n');
+        }
+        return Files.writeString(directory.resolve("list-" + wordlists++ + ".txt"), text);
+    }
+
+    private static void assertFound(SegmentedPasswordIndex index, Set<String> passwords) {
+        for (String password : passwords) {
+            assertTrue(index.contains(password), password);
+        }
+    }
+
+    private static Set<String> segmentFiles(Path index) throws IOException {
+        try (Stream<Path> files = Files.list(index)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> !name.startsWith("."))
+                    .collect(Collectors.toSet());
+        }
+    }
+}